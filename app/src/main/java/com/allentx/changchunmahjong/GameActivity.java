@@ -10,27 +10,49 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.allentx.changchunmahjong.databinding.ActivityGameBinding;
+import com.allentx.changchunmahjong.engine.Action;
+import com.allentx.changchunmahjong.engine.Decision;
+import com.allentx.changchunmahjong.engine.ExpectimaxAiController;
+import com.allentx.changchunmahjong.engine.GameEngine;
+import com.allentx.changchunmahjong.engine.GameListener;
+import com.allentx.changchunmahjong.engine.HandResult;
+import com.allentx.changchunmahjong.engine.SeatController;
+import com.allentx.changchunmahjong.engine.SpeculativeAiController;
 import com.allentx.changchunmahjong.logic.GameManager;
 import com.allentx.changchunmahjong.logic.RuleValidatorHelper;
+import com.allentx.changchunmahjong.model.Meld;
 import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.record.GameRecordWriter;
+import com.allentx.changchunmahjong.record.GameRecorder;
+import com.allentx.changchunmahjong.util.RandomSource;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import com.allentx.changchunmahjong.R;
 import com.google.android.flexbox.FlexboxLayout;
 import com.google.android.flexbox.FlexWrap;
 import android.view.ViewGroup;
-import java.util.ArrayList;
-import java.util.Map;
 import com.allentx.changchunmahjong.model.Player;
-import com.allentx.changchunmahjong.logic.SmartAiStrategy;
+import com.allentx.changchunmahjong.logic.KeepValueEvaluator;
 
-public class GameActivity extends AppCompatActivity {
+public class GameActivity extends AppCompatActivity implements GameListener {
+    private static final long AI_SEARCH_MILLIS = 300; // Discard search per AI turn, run off the main thread
+    private static final long ASSIST_DEBOUNCE_MILLIS = 100; // Quiet time before scoring a changed hand
+    private static final String SCORE_BADGE = "score_badge"; // View tag of assistance score badges
 
     private ActivityGameBinding binding;
     private GameManager gameManager;
+    private GameEngine engine; // Turn loop; this activity only renders its events
+    private SpeculativeAiController ai; // Searches AI discards ahead while the table pauses
+    private final android.os.Handler handler = new android.os.Handler(android.os.Looper.getMainLooper());
+    private final Runnable stepRunnable = this::runStep;
+    private long nextStepDelay; // Pause before the next engine step, set by event callbacks
+    private HandResult handResult;
+    private GameRecordWriter recordWriter; // Archive of played hands, null if it could not be opened
     private Tile selectedTile;
     private View selectedView;
     private Tile lastDrawnTile;
-    private boolean isPreDrawPhase = false;
     private static int currentBankerIndex = 0; // Persistent across games
 
     @Override
@@ -40,6 +62,9 @@ public class GameActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
 
         soundManager = com.allentx.changchunmahjong.util.SoundManager.getInstance(this);
+        prefs = getSharedPreferences("mahjong_prefs", MODE_PRIVATE);
+        assistanceOn = prefs.getBoolean("discard_assistance", true);
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
 
         binding.btnHu.setOnClickListener(v -> executeHu());
         binding.btnPeng.setOnClickListener(v -> executePeng());
@@ -52,19 +77,52 @@ public class GameActivity extends AppCompatActivity {
         startNewHand();
     }
 
+    @Override
+    protected void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
+        prefs.unregisterOnSharedPreferenceChangeListener(prefsListener);
+        assistWorker.shutdownNow();
+        if (ai != null)
+            ai.shutdown();
+        if (recordWriter != null) {
+            try {
+                recordWriter.close();
+            } catch (java.io.IOException e) {
+                // Every finished hand was already flushed
+            }
+            recordWriter = null;
+        }
+        super.onDestroy();
+    }
+
     private void startNewHand() {
-        if (gameManager == null) {
+        if (engine == null) {
             gameManager = new GameManager();
+            ai = new SpeculativeAiController(new ExpectimaxAiController(RandomSource.create(), AI_SEARCH_MILLIS),
+                    handler::post, this::onAiDecisionReady);
+            // Seat 0 is the human: the engine waits for the buttons and tile clicks
+            engine = new GameEngine(gameManager, new SeatController[] { null, ai, ai, ai });
+            ai.attach(engine, 0b1110);
+            engine.addListener(this);
+
+            // Keep a record of every hand played, with timings
+            try {
+                recordWriter = new GameRecordWriter(new java.io.File(getFilesDir(), "hands.ccgr"));
+                GameRecorder recorder = new GameRecorder(engine, recordWriter, true, true);
+                recorder.setNextHandId(System.currentTimeMillis());
+                engine.addListener(recorder);
+            } catch (java.io.IOException e) {
+                recordWriter = null;
+            }
         }
-        gameManager.startGame(currentBankerIndex);
 
         lastDrawnTile = null;
         selectedTile = null;
         selectedView = null;
-        interruptedTile = null;
-        lastDiscardFromPlayer = -1;
+        handResult = null;
 
         hideActions();
+        engine.startHand(currentBankerIndex);
 
         // Check if Banker (Human) has Hu or An Gang at start
         List<Tile> hand = gameManager.getTable().getPlayer(0).getHand();
@@ -75,16 +133,13 @@ public class GameActivity extends AppCompatActivity {
         refreshUI();
 
         // If AI is Banker, they must discard first
-        if (currentBankerIndex != 0) {
-            new android.os.Handler().postDelayed(() -> simulateAiTurn(currentBankerIndex), 1000);
-        }
-        // Human banker: just wait for them to discard (they have 14 tiles)
+        // Human banker: the engine waits for them to discard (they have 14 tiles)
+        scheduleStep(currentBankerIndex != 0 ? 1000 : 0);
     }
 
     private com.allentx.changchunmahjong.util.SoundManager soundManager;
 
     private boolean isSoundEnabled() {
-        android.content.SharedPreferences prefs = getSharedPreferences("mahjong_prefs", MODE_PRIVATE);
         return prefs.getBoolean("sound_enabled", true);
     }
 
@@ -113,39 +168,36 @@ public class GameActivity extends AppCompatActivity {
         binding.btnViewBao.setVisibility(canViewBao ? View.VISIBLE : View.GONE);
     }
 
-    private int lastDiscardFromPlayer = -1;
-    private Tile interruptedTile = null;
+    private android.content.SharedPreferences prefs;
+    private boolean assistanceOn; // discard_assistance, kept current by prefsListener
+    // Registered listeners are weakly held, so keep a reference
+    private final android.content.SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (p, key) -> {
+        if ("discard_assistance".equals(key)) {
+            assistanceOn = p.getBoolean(key, true);
+            if (engine != null)
+                refreshUI();
+        }
+    };
+
+    // Discard assistance is scored on a worker; a result only lands if its hand state is still the latest
+    private final ExecutorService assistWorker = Executors.newSingleThreadExecutor();
+    private final KeepValueEvaluator handEvaluator = new KeepValueEvaluator(); // Assistance worker only
+    private final Runnable assistRunnable = this::startAssistance;
+    private volatile int[] requestedState; // Hand state last asked for, see assistanceState(); null if none
+    private int[] scoredState; // Hand state handScores belong to
+    private double[] handScores; // By tile id
+    private boolean scoresShown; // handScores are for the hand on screen
     private Tile recommendedDiscard = null;
-    private java.util.Map<Tile, Double> currentHandScores = new java.util.HashMap<>();
 
     private void refreshUI() {
-        // Collect all visible tiles for AI strategy early for assistance
         Player human = gameManager.getTable().getPlayer(0);
         List<Tile> hand = human.getHand();
-        android.content.SharedPreferences prefs = getSharedPreferences("mahjong_prefs", MODE_PRIVATE);
-        boolean assistanceOn = prefs.getBoolean("discard_assistance", true);
-
-        currentHandScores.clear();
-        recommendedDiscard = null;
-        if (assistanceOn && !hand.isEmpty()) {
-            List<Tile> allDiscards = gameManager.getTable().getDiscards();
-            List<Tile> allMeldsTiles = new ArrayList<>();
-            for (int i = 0; i < 4; i++) {
-                for (com.allentx.changchunmahjong.model.Meld m : gameManager.getTable().getPlayer(i).getMelds()) {
-                    allMeldsTiles.addAll(m.getTiles());
-                }
-            }
-            currentHandScores = SmartAiStrategy.getKeepValues(hand, allDiscards, human.getMelds(), allMeldsTiles);
-
-            // Find best discard from scores
-            double minScore = Double.MAX_VALUE;
-            for (Map.Entry<Tile, Double> entry : currentHandScores.entrySet()) {
-                if (entry.getValue() < minScore) {
-                    minScore = entry.getValue();
-                    recommendedDiscard = entry.getKey();
-                }
-            }
-        }
+        int[] state = assistanceOn && !hand.isEmpty() ? assistanceState(human) : null;
+        requestAssistance(state);
+        // Scores of the same hand stay up until the new visible tiles are scored in
+        scoresShown = state != null && scoredState != null && sameHand(state, scoredState);
+        if (!scoresShown)
+            recommendedDiscard = null;
 
         // 1. Secret Hand
         binding.layoutHand.removeAllViews();
@@ -153,8 +205,7 @@ public class GameActivity extends AppCompatActivity {
         List<Tile> sortedHand = new java.util.ArrayList<>(fullHand);
 
         if (lastDrawnTile != null && sortedHand.contains(lastDrawnTile)) {
-            sortedHand.remove(lastDrawnTile);
-            java.util.Collections.sort(sortedHand);
+            sortedHand.remove(lastDrawnTile); // Hand is kept sorted
 
             for (Tile tile : sortedHand) {
                 addTileToLayout(tile, false);
@@ -168,7 +219,6 @@ public class GameActivity extends AppCompatActivity {
             // Add last drawn
             addTileToLayout(lastDrawnTile, true);
         } else {
-            java.util.Collections.sort(sortedHand);
             for (Tile tile : sortedHand) {
                 addTileToLayout(tile, false);
             }
@@ -182,7 +232,7 @@ public class GameActivity extends AppCompatActivity {
 
         int turnOwner = gameManager.getCurrentPlayerIndex();
         String turn = (turnOwner == 0) ? getString(R.string.turn_you) : getString(R.string.turn_ai);
-        String wallCount = String.format(getString(R.string.wall_count), gameManager.getTable().getWall().size());
+        String wallCount = String.format(getString(R.string.wall_count), gameManager.getTable().getWallRemaining());
 
         binding.tvStatusLeft.setText(turn + " | " + wallCount);
 
@@ -281,6 +331,92 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
+    // Hand counts, meld count and flags, then visible counts: everything the assistance score depends on
+    private int[] assistanceState(Player human) {
+        int[] state = new int[2 * Tile.TYPE_COUNT + 2];
+        com.allentx.changchunmahjong.model.TileLedger visible = gameManager.getTable().getVisibleTiles();
+        for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+            state[id] = human.getSummary().getCount(id);
+            state[Tile.TYPE_COUNT + 2 + id] = visible.getCount(id);
+        }
+        state[Tile.TYPE_COUNT] = human.getMelds().size();
+        state[Tile.TYPE_COUNT + 1] = human.getSummary().getMeldFlags();
+        return state;
+    }
+
+    private static boolean sameHand(int[] a, int[] b) {
+        for (int i = 0; i < Tile.TYPE_COUNT + 2; i++) {
+            if (a[i] != b[i])
+                return false;
+        }
+        return true;
+    }
+
+    // Debounced: rapid refreshes of one state ask once, and only the last state is scored
+    private void requestAssistance(int[] state) {
+        if (state == null) {
+            requestedState = null;
+            handler.removeCallbacks(assistRunnable);
+        } else if (requestedState == null || !Arrays.equals(state, requestedState)) {
+            requestedState = state;
+            handler.removeCallbacks(assistRunnable);
+            handler.postDelayed(assistRunnable, ASSIST_DEBOUNCE_MILLIS);
+        }
+    }
+
+    private void startAssistance() {
+        final int[] state = requestedState;
+        if (state == null)
+            return;
+        assistWorker.execute(() -> {
+            if (state != requestedState)
+                return; // Superseded while queued
+            int n = Tile.TYPE_COUNT;
+            double[] scores = handEvaluator.evaluate(Arrays.copyOfRange(state, 0, n), state[n], state[n + 1],
+                    Arrays.copyOfRange(state, n + 2, 2 * n + 2)).clone();
+            handler.post(() -> onAssistanceReady(state, scores));
+        });
+    }
+
+    private void onAssistanceReady(int[] state, double[] scores) {
+        if (state != requestedState || isDestroyed())
+            return; // The hand moved on while it was scored
+        scoredState = state;
+        handScores = scores;
+        scoresShown = true;
+
+        // Find best discard from scores
+        recommendedDiscard = null;
+        double minScore = Double.MAX_VALUE;
+        for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+            if (state[id] > 0 && scores[id] < minScore) {
+                minScore = scores[id];
+                recommendedDiscard = Tile.byId(id);
+            }
+        }
+        refreshAssistance();
+    }
+
+    // Redraws only the score badges and recommendation arrow of the hand on screen
+    private void refreshAssistance() {
+        for (int i = 0; i < binding.layoutHand.getChildCount(); i++) {
+            View v = binding.layoutHand.getChildAt(i);
+            if (!(v.getTag() instanceof Tile) || !(v instanceof LinearLayout))
+                continue;
+            LinearLayout container = (LinearLayout) v;
+            while (container.getChildCount() > 1)
+                container.removeViewAt(1); // Old arrow
+            android.widget.FrameLayout tileView = (android.widget.FrameLayout) container.getChildAt(0);
+            View badge = tileView.findViewWithTag(SCORE_BADGE);
+            if (badge != null)
+                tileView.removeView(badge);
+            addScoreBadge(tileView, handScores[((Tile) v.getTag()).getId()]);
+        }
+        if (gameManager.getCurrentPlayerIndex() == 0 && recommendedDiscard != null) {
+            highlightRecommendedTile(recommendedDiscard);
+        }
+    }
+
     private void addTileToLayout(Tile tile, boolean highlight) {
         // Create the tile container (Vertical LinearLayout)
         LinearLayout container = new LinearLayout(this);
@@ -289,7 +425,7 @@ public class GameActivity extends AppCompatActivity {
         container.setTag(tile);
 
         // The tile itself
-        Double score = currentHandScores.get(tile);
+        Double score = scoresShown ? handScores[tile.getId()] : null;
         View tileView = createTileView(tile, highlight, 0, score);
         LinearLayout.LayoutParams tileParams = new LinearLayout.LayoutParams(96, 132);
         tileView.setLayoutParams(tileParams);
@@ -429,22 +565,27 @@ public class GameActivity extends AppCompatActivity {
 
         // Score Badge (Discard Assistance)
         if (score != null) {
-            TextView tvScore = new TextView(this);
-            tvScore.setText(String.valueOf(score.intValue()));
-            tvScore.setTextColor(Color.BLUE);
-            tvScore.setBackgroundColor(Color.parseColor("#80FFFFFF")); // Semi-transparent white
-            tvScore.setTextSize(10f);
-            tvScore.setPadding(4, 0, 4, 0);
-            android.widget.FrameLayout.LayoutParams lp = new android.widget.FrameLayout.LayoutParams(
-                    android.widget.FrameLayout.LayoutParams.WRAP_CONTENT,
-                    android.widget.FrameLayout.LayoutParams.WRAP_CONTENT);
-            lp.gravity = Gravity.TOP | Gravity.START;
-            container.addView(tvScore, lp);
+            addScoreBadge(container, score);
         }
 
         return container;
     }
 
+    private void addScoreBadge(android.widget.FrameLayout container, double score) {
+        TextView tvScore = new TextView(this);
+        tvScore.setTag(SCORE_BADGE);
+        tvScore.setText(String.valueOf((int) score));
+        tvScore.setTextColor(Color.BLUE);
+        tvScore.setBackgroundColor(Color.parseColor("#80FFFFFF")); // Semi-transparent white
+        tvScore.setTextSize(10f);
+        tvScore.setPadding(4, 0, 4, 0);
+        android.widget.FrameLayout.LayoutParams lp = new android.widget.FrameLayout.LayoutParams(
+                android.widget.FrameLayout.LayoutParams.WRAP_CONTENT,
+                android.widget.FrameLayout.LayoutParams.WRAP_CONTENT);
+        lp.gravity = Gravity.TOP | Gravity.START;
+        container.addView(tvScore, lp);
+    }
+
     private android.graphics.Bitmap getTileBitmap(Tile t) {
         if (t == null)
             return null;
@@ -466,27 +607,16 @@ public class GameActivity extends AppCompatActivity {
     }
 
     private void onTileClicked(Tile tile, View view) {
-        if (gameManager.getCurrentPlayerIndex() != 0) {
+        Decision pending = engine.getPendingDecision();
+        if (pending == null || pending.getSeat() != 0 || pending.getKind() != Decision.Kind.TURN) {
             showCenteredToast(getString(R.string.not_your_turn));
             return;
         }
 
         if (selectedTile == tile && selectedView == view) {
             // Hand Locking Rule: If locked, can only discard the LAST drawn tile
-            Player human = gameManager.getTable().getPlayer(0);
-            if (human.isHandLocked() && tile != lastDrawnTile) {
+            if (!submitAction(Action.discard(tile))) {
                 showCenteredToast("已打宝，只能打出刚摸到的牌！");
-                return;
-            }
-
-            gameManager.discardTile(0, tile);
-            selectedTile = null;
-            selectedView = null;
-            lastDrawnTile = null; // Clear highlight after discard
-
-            // Start interruption check sequence instead of direct turn advancement
-            if (!checkAllInterruptions(tile, 0, false)) {
-                handleBaoExhaustion(0);
             }
         } else {
             // Select
@@ -498,638 +628,221 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
-    private void initiateAiTurn(final int playerIndex) {
-        if (gameManager.getCurrentPlayerIndex() != playerIndex)
-            return;
-
-        // Reset interruption state for the new turn
-        interruptedTile = null;
-        lastDiscardFromPlayer = -1;
-
-        // AI Pre-Draw DaBao Check (Only if logical hand has 13 tiles)
-        Player ai = gameManager.getTable().getPlayer(playerIndex);
-        boolean alreadyTenpai = RuleValidatorHelper.isTenpai(ai.getHand(), ai.getMelds());
-        int logicalHandSize = ai.getHand().size() + (ai.getMelds().size() * 3);
-        boolean canDaBaoWait = (logicalHandSize == 13);
-
-        if (gameManager.getTable().getBaoOwnerIndex() == -1 && alreadyTenpai && canDaBaoWait) {
-            // AI DaBao Pre-Draw
-            String[] names = getResources().getStringArray(R.array.player_names);
-            showCenteredToast(names[playerIndex] + " 准备打宝...");
-            new android.os.Handler().postDelayed(() -> {
-                executeBaoDraw(playerIndex);
-            }, 1000);
-        } else if (gameManager.getTable().getBaoOwnerIndex() != -1 && !ai.hasViewedBao() && alreadyTenpai
-                && canDaBaoWait) {
-            // AI ViewBao Pre-Draw
-            gameManager.executeViewBao(playerIndex);
-            String[] names = getResources().getStringArray(R.array.player_names);
-            showCenteredToast(names[playerIndex] + " 看宝了！");
-            new android.os.Handler().postDelayed(() -> {
-                proceedWithAiTurn(playerIndex);
-            }, 1000);
-        } else {
-            proceedWithAiTurn(playerIndex);
-        }
+    // Runs the engine one step at a time; listener callbacks set the pause before the next
+    private void scheduleStep(long delayMillis) {
+        handler.removeCallbacks(stepRunnable);
+        handler.postDelayed(stepRunnable, delayMillis);
     }
 
-    private void proceedWithAiTurn(final int playerIndex) {
-        final Player ai = gameManager.getTable().getPlayer(playerIndex);
-        Tile drawn = null;
-
-        if (ai.getHand().size() < 14) {
-            if (gameManager.getTable().getWall().isEmpty()) {
-                showGameOverDialog("流局", "牌墙已空，本局结束。", null, null);
-                return;
-            }
-            drawn = gameManager.drawTile();
-            if (drawn == null) {
-                gameManager.advanceTurn();
-                refreshUI();
-                return;
-            }
-        }
-
+    private void runStep() {
+        nextStepDelay = 0;
+        boolean more = engine.step();
         refreshUI();
-        final String[] names = getResources().getStringArray(R.array.player_names);
-
-        if (RuleValidatorHelper.isHu(ai.getHand(), ai.getMelds())) {
-            announceVoice("胡");
-            showGameOverDialog("胡了！", names[playerIndex] + " 自摸胡了！", ai,
-                    drawn != null ? drawn : ai.getHand().get(ai.getHand().size() - 1));
-            return;
-        }
-
-        // Check AI An Gang
-        Tile anGangTile = RuleValidatorHelper.getAnGangTile(ai.getHand());
-        if (anGangTile != null && ai.getMelds().size() < 3) {
-            boolean allowGang = !ai.isHandLocked()
-                    || !RuleValidatorHelper.wouldGangAffectWait(ai.getHand(), ai.getMelds(), anGangTile, true);
-            if (allowGang) {
-                performAiMeld(playerIndex, anGangTile, -1, com.allentx.changchunmahjong.model.Meld.Type.AN_GANG);
-                return;
-            }
-        }
-
-        // DISCARD
-        List<Tile> allDiscards = gameManager.getTable().getDiscards();
-        List<Tile> allMelds = new ArrayList<>();
-        for (int i = 0; i < 4; i++) {
-            for (com.allentx.changchunmahjong.model.Meld m : gameManager.getTable().getPlayer(i).getMelds()) {
-                allMelds.addAll(m.getTiles());
-            }
+        if (more) {
+            scheduleStep(nextStepDelay);
         }
+    }
 
-        Tile toDiscard;
-        if (ai.isHandLocked() && drawn != null) {
-            toDiscard = drawn;
-            showCenteredToast(names[playerIndex] + " 已打宝，只能打出刚摸到的牌！");
-        } else {
-            Tile recommended = SmartAiStrategy.recommendDiscard(ai.getHand(), allDiscards, ai.getMelds(), allMelds);
-            toDiscard = (recommended != null) ? recommended : (drawn != null ? drawn : ai.getHand().get(0));
-        }
+    // Human actions; only answer the human's own decisions
+    private boolean submitAction(Action action) {
+        Decision pending = engine.getPendingDecision();
+        if (pending == null || pending.getSeat() != 0)
+            return false;
+        // A rejected action keeps its choices on screen
+        if (!submit(action))
+            return false;
+        hideActions(); // The next decision is shown by a later step
+        return true;
+    }
 
-        gameManager.discardTile(playerIndex, toDiscard);
-        String msg = String.format(getString(R.string.ai_discard), names[playerIndex], toDiscard.getChineseName());
-        showCenteredToast(msg);
+    private boolean submit(Action action) {
+        nextStepDelay = 0;
+        if (!engine.submit(action))
+            return false;
         refreshUI();
+        if (engine.canStep()) {
+            scheduleStep(nextStepDelay);
+        }
+        return true;
+    }
 
-        new android.os.Handler().postDelayed(() -> {
-            if (checkAllInterruptions(toDiscard, playerIndex, false)) {
-                return;
-            }
-
-            // No interruption, continue loop
-            gameManager.advanceTurn();
-            refreshUI();
-
-            int nextOwner = gameManager.getCurrentPlayerIndex();
-            simulateAiTurn(nextOwner);
-        }, 500);
+    // An AI discard searched on the worker thread; the engine paused for it
+    private void onAiDecisionReady(Decision decision, Action action) {
+        if (engine.getPendingDecision() == decision)
+            submit(action);
     }
 
-    private void simulateAiTurn(final int playerIndex) {
-        if (playerIndex == 0) {
-            initiatePlayerTurn();
-        } else {
-            initiateAiTurn(playerIndex);
+    @Override
+    public void onTileDrawn(int seat, Tile tile, boolean replacement) {
+        if (seat == 0) {
+            lastDrawnTile = tile;
+            String msg = String.format(getString(R.string.you_drew_tile), tile.getChineseName());
+            showCenteredToast(msg);
         }
     }
 
-    private void performAiMeld(int aiIndex, Tile tile, int fromPlayer,
-            com.allentx.changchunmahjong.model.Meld.Type type) {
-        gameManager.getTable().getDiscards().remove(tile);
-        List<Tile> meldList = new java.util.ArrayList<>();
-
-        if (type == com.allentx.changchunmahjong.model.Meld.Type.CHI) {
-            meldList.add(tile);
-            List<Tile> hand = gameManager.getTable().getPlayer(aiIndex).getHand();
-            if (has(hand, tile.getSuit(), tile.getRank() - 1) && has(hand, tile.getSuit(), tile.getRank() - 2)) {
-                meldList.add(removeAndGet(hand, tile.getSuit(), tile.getRank() - 1));
-                meldList.add(removeAndGet(hand, tile.getSuit(), tile.getRank() - 2));
-            } else if (has(hand, tile.getSuit(), tile.getRank() - 1) && has(hand, tile.getSuit(), tile.getRank() + 1)) {
-                meldList.add(removeAndGet(hand, tile.getSuit(), tile.getRank() - 1));
-                meldList.add(removeAndGet(hand, tile.getSuit(), tile.getRank() + 1));
-            } else {
-                meldList.add(removeAndGet(hand, tile.getSuit(), tile.getRank() + 1));
-                meldList.add(removeAndGet(hand, tile.getSuit(), tile.getRank() + 2));
-            }
+    @Override
+    public void onDiscard(int seat, Tile tile) {
+        if (seat == 0) {
+            selectedTile = null;
+            selectedView = null;
+            lastDrawnTile = null; // Clear highlight after discard
         } else {
-            // PENG, MING_GANG, or AN_GANG
-            int count = (type == com.allentx.changchunmahjong.model.Meld.Type.MING_GANG
-                    || type == com.allentx.changchunmahjong.model.Meld.Type.AN_GANG) ? 4 : 3;
-            for (int i = 0; i < count; i++)
-                meldList.add(tile);
-
-            int toRemove = (type == com.allentx.changchunmahjong.model.Meld.Type.AN_GANG) ? 4 : (count - 1);
-            for (int i = 0; i < toRemove; i++) {
-                gameManager.getTable().getPlayer(aiIndex).removeTile(tile);
-            }
+            String[] names = getResources().getStringArray(R.array.player_names);
+            showCenteredToast(String.format(getString(R.string.ai_discard), names[seat], tile.getChineseName()));
+            nextStepDelay = 500;
         }
+    }
 
-        com.allentx.changchunmahjong.model.Meld meld = new com.allentx.changchunmahjong.model.Meld(type, meldList,
-                fromPlayer);
-        gameManager.getTable().getPlayer(aiIndex).addMeld(meld);
-
-        String[] names = getResources().getStringArray(R.array.player_names);
+    @Override
+    public void onMeld(int seat, Meld meld) {
         String actionName = "鸣";
-        if (type == com.allentx.changchunmahjong.model.Meld.Type.PENG)
+        if (meld.getType() == Meld.Type.PENG)
             actionName = "碰";
-        else if (type == com.allentx.changchunmahjong.model.Meld.Type.MING_GANG
-                || type == com.allentx.changchunmahjong.model.Meld.Type.AN_GANG)
+        else if (meld.getType() == Meld.Type.MING_GANG || meld.getType() == Meld.Type.AN_GANG)
             actionName = "杠";
-        else if (type == com.allentx.changchunmahjong.model.Meld.Type.CHI)
+        else if (meld.getType() == Meld.Type.CHI)
             actionName = "吃";
 
-        showCenteredToast(names[aiIndex] + " " + actionName + "！");
-        announceVoice(actionName);
-
-        gameManager.setCurrentPlayerIndex(aiIndex);
-
-        // If Gang, AI must draw ANOTHER tile first
-        if (type == com.allentx.changchunmahjong.model.Meld.Type.MING_GANG
-                || type == com.allentx.changchunmahjong.model.Meld.Type.AN_GANG) {
-            gameManager.drawTile(); // Add to hand
+        if (seat == 0) {
+            if (meld.getType() == Meld.Type.AN_GANG)
+                showCenteredToast("暗杠！请补牌。");
+            else if (meld.getType() == Meld.Type.MING_GANG)
+                showCenteredToast("杠！请补牌。");
+            else
+                showCenteredToast(actionName + "！请打出一张牌。");
+        } else {
+            String[] names = getResources().getStringArray(R.array.player_names);
+            showCenteredToast(names[seat] + " " + actionName + "！");
         }
-
-        refreshUI();
-
-        // AI must discard after meld
-        new android.os.Handler().postDelayed(() -> {
-            Player p = gameManager.getTable().getPlayer(aiIndex);
-            List<Tile> hand = p.getHand();
-            if (!hand.isEmpty()) {
-                // 1. Collect all "visible" tiles
-                List<Tile> allDiscards = gameManager.getTable().getDiscards();
-                List<Tile> allMeldsTiles = new ArrayList<>();
-                for (int i = 0; i < 4; i++) {
-                    for (com.allentx.changchunmahjong.model.Meld m : gameManager.getTable().getPlayer(i).getMelds()) {
-                        allMeldsTiles.addAll(m.getTiles());
-                    }
-                }
-
-                // 2. Use Smart Strategy
-                Tile recommended = SmartAiStrategy.recommendDiscard(hand, allDiscards, p.getMelds(), allMeldsTiles);
-                final Tile toDiscard = (recommended != null) ? recommended : hand.get(0);
-
-                gameManager.discardTile(aiIndex, toDiscard);
-                showCenteredToast(names[aiIndex] + " 打出 " + toDiscard.getChineseName());
-
-                refreshUI();
-                new android.os.Handler().postDelayed(() -> {
-                    if (!checkAllInterruptions(toDiscard, aiIndex, false)) {
-                        handleBaoExhaustion(aiIndex);
-                    }
-                }, 500);
-            }
-        }, 1000);
+        announceVoice(actionName);
+        nextStepDelay = 1000;
     }
 
-    private boolean checkAllInterruptions(Tile discarded, int fromPlayer, boolean skipHuman) {
-        lastDiscardFromPlayer = fromPlayer;
-        interruptedTile = discarded;
-        String[] names = getResources().getStringArray(R.array.player_names);
-
-        // --- Priority LEVEL 1: HU (Win) ---
-        for (int i = 1; i <= 3; i++) {
-            int t = (fromPlayer + i) % 4; // Check in sequence: next, next+1, next+2
-            if (t == 0) {
-                if (skipHuman)
-                    continue;
-                Player human = gameManager.getTable().getPlayer(0);
-                List<Tile> hand = new java.util.ArrayList<>(human.getHand());
-                hand.add(discarded);
-                if (RuleValidatorHelper.isHu(hand, human.getMelds())) {
-                    boolean canChi = (fromPlayer == 1) && RuleValidatorHelper.canChi(human.getHand(), discarded);
-                    boolean canPeng = RuleValidatorHelper.canPeng(human.getHand(), discarded);
-                    boolean canGang = RuleValidatorHelper.canMingGang(human.getHand(), discarded);
-                    showActions(canChi, canPeng, canGang, true);
-                    return true;
-                }
-            } else {
-                Player ai = gameManager.getTable().getPlayer(t);
-                List<Tile> aiHand = new java.util.ArrayList<>(ai.getHand());
-                aiHand.add(discarded);
-                if (RuleValidatorHelper.isHu(aiHand, ai.getMelds())) {
-                    announceVoice("胡");
-                    showGameOverDialog("胡了！",
-                            names[t] + " 胡了 " + names[fromPlayer] + " 的一张 " + discarded.getChineseName() + "！",
-                            ai, discarded);
-                    return true;
-                }
-            }
+    @Override
+    public void onDaBao(int seat, Tile bao) {
+        if (seat == 0) {
+            showCenteredToast("你摸到了宝牌：" + bao.getChineseName());
+        } else {
+            String[] names = getResources().getStringArray(R.array.player_names);
+            showCenteredToast(names[seat] + " 打宝了！");
         }
+        // Draw continues after a pause
+        nextStepDelay = 1000;
+    }
 
-        // --- Priority LEVEL 2: PENG / GANG ---
-        for (int i = 1; i <= 3; i++) {
-            int t = (fromPlayer + i) % 4; // Check in sequence: next, next+1, next+2
-            if (t == 0) {
-                if (skipHuman)
-                    continue;
-                Player human = gameManager.getTable().getPlayer(0);
-                if (human.getMelds().size() < 3) {
-                    boolean canPeng = !human.isHandLocked() && RuleValidatorHelper.canPeng(human.getHand(), discarded);
-                    boolean canGang = RuleValidatorHelper.canMingGang(human.getHand(), discarded);
-                    if (human.isHandLocked() && canGang) {
-                        // Locked player can only Gang if it doesn't change their wait set
-                        canGang = !RuleValidatorHelper.wouldGangAffectWait(human.getHand(), human.getMelds(), discarded,
-                                false);
-                    }
-
-                    if (canPeng || canGang) {
-                        boolean canChi = !human.isHandLocked() && (fromPlayer == 1)
-                                && RuleValidatorHelper.canChi(human.getHand(), discarded);
-                        showActions(canChi, canPeng, canGang, false);
-                        return true;
-                    }
-                }
-            } else {
-                Player ai = gameManager.getTable().getPlayer(t);
-                if (ai.getMelds().size() < 3) {
-                    if (RuleValidatorHelper.canMingGang(ai.getHand(), discarded)) {
-                        boolean allowGang = !ai.isHandLocked() || !RuleValidatorHelper.wouldGangAffectWait(ai.getHand(),
-                                ai.getMelds(), discarded, false);
-                        if (allowGang) {
-                            performAiMeld(t, discarded, fromPlayer,
-                                    com.allentx.changchunmahjong.model.Meld.Type.MING_GANG);
-                            return true;
-                        }
-                    }
-                    if (!ai.isHandLocked() && RuleValidatorHelper.canPeng(ai.getHand(), discarded)) {
-                        performAiMeld(t, discarded, fromPlayer, com.allentx.changchunmahjong.model.Meld.Type.PENG);
-                        return true;
-                    }
-                }
-            }
+    @Override
+    public void onViewBao(int seat) {
+        if (seat == 0) {
+            Tile bao = gameManager.getTable().getBaoTile();
+            showCenteredToast("看宝！宝牌是：" + (bao != null ? bao.getChineseName() : "未知"));
+        } else {
+            String[] names = getResources().getStringArray(R.array.player_names);
+            showCenteredToast(names[seat] + " 看宝了！");
         }
+        nextStepDelay = 1000;
+    }
 
-        // --- Priority LEVEL 3: CHI ---
-        int nextIndex = (fromPlayer + 1) % 4; // Counter-clockwise next player can Chi
-        if (nextIndex == 0) {
-            if (!skipHuman) {
-                Player human = gameManager.getTable().getPlayer(0);
-                if (!human.isHandLocked() && human.getMelds().size() < 3
-                        && RuleValidatorHelper.canChi(human.getHand(), discarded)) {
-                    showActions(true, false, false, false);
-                    return true;
-                }
-            }
+    @Override
+    public void onBaoReplaced(int seat, Tile bao) {
+        if (seat == 0) {
+            showCenteredToast("你重新挑选了宝牌：" + bao.getChineseName());
         } else {
-            Player ai = gameManager.getTable().getPlayer(nextIndex);
-            if (!ai.isHandLocked() && ai.getMelds().size() < 3 && RuleValidatorHelper.canChi(ai.getHand(), discarded)) {
-                performAiMeld(nextIndex, discarded, fromPlayer, com.allentx.changchunmahjong.model.Meld.Type.CHI);
-                return true;
-            }
+            String[] names = getResources().getStringArray(R.array.player_names);
+            showCenteredToast(names[seat] + " 重新挑选了宝牌！");
         }
-
-        return false;
+        nextStepDelay = 1500;
     }
 
-    private void initiatePlayerTurn() {
-        isPreDrawPhase = false;
-        Player human = gameManager.getTable().getPlayer(0);
-
-        // Pre-Draw DaBao Check (Only if logical hand has 13 tiles)
-        boolean alreadyTenpai = RuleValidatorHelper.isTenpai(human.getHand(), human.getMelds());
-        int logicalHandSize = human.getHand().size() + (human.getMelds().size() * 3);
-        boolean canDaBaoWait = (logicalHandSize == 13);
-
-        if (alreadyTenpai && canDaBaoWait) {
-            boolean canDaBao = (gameManager.getTable().getBaoOwnerIndex() == -1);
-            boolean canViewBao = (gameManager.getTable().getBaoOwnerIndex() != -1) && (!human.hasViewedBao());
-
-            if (canDaBao || canViewBao) {
-                isPreDrawPhase = true;
-                showActions(false, false, false, false, canDaBao, canViewBao);
+    @Override
+    public void onDecisionRequired(Decision decision) {
+        if (decision.getSeat() != 0)
+            return; // An AI seat waiting for its search
+        switch (decision.getKind()) {
+            case PRE_DRAW:
+                showActions(false, false, false, false, decision.can(Action.Type.DA_BAO),
+                        decision.can(Action.Type.VIEW_BAO));
                 showCenteredToast("轮到你了！打宝或是摸牌？");
-                return;
-            }
+                break;
+            case CLAIM:
+                showActions(decision.can(Action.Type.CHI), decision.can(Action.Type.PENG),
+                        decision.can(Action.Type.MING_GANG), decision.can(Action.Type.HU));
+                break;
+            case TURN:
+                // Discarding needs no button; offer self-draw Hu or An Gang
+                if (decision.can(Action.Type.HU) || decision.can(Action.Type.AN_GANG)) {
+                    showActions(false, false, decision.can(Action.Type.AN_GANG), decision.can(Action.Type.HU),
+                            false, false);
+                }
+                break;
         }
-
-        drawForPlayer();
     }
 
-    private void drawForPlayer() {
-        interruptedTile = null;
-        lastDiscardFromPlayer = -1;
-        isPreDrawPhase = false;
-
-        // Wall check
-        if (gameManager.getTable().getWall().isEmpty()) {
+    @Override
+    public void onHandEnded(HandResult result) {
+        handResult = result;
+        hideActions();
+        if (result.isDraw()) {
             showGameOverDialog("流局", "牌墙已空，本局结束。", null, null);
             return;
         }
 
-        Player human = gameManager.getTable().getPlayer(0);
-        Tile playerDrawn = null;
-        if (human.getHand().size() < 14) {
-            playerDrawn = gameManager.drawTile();
-            lastDrawnTile = playerDrawn;
+        String[] names = getResources().getStringArray(R.array.player_names);
+        int winnerIndex = result.getWinner();
+        Player winner = gameManager.getTable().getPlayer(winnerIndex);
+        Tile winningTile = result.getWinningTile();
+        announceVoice("胡");
+        if (winnerIndex == 0) {
+            showGameOverDialog("🎉 你赢了！ 🎉", "恭喜你胡牌了！", winner, winningTile);
+        } else if (result.isSelfDraw()) {
+            showGameOverDialog("胡了！", names[winnerIndex] + " 自摸胡了！", winner, winningTile);
         } else {
-            // Already 14, skip draw (happens if Banker turn start bypasses initiation)
-            playerDrawn = null;
-        }
-
-        if (playerDrawn != null) {
-            String msg = String.format(getString(R.string.you_drew_tile), playerDrawn.getChineseName());
-            showCenteredToast(msg);
-
-            // Check self-draw Hu or An Gang
-            boolean canHu = RuleValidatorHelper.isHu(gameManager.getTable().getPlayer(0).getHand(),
-                    gameManager.getTable().getPlayer(0).getMelds());
-
-            // DaBao extensions: if drawing Bao, also a win
-            Tile bao = gameManager.getTable().getBaoTile();
-            if (bao != null && playerDrawn.equals(bao)) {
-                if (gameManager.getTable().getBaoOwnerIndex() == 0
-                        || gameManager.getTable().getPlayer(0).hasViewedBao()) {
-                    canHu = true;
-                }
-            }
-
-            boolean canAnGang = RuleValidatorHelper.canAnGang(gameManager.getTable().getPlayer(0).getHand());
-
-            // During-turn DaBao check removed from here, only in initiatePlayerTurn now.
-            // But we still need to show actions for Hu or Gang.
-            if (canHu || canAnGang) {
-                showActions(false, false, canAnGang, canHu, false, false);
-            }
+            showGameOverDialog("胡了！", names[winnerIndex] + " 胡了 " + names[result.getDiscarder()] + " 的一张 "
+                    + winningTile.getChineseName() + "！", winner, winningTile);
         }
-        refreshUI();
     }
 
     private void executeChi() {
-        List<Tile> discards = gameManager.getTable().getDiscards();
-        if (discards.isEmpty())
-            return;
-        Tile t = discards.remove(discards.size() - 1);
-
-        List<Tile> hand = gameManager.getTable().getPlayer(0).getHand();
-        List<Tile> meldList = new java.util.ArrayList<>();
-        meldList.add(t);
-
-        // Find which neighbors to remove
-        if (has(hand, t.getSuit(), t.getRank() - 1) && has(hand, t.getSuit(), t.getRank() - 2)) {
-            meldList.add(removeAndGet(hand, t.getSuit(), t.getRank() - 1));
-            meldList.add(removeAndGet(hand, t.getSuit(), t.getRank() - 2));
-        } else if (has(hand, t.getSuit(), t.getRank() - 1) && has(hand, t.getSuit(), t.getRank() + 1)) {
-            meldList.add(removeAndGet(hand, t.getSuit(), t.getRank() - 1));
-            meldList.add(removeAndGet(hand, t.getSuit(), t.getRank() + 1));
-        } else { // (has(hand, t.getSuit(), t.getRank() + 1) && has(hand, t.getSuit(),
-                 // t.getRank() + 2))
-            meldList.add(removeAndGet(hand, t.getSuit(), t.getRank() + 1));
-            meldList.add(removeAndGet(hand, t.getSuit(), t.getRank() + 2));
-        }
-
-        com.allentx.changchunmahjong.model.Meld meld = new com.allentx.changchunmahjong.model.Meld(
-                com.allentx.changchunmahjong.model.Meld.Type.CHI, meldList, lastDiscardFromPlayer);
-        gameManager.getTable().getPlayer(0).addMeld(meld);
-
-        gameManager.setCurrentPlayerIndex(0);
-        hideActions();
-        refreshUI();
-        showCenteredToast("吃！请打出一张牌。");
-        announceVoice("吃");
+        submitAction(Action.of(Action.Type.CHI));
     }
 
     private void executePeng() {
-        List<Tile> discards = gameManager.getTable().getDiscards();
-        if (discards.isEmpty())
-            return;
-        Tile t = discards.remove(discards.size() - 1);
-
-        List<Tile> meldList = new java.util.ArrayList<>();
-        meldList.add(t);
-        meldList.add(t);
-        meldList.add(t);
-
-        gameManager.getTable().getPlayer(0).removeTile(t);
-        gameManager.getTable().getPlayer(0).removeTile(t);
-
-        com.allentx.changchunmahjong.model.Meld meld = new com.allentx.changchunmahjong.model.Meld(
-                com.allentx.changchunmahjong.model.Meld.Type.PENG, meldList, lastDiscardFromPlayer);
-        gameManager.getTable().getPlayer(0).addMeld(meld);
-
-        gameManager.setCurrentPlayerIndex(0);
-        hideActions();
-        refreshUI();
-        showCenteredToast("碰！请打出一张牌。");
-        announceVoice("碰");
+        submitAction(Action.of(Action.Type.PENG));
     }
 
     private void executeGang() {
-        Tile anGangTile = RuleValidatorHelper.getAnGangTile(gameManager.getTable().getPlayer(0).getHand());
-
-        if (anGangTile != null && (interruptedTile == null
-                || !RuleValidatorHelper.canMingGang(gameManager.getTable().getPlayer(0).getHand(), interruptedTile))) {
-            // An Gang case
-            Player human = gameManager.getTable().getPlayer(0);
-            if (human.isHandLocked()
-                    && RuleValidatorHelper.wouldGangAffectWait(human.getHand(), human.getMelds(), anGangTile, true)) {
-                showCenteredToast("已打宝/看宝，此杠会改变听牌，不允许！");
-                return;
-            }
-            List<Tile> meldList = new java.util.ArrayList<>();
-            for (int i = 0; i < 4; i++)
-                meldList.add(anGangTile);
-            for (int i = 0; i < 4; i++)
-                gameManager.getTable().getPlayer(0).removeTile(anGangTile);
-
-            com.allentx.changchunmahjong.model.Meld meld = new com.allentx.changchunmahjong.model.Meld(
-                    com.allentx.changchunmahjong.model.Meld.Type.AN_GANG, meldList, -1);
-            gameManager.getTable().getPlayer(0).addMeld(meld);
-
-            showCenteredToast("暗杠！请补牌。");
-        } else {
-            // Ming Gang case (from discard)
-            List<Tile> discards = gameManager.getTable().getDiscards();
-            if (discards.isEmpty())
-                return;
-            Tile t = discards.remove(discards.size() - 1);
-
-            List<Tile> meldList = new java.util.ArrayList<>();
-            Player human = gameManager.getTable().getPlayer(0);
-            if (human.isHandLocked()
-                    && RuleValidatorHelper.wouldGangAffectWait(human.getHand(), human.getMelds(), t, false)) {
-                showCenteredToast("已打宝/看宝，此杠会改变听牌，不允许！");
-                // Put back tile to discards since we removed it
-                gameManager.getTable().getDiscards().add(t);
-                return;
-            }
-
-            for (int i = 0; i < 4; i++)
-                meldList.add(t);
-
-            for (int i = 0; i < 3; i++)
-                gameManager.getTable().getPlayer(0).removeTile(t);
-
-            com.allentx.changchunmahjong.model.Meld meld = new com.allentx.changchunmahjong.model.Meld(
-                    com.allentx.changchunmahjong.model.Meld.Type.MING_GANG, meldList, lastDiscardFromPlayer);
-            gameManager.getTable().getPlayer(0).addMeld(meld);
-            showCenteredToast("杠！请补牌。");
-        }
-
-        gameManager.setCurrentPlayerIndex(0);
-        hideActions();
-        refreshUI();
-        announceVoice("杠");
-
-        // DRAW REPLACEMENT TILE
-        new android.os.Handler().postDelayed(this::drawForPlayer, 1000);
+        Decision pending = engine.getPendingDecision();
+        if (pending == null)
+            return;
+        // Ming Gang on a discard, otherwise An Gang from hand
+        submitAction(Action.of(pending.getKind() == Decision.Kind.CLAIM ? Action.Type.MING_GANG
+                : Action.Type.AN_GANG));
     }
 
     private void executePass() {
         hideActions();
-        if (isPreDrawPhase) {
-            drawForPlayer();
-        } else {
-            // Normal pass (e.g. human skips Peng/Gang/Chi)
-            if (gameManager.getCurrentPlayerIndex() == 0) {
-                // Self-draw case: Just hide actions and wait for human to discard.
-                refreshUI();
-                return;
-            }
-
-            // Interruption case: Move to next priority (AI)
-            if (interruptedTile != null) {
-                // Check if any AI wants it after human passed
-                if (checkAllInterruptions(interruptedTile, lastDiscardFromPlayer, true)) {
-                    return;
-                }
-            }
-
-            // Resume AI cycle
-            handleBaoExhaustion(lastDiscardFromPlayer);
-        }
-    }
-
-    private boolean has(List<Tile> hand, Tile.Suit suit, int rank) {
-        for (Tile t : hand)
-            if (t.getSuit() == suit && t.getRank() == rank)
-                return true;
-        return false;
-    }
-
-    private Tile removeAndGet(List<Tile> hand, Tile.Suit suit, int rank) {
-        for (int i = 0; i < hand.size(); i++) {
-            Tile t = hand.get(i);
-            if (t.getSuit() == suit && t.getRank() == rank) {
-                return hand.remove(i);
-            }
+        Decision pending = engine.getPendingDecision();
+        if (pending == null || pending.getSeat() != 0)
+            return;
+        if (pending.getKind() == Decision.Kind.TURN) {
+            // Self-draw case: Just hide actions and wait for human to discard.
+            refreshUI();
+            return;
         }
-        return null;
+        // Pre-draw: draw normally. Claim: offer the discard to the next priority (AI)
+        submitAction(Action.of(Action.Type.PASS));
     }
 
     private void executeHu() {
-        hideActions();
-        announceVoice("胡");
-        showGameOverDialog("🎉 你赢了！ 🎉", "恭喜你胡牌了！", gameManager.getTable().getPlayer(0),
-                interruptedTile != null ? interruptedTile : lastDrawnTile);
+        submitAction(Action.of(Action.Type.HU));
     }
 
     private void executeDaBao() {
-        hideActions();
-        executeBaoDraw(0);
-    }
-
-    private void executeBaoDraw(int playerIndex) {
-        Tile bao = gameManager.executeDaBao(playerIndex);
-        if (bao != null) {
-            if (playerIndex == 0) {
-                showCenteredToast("你摸到了宝牌：" + bao.getChineseName());
-                refreshUI();
-                // After DaBao, continue to regular draw
-                new android.os.Handler().postDelayed(this::drawForPlayer, 1000);
-            } else {
-                refreshUI();
-                // AI also continues to its standard turn after a Bao draw
-                new android.os.Handler().postDelayed(() -> proceedWithAiTurn(playerIndex), 1000);
-            }
-        }
-    }
-
-    private void handleBaoExhaustion(int lastPlayerIndex) {
-        if (gameManager.isBaoExhausted()) {
-            int replacer = gameManager.getNextEligibleBaoPlayer(lastPlayerIndex + 1);
-            if (replacer != -1) {
-                String[] names = getResources().getStringArray(R.array.player_names);
-                String msg = names[replacer] + " 正在重新挑选宝牌...";
-                showCenteredToast(msg);
-
-                new android.os.Handler().postDelayed(() -> executeBaoReplacement(replacer), 1500);
-                return;
-            }
-        }
-
-        // No exhaustion or no eligible replacer, proceed with turn
-        gameManager.advanceTurn();
-        refreshUI();
-        int next = gameManager.getCurrentPlayerIndex();
-        simulateAiTurn(next);
-    }
-
-    private void executeBaoReplacement(int playerIndex) {
-        Tile newBao = gameManager.replaceBao(playerIndex);
-        if (newBao != null) {
-            String[] names = getResources().getStringArray(R.array.player_names);
-            if (playerIndex == 0) {
-                showCenteredToast("你重新挑选了宝牌：" + newBao.getChineseName());
-            } else {
-                showCenteredToast(names[playerIndex] + " 重新挑选了宝牌！");
-            }
-
-            // Check if immediate Hu for replacer (rare but possible)
-            Player replacer = gameManager.getTable().getPlayer(playerIndex);
-            if (RuleValidatorHelper.isHu(replacer.getHand(), replacer.getMelds())) {
-                announceVoice("胡");
-                showGameOverDialog("打宝胡！", names[playerIndex] + " 换宝即胡！", replacer, newBao);
-                return;
-            }
-
-            refreshUI();
-        }
-
-        // After replacement, advance turn as if nothing happened (or do we proceed from
-        // replacer?)
-        // The user said: "whoever's the next player after the 4 copies become
-        // visible... pick Another Bao"
-        // Then the game continues.
-        gameManager.advanceTurn();
-        refreshUI();
-        int next = gameManager.getCurrentPlayerIndex();
-        simulateAiTurn(next);
+        submitAction(Action.of(Action.Type.DA_BAO));
     }
 
     private void executeViewBao() {
-        gameManager.executeViewBao(0);
-        Tile bao = gameManager.getTable().getBaoTile();
-        showCenteredToast("看宝！宝牌是：" + (bao != null ? bao.getChineseName() : "未知"));
-        hideActions();
-        refreshUI();
-
-        if (isPreDrawPhase) {
-            new android.os.Handler().postDelayed(this::drawForPlayer, 1000);
-        }
+        submitAction(Action.of(Action.Type.VIEW_BAO));
     }
 
     private void showGameOverDialog(String title, String message, com.allentx.changchunmahjong.model.Player winner,
@@ -1140,7 +853,7 @@ public class GameActivity extends AppCompatActivity {
             new androidx.appcompat.app.AlertDialog.Builder(this)
                     .setTitle(title)
                     .setMessage(message)
-                    .setPositiveButton("再来一局", (dialog, which) -> checkAndExecuteRoundEnd(null))
+                    .setPositiveButton("再来一局", (dialog, which) -> checkAndExecuteRoundEnd())
                     .setNegativeButton("退出", (dialog, which) -> finish())
                     .setCancelable(false)
                     .show();
@@ -1229,23 +942,8 @@ public class GameActivity extends AppCompatActivity {
     }
 
     private void showScoreDetailsDialog(Player winner, Tile winningTile, String title) {
-        boolean isSelfDraw = (interruptedTile == null); // If null, means self-drawn
-        int discarder = isSelfDraw ? -1 : lastDiscardFromPlayer;
-
-        List<Player> allPlayers = new java.util.ArrayList<>();
-        for (int i = 0; i < 4; i++) {
-            allPlayers.add(gameManager.getTable().getPlayer(i));
-        }
-
-        com.allentx.changchunmahjong.logic.ScoreCalculator.ScoreResult scoreResult = com.allentx.changchunmahjong.logic.ScoreCalculator
-                .calculate(
-                        winner, winningTile, isSelfDraw,
-                        currentBankerIndex, discarder, allPlayers);
-
-        // Apply Scores
-        for (Map.Entry<Integer, Integer> entry : scoreResult.scoreChanges.entrySet()) {
-            gameManager.getTable().getPlayer(entry.getKey()).changeScore(entry.getValue());
-        }
+        // Already applied to the players by the engine
+        com.allentx.changchunmahjong.logic.ScoreCalculator.ScoreResult scoreResult = handResult.getScore();
         refreshUI();
 
         // Build Scoreboard Message
@@ -1265,23 +963,15 @@ public class GameActivity extends AppCompatActivity {
         new androidx.appcompat.app.AlertDialog.Builder(this)
                 .setTitle(title + " (" + scoreResult.scoreChanges.get(winner.getSeatIndex()) + "分)")
                 .setMessage(sb.toString())
-                .setPositiveButton("再来一局", (dialog, which) -> checkAndExecuteRoundEnd(winner))
+                .setPositiveButton("再来一局", (dialog, which) -> checkAndExecuteRoundEnd())
                 .setNegativeButton("退出", (dialog, which) -> finish())
                 .setCancelable(false)
                 .show();
     }
 
-    private void checkAndExecuteRoundEnd(Player winner) {
+    private void checkAndExecuteRoundEnd() {
         // Check Final Game Over (Any player < 0)
-        boolean isFinalOver = false;
-        for (int i = 0; i < 4; i++) {
-            if (gameManager.getTable().getPlayer(i).getScore() < 0) {
-                isFinalOver = true;
-                break;
-            }
-        }
-
-        if (isFinalOver) {
+        if (handResult.isGameOver()) {
             new androidx.appcompat.app.AlertDialog.Builder(this)
                     .setTitle("游戏结束")
                     .setMessage("有玩家分数归零，游戏彻底结束。")
@@ -1291,18 +981,15 @@ public class GameActivity extends AppCompatActivity {
             return;
         }
 
-        // Banker Rotation Logic (Refined)
-        if (winner != null && winner.getSeatIndex() != currentBankerIndex) {
-            // Rotation Order: 0 (East) -> 1 (North) -> 2 (West) -> 3 (South) -> 0
-            currentBankerIndex = (currentBankerIndex + 1) % 4;
-        }
+        // Banker stays on a banker win or a draw, otherwise rotates
+        currentBankerIndex = handResult.getNextBanker();
 
         startNewHand();
     }
 
     private void checkHu() {
         Player human = gameManager.getTable().getPlayer(0);
-        boolean hu = RuleValidatorHelper.isHu(human.getHand(), human.getMelds());
+        boolean hu = RuleValidatorHelper.isHu(human.getSummary());
         showCenteredToast(hu ? "胡了！你赢了！" : getString(R.string.not_hu_yet));
     }
 }
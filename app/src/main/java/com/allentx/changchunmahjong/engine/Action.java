@@ -0,0 +1,55 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.model.Tile;
+
+/**
+ * A seat's answer to a {@link Decision}. Only DISCARD carries a tile; the
+ * tile of every other action follows from the decision itself.
+ */
+public final class Action {
+    public enum Type {
+        DISCARD,
+        HU,
+        CHI,
+        PENG,
+        MING_GANG,
+        AN_GANG,
+        DA_BAO,
+        VIEW_BAO,
+        PASS // Decline a claim, or draw without DaBao/ViewBao
+    }
+
+    private static final Action[] SIMPLE = new Action[Type.values().length];
+
+    static {
+        for (Type type : Type.values())
+            SIMPLE[type.ordinal()] = new Action(type, null);
+    }
+
+    private final Type type;
+    private final Tile tile;
+
+    private Action(Type type, Tile tile) {
+        this.type = type;
+        this.tile = tile;
+    }
+
+    public static Action of(Type type) {
+        if (type == Type.DISCARD)
+            throw new IllegalArgumentException("DISCARD needs a tile");
+        return SIMPLE[type.ordinal()];
+    }
+
+    public static Action discard(Tile tile) {
+        return new Action(Type.DISCARD, tile);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // The tile to discard, null for other actions
+    public Tile getTile() {
+        return tile;
+    }
+}
@@ -0,0 +1,68 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.logic.KeepValueEvaluator;
+import com.allentx.changchunmahjong.logic.SmartAiStrategy;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
+
+/**
+ * Computer seat: always wins when it can, Gangs over Pengs over Chis, takes
+ * DaBao / ViewBao whenever Tenpai and discards with {@link SmartAiStrategy}.
+ */
+public class AiController implements SeatController {
+    private final RandomSource random;
+    private final KeepValueEvaluator evaluator = new KeepValueEvaluator();
+
+    public AiController() {
+        this(RandomSource.create());
+    }
+
+    /**
+     * @param random Tie-break source for discards; seed it for reproducible play
+     */
+    public AiController(RandomSource random) {
+        this.random = random;
+    }
+
+    @Override
+    public Action decide(GameEngine engine, Decision decision) {
+        switch (decision.getKind()) {
+            case PRE_DRAW:
+                if (decision.can(Action.Type.DA_BAO))
+                    return Action.of(Action.Type.DA_BAO);
+                if (decision.can(Action.Type.VIEW_BAO))
+                    return Action.of(Action.Type.VIEW_BAO);
+                return Action.of(Action.Type.PASS);
+            case CLAIM:
+                if (decision.can(Action.Type.HU))
+                    return Action.of(Action.Type.HU);
+                if (decision.can(Action.Type.MING_GANG))
+                    return Action.of(Action.Type.MING_GANG);
+                if (decision.can(Action.Type.PENG))
+                    return Action.of(Action.Type.PENG);
+                if (decision.can(Action.Type.CHI))
+                    return Action.of(Action.Type.CHI);
+                return Action.of(Action.Type.PASS);
+            default:
+                if (decision.can(Action.Type.HU))
+                    return Action.of(Action.Type.HU);
+                if (decision.can(Action.Type.AN_GANG))
+                    return Action.of(Action.Type.AN_GANG);
+                return Action.discard(chooseDiscard(engine.getTable(), decision));
+        }
+    }
+
+    protected Tile chooseDiscard(Table table, Decision decision) {
+        if (decision.getRequiredDiscard() != null)
+            return decision.getRequiredDiscard();
+
+        Player ai = table.getPlayer(decision.getSeat());
+        Tile recommended = SmartAiStrategy.recommendDiscard(ai.getHand(), ai.getMelds(),
+                table.getVisibleTiles().copyCounts(), random, evaluator);
+        if (recommended != null)
+            return recommended;
+        return decision.getTile() != null ? decision.getTile() : ai.getHand().get(0);
+    }
+}
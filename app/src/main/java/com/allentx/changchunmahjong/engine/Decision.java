@@ -0,0 +1,82 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A choice the engine needs from one seat, with the actions the rules allow.
+ */
+public final class Decision {
+    public enum Kind {
+        PRE_DRAW, // Tenpai with 13 tiles before drawing: DaBao / ViewBao / PASS
+        TURN, // Holding 14: HU / AN_GANG / DISCARD
+        CLAIM // Someone discarded: HU / PENG / MING_GANG / CHI / PASS
+    }
+
+    private final int seat;
+    private final Kind kind;
+    private final Tile tile;
+    private final int fromPlayer;
+    private final Set<Action.Type> options;
+    private final Tile requiredDiscard;
+
+    Decision(int seat, Kind kind, Tile tile, int fromPlayer, EnumSet<Action.Type> options,
+            Tile requiredDiscard) {
+        this.seat = seat;
+        this.kind = kind;
+        this.tile = tile;
+        this.fromPlayer = fromPlayer;
+        this.options = Collections.unmodifiableSet(options);
+        this.requiredDiscard = requiredDiscard;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * TURN: the tile just drawn (null after a Chi/Peng or on the banker's first
+     * turn). CLAIM: the discarded tile. PRE_DRAW: null.
+     */
+    public Tile getTile() {
+        return tile;
+    }
+
+    // Seat that discarded the claimed tile, -1 unless CLAIM
+    public int getFromPlayer() {
+        return fromPlayer;
+    }
+
+    public Set<Action.Type> getOptions() {
+        return options;
+    }
+
+    public boolean can(Action.Type type) {
+        return options.contains(type);
+    }
+
+    /**
+     * For a locked hand (DaBao / ViewBao) the only tile it may discard, else null.
+     */
+    public Tile getRequiredDiscard() {
+        return requiredDiscard;
+    }
+
+    boolean allows(Action action, Player player) {
+        if (!can(action.getType()))
+            return false;
+        if (action.getType() != Action.Type.DISCARD)
+            return true;
+        Tile t = action.getTile();
+        if (t == null || player.getSummary().getCount(t) == 0)
+            return false;
+        return requiredDiscard == null || t == requiredDiscard;
+    }
+}
@@ -0,0 +1,36 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.logic.ExpectimaxStrategy;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
+
+/**
+ * {@link AiController} that picks discards with {@link ExpectimaxStrategy}
+ * within a fixed time per discard. Everything else is decided as by
+ * AiController.
+ */
+public class ExpectimaxAiController extends AiController {
+    private final ExpectimaxStrategy strategy = new ExpectimaxStrategy();
+    private final long budgetNanos;
+
+    /**
+     * @param budgetMillis Search time per discard
+     */
+    public ExpectimaxAiController(RandomSource random, long budgetMillis) {
+        super(random);
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    @Override
+    protected Tile chooseDiscard(Table table, Decision decision) {
+        if (decision.getRequiredDiscard() != null)
+            return decision.getRequiredDiscard();
+
+        Player ai = table.getPlayer(decision.getSeat());
+        Tile recommended = strategy.recommendDiscard(ai.getHand(), ai.getMelds(),
+                table.getVisibleTiles().copyCounts(), budgetNanos);
+        return recommended != null ? recommended : super.chooseDiscard(table, decision);
+    }
+}
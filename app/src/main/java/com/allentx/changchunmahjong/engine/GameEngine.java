@@ -0,0 +1,471 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.logic.ClaimMasks;
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.logic.RuleValidatorHelper;
+import com.allentx.changchunmahjong.logic.ScoreCalculator;
+import com.allentx.changchunmahjong.model.HandSummary;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Runs a hand: turn order, pre-draw DaBao / ViewBao, self-draw Hu and An Gang,
+ * claim priority (Hu > Peng/Gang > Chi), Bao replacement and round end.
+ *
+ * The engine advances one step at a time with {@link #step()} and reports what
+ * happened to its {@link GameListener}s. Seats with a {@link SeatController}
+ * decide on the spot; a seat without one (the human) pauses the engine until
+ * {@link #submit(Action)} answers the pending {@link Decision}. Not
+ * thread-safe: drive it from one thread.
+ */
+public class GameEngine {
+    private enum Phase {
+        TURN_START, // Pre-draw Bao choice, then draw
+        DRAW,
+        REPLACEMENT_DRAW, // After a Gang, from the back of the wall
+        TURN, // Hu / An Gang / discard
+        CLAIMS, // Others may take the discard
+        BAO_REPLACE, // Old Bao exhausted, replacer picks a new one
+        HAND_OVER
+    }
+
+    // Claim levels, highest priority first
+    private static final int LEVEL_HU = 0;
+    private static final int LEVEL_PENG_GANG = 1;
+    private static final int LEVEL_CHI = 2;
+
+    private final GameManager gameManager;
+    private final SeatController[] seats;
+    private final List<GameListener> listeners = new ArrayList<>();
+
+    private int bankerIndex;
+    private Phase phase = Phase.HAND_OVER;
+    private Decision pending;
+    private HandResult result;
+
+    private Tile lastDrawn; // Drawn this turn by the current player
+    private boolean meldTurn; // Turn came from a Chi/Peng: discard only
+
+    private Tile claimTile;
+    private int claimFrom;
+    private int claimLevel;
+    private int claimOffset; // Next seat to ask, relative to the discarder
+    private final boolean[] passed = new boolean[4];
+    private final ClaimMasks[] claimMasks = { new ClaimMasks(), new ClaimMasks(), new ClaimMasks(),
+            new ClaimMasks() };
+    private int baoReplacer;
+
+    /**
+     * @param seats One controller per seat; null entries wait for
+     *              {@link #submit(Action)}
+     */
+    public GameEngine(GameManager gameManager, SeatController[] seats) {
+        if (seats.length != 4)
+            throw new IllegalArgumentException("Need 4 seats");
+        this.gameManager = gameManager;
+        this.seats = seats.clone();
+    }
+
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Shuffles, deals and hands the first turn to the banker.
+     */
+    public void startHand(int bankerIndex) {
+        this.bankerIndex = bankerIndex;
+        gameManager.startGame(bankerIndex);
+        pending = null;
+        result = null;
+        lastDrawn = null;
+        meldTurn = false;
+        claimTile = null;
+        phase = Phase.TURN;
+        for (GameListener l : listeners)
+            l.onHandStarted(bankerIndex);
+    }
+
+    /**
+     * Performs the next step of the hand.
+     *
+     * @return True if the engine can step again, false when it waits for
+     *         {@link #submit(Action)} or the hand is over
+     */
+    public boolean step() {
+        if (pending != null)
+            return false;
+        switch (phase) {
+            case TURN_START:
+                turnStart();
+                break;
+            case DRAW:
+                draw(false);
+                break;
+            case REPLACEMENT_DRAW:
+                draw(true);
+                break;
+            case TURN:
+                turn();
+                break;
+            case CLAIMS:
+                claims();
+                break;
+            case BAO_REPLACE:
+                replaceBao();
+                break;
+            default:
+                return false;
+        }
+        return canStep();
+    }
+
+    /**
+     * Steps until a human decision is needed or the hand ends.
+     */
+    public void run() {
+        while (step()) {
+        }
+    }
+
+    public boolean canStep() {
+        return pending == null && phase != Phase.HAND_OVER;
+    }
+
+    /**
+     * Answers the pending decision.
+     *
+     * @return False if nothing is pending or the action is not allowed (e.g. a
+     *         locked hand discarding anything but the drawn tile)
+     */
+    public boolean submit(Action action) {
+        Decision d = pending;
+        if (d == null || !d.allows(action, player(d.getSeat())))
+            return false;
+        pending = null;
+        resolve(d, action);
+        return true;
+    }
+
+    public Decision getPendingDecision() {
+        return pending;
+    }
+
+    public boolean isHandOver() {
+        return phase == Phase.HAND_OVER;
+    }
+
+    // Null until the hand ends
+    public HandResult getResult() {
+        return result;
+    }
+
+    public int getBankerIndex() {
+        return bankerIndex;
+    }
+
+    public int getCurrentSeat() {
+        return gameManager.getCurrentPlayerIndex();
+    }
+
+    public GameManager getGameManager() {
+        return gameManager;
+    }
+
+    public Table getTable() {
+        return gameManager.getTable();
+    }
+
+    // Immutable copy of the table, e.g. to search ahead from the pending decision
+    public GameState getState() {
+        return GameState.of(gameManager, claimTile != null ? claimFrom : -1, lastDrawn);
+    }
+
+    private void turnStart() {
+        int seat = getCurrentSeat();
+        for (GameListener l : listeners)
+            l.onTurnStarted(seat);
+
+        // Pre-draw DaBao / ViewBao (only if the logical hand has 13 tiles)
+        Player p = player(seat);
+        HandSummary s = p.getSummary();
+        if (s.getLogicalSize() == 13 && tenpai(seat)) {
+            EnumSet<Action.Type> options = EnumSet.noneOf(Action.Type.class);
+            if (getTable().getBaoOwnerIndex() == -1)
+                options.add(Action.Type.DA_BAO);
+            else if (!p.hasViewedBao())
+                options.add(Action.Type.VIEW_BAO);
+            if (!options.isEmpty()) {
+                options.add(Action.Type.PASS);
+                decide(new Decision(seat, Decision.Kind.PRE_DRAW, null, -1, options, null));
+                return;
+            }
+        }
+        draw(false);
+    }
+
+    private void draw(boolean replacement) {
+        if (getTable().isWallEmpty()) {
+            endHand(new HandResult(-1, null, false, -1, 0, null, bankerIndex, false));
+            return;
+        }
+        Tile drawn = replacement ? gameManager.drawReplacementTile() : gameManager.drawTile();
+        lastDrawn = drawn;
+        meldTurn = false;
+        phase = Phase.TURN;
+        for (GameListener l : listeners)
+            l.onTileDrawn(getCurrentSeat(), drawn, replacement);
+    }
+
+    private void turn() {
+        int seat = getCurrentSeat();
+        Player p = player(seat);
+        HandSummary s = p.getSummary();
+        EnumSet<Action.Type> options = EnumSet.of(Action.Type.DISCARD);
+        if (!meldTurn) {
+            if (RuleValidatorHelper.isHu(s) || isBaoHit(seat, lastDrawn))
+                options.add(Action.Type.HU);
+            Tile anGangTile = RuleValidatorHelper.getAnGangTile(s);
+            if (anGangTile != null && p.getMelds().size() < 3
+                    && (!p.isHandLocked() || !RuleValidatorHelper.wouldGangAffectWait(s, anGangTile, true)))
+                options.add(Action.Type.AN_GANG);
+        }
+        Tile required = (p.isHandLocked() && lastDrawn != null) ? lastDrawn : null;
+        decide(new Decision(seat, Decision.Kind.TURN, lastDrawn, -1, options, required));
+    }
+
+    // Electronic Hu: drawing the Bao wins for its owner and anyone who viewed it
+    private boolean isBaoHit(int seat, Tile drawn) {
+        Tile bao = getTable().getBaoTile();
+        if (bao == null || drawn == null || !drawn.equals(bao))
+            return false;
+        return getTable().getBaoOwnerIndex() == seat || player(seat).hasViewedBao();
+    }
+
+    private void claims() {
+        while (claimLevel <= LEVEL_CHI) {
+            if (claimOffset > 3) {
+                claimLevel++;
+                claimOffset = 1;
+                continue;
+            }
+            int seat = (claimFrom + claimOffset++) % 4; // Next, next+1, next+2
+            if (passed[seat])
+                continue;
+            EnumSet<Action.Type> options = claimOptions(seat);
+            if (options == null || claimLevelOf(options) != claimLevel)
+                continue;
+            options.add(Action.Type.PASS);
+            decide(new Decision(seat, Decision.Kind.CLAIM, claimTile, claimFrom, options, null));
+            return;
+        }
+
+        // Nobody claimed: replace an exhausted Bao, or move on
+        if (gameManager.isBaoExhausted()) {
+            int replacer = gameManager.getNextEligibleBaoPlayer(claimFrom + 1);
+            if (replacer != -1) {
+                baoReplacer = replacer;
+                phase = Phase.BAO_REPLACE;
+                return;
+            }
+        }
+        nextTurn();
+    }
+
+    // A 13-tile hand is Tenpai when some tile completes it; shares the claim masks
+    private boolean tenpai(int seat) {
+        claimMasks[seat].update(player(seat).getSummary());
+        return claimMasks[seat].getHuMask() != 0;
+    }
+
+    // Null if the seat cannot claim the discard at all
+    private EnumSet<Action.Type> claimOptions(int seat) {
+        Player p = player(seat);
+        ClaimMasks masks = claimMasks[seat];
+        masks.update(p.getSummary()); // Rebuilt only if this seat's hand changed
+        long bit = 1L << claimTile.getId();
+        boolean meldsLeft = p.getMelds().size() < 3;
+        boolean open = meldsLeft && !p.isHandLocked();
+        boolean hu = (masks.getHuMask() & bit) != 0;
+        boolean mingGang = meldsLeft && (masks.getMingGangMask(p.isHandLocked()) & bit) != 0;
+        boolean peng = open && (masks.getPengMask() & bit) != 0;
+        // Chi only from the upper house
+        boolean chi = open && seat == (claimFrom + 1) % 4 && (masks.getChiMask() & bit) != 0;
+        if (!(hu || mingGang || peng || chi))
+            return null;
+
+        EnumSet<Action.Type> options = EnumSet.noneOf(Action.Type.class);
+        if (hu)
+            options.add(Action.Type.HU);
+        if (mingGang)
+            options.add(Action.Type.MING_GANG);
+        if (peng)
+            options.add(Action.Type.PENG);
+        if (chi)
+            options.add(Action.Type.CHI);
+        return options;
+    }
+
+    // A seat is asked once, at the level of its best option
+    private static int claimLevelOf(EnumSet<Action.Type> options) {
+        if (options.contains(Action.Type.HU))
+            return LEVEL_HU;
+        if (options.contains(Action.Type.PENG) || options.contains(Action.Type.MING_GANG))
+            return LEVEL_PENG_GANG;
+        return LEVEL_CHI;
+    }
+
+    private void replaceBao() {
+        int seat = baoReplacer;
+        Tile newBao = gameManager.replaceBao(seat);
+        if (newBao != null) {
+            for (GameListener l : listeners)
+                l.onBaoReplaced(seat, newBao);
+            // Immediate Hu for the replacer (rare but possible)
+            if (RuleValidatorHelper.isHu(player(seat).getSummary())) {
+                win(seat, newBao, true, -1);
+                return;
+            }
+        }
+        nextTurn();
+    }
+
+    private void nextTurn() {
+        gameManager.advanceTurn();
+        phase = Phase.TURN_START;
+    }
+
+    private void decide(Decision d) {
+        SeatController controller = seats[d.getSeat()];
+        Action action = controller != null ? controller.decide(this, d) : null;
+        if (action == null) {
+            pending = d;
+            for (GameListener l : listeners)
+                l.onDecisionRequired(d);
+            return;
+        }
+        if (!d.allows(action, player(d.getSeat())))
+            throw new IllegalStateException("Seat " + d.getSeat() + " chose " + action.getType()
+                    + " for " + d.getKind());
+        resolve(d, action);
+    }
+
+    private void resolve(Decision d, Action action) {
+        int seat = d.getSeat();
+        switch (action.getType()) {
+            case DA_BAO: {
+                Tile bao = gameManager.executeDaBao(seat);
+                if (bao != null) {
+                    for (GameListener l : listeners)
+                        l.onDaBao(seat, bao);
+                }
+                phase = Phase.DRAW;
+                break;
+            }
+            case VIEW_BAO:
+                gameManager.executeViewBao(seat);
+                for (GameListener l : listeners)
+                    l.onViewBao(seat);
+                phase = Phase.DRAW;
+                break;
+            case PASS:
+                if (d.getKind() == Decision.Kind.PRE_DRAW) {
+                    phase = Phase.DRAW;
+                } else {
+                    // Offer the discard to the remaining seats
+                    passed[seat] = true;
+                    phase = Phase.CLAIMS;
+                    claims();
+                }
+                break;
+            case DISCARD: {
+                Tile tile = action.getTile();
+                gameManager.discardTile(seat, tile);
+                lastDrawn = null;
+                claimTile = tile;
+                claimFrom = seat;
+                claimLevel = LEVEL_HU;
+                claimOffset = 1;
+                Arrays.fill(passed, false);
+                phase = Phase.CLAIMS;
+                for (GameListener l : listeners)
+                    l.onDiscard(seat, tile);
+                break;
+            }
+            case HU:
+                if (d.getKind() == Decision.Kind.CLAIM) {
+                    win(seat, claimTile, false, claimFrom);
+                } else {
+                    List<Tile> hand = player(seat).getHand();
+                    win(seat, lastDrawn != null ? lastDrawn : hand.get(hand.size() - 1), true, -1);
+                }
+                break;
+            case AN_GANG:
+                meld(seat, gameManager.executeAnGang(seat,
+                        RuleValidatorHelper.getAnGangTile(player(seat).getSummary())));
+                phase = Phase.REPLACEMENT_DRAW;
+                break;
+            case MING_GANG:
+                meld(seat, gameManager.executeClaim(seat, Meld.Type.MING_GANG, claimFrom));
+                phase = Phase.REPLACEMENT_DRAW;
+                break;
+            case PENG:
+                meld(seat, gameManager.executeClaim(seat, Meld.Type.PENG, claimFrom));
+                startMeldTurn();
+                break;
+            case CHI:
+                meld(seat, gameManager.executeChi(seat, claimFrom));
+                startMeldTurn();
+                break;
+        }
+    }
+
+    private void meld(int seat, Meld meld) {
+        for (GameListener l : listeners)
+            l.onMeld(seat, meld);
+    }
+
+    private void startMeldTurn() {
+        lastDrawn = null;
+        meldTurn = true;
+        phase = Phase.TURN;
+    }
+
+    private void win(int seat, Tile winningTile, boolean selfDraw, int discarder) {
+        Table table = getTable();
+        int[] deltas = new int[4];
+        int breakdown = ScoreCalculator.score(player(seat), winningTile, selfDraw, bankerIndex, discarder, deltas);
+        boolean gameOver = false;
+        for (int i = 0; i < 4; i++) {
+            Player p = table.getPlayer(i);
+            p.changeScore(deltas[i]);
+            if (p.getScore() < 0)
+                gameOver = true;
+        }
+
+        // Rotation Order: 0 (East) -> 1 (North) -> 2 (West) -> 3 (South) -> 0
+        int nextBanker = (seat == bankerIndex) ? bankerIndex : (bankerIndex + 1) % 4;
+        endHand(new HandResult(seat, winningTile, selfDraw, discarder, breakdown, deltas, nextBanker, gameOver));
+    }
+
+    private void endHand(HandResult handResult) {
+        result = handResult;
+        phase = Phase.HAND_OVER;
+        for (GameListener l : listeners)
+            l.onHandEnded(handResult);
+    }
+
+    private Player player(int seat) {
+        return getTable().getPlayer(seat);
+    }
+}
@@ -0,0 +1,49 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Tile;
+
+/**
+ * Receives what happens at the table, in order, on the thread driving the
+ * {@link GameEngine}. Every method defaults to doing nothing.
+ */
+public interface GameListener {
+
+    // Tiles are dealt; the banker holds 14 and plays first
+    default void onHandStarted(int bankerIndex) {
+    }
+
+    default void onTurnStarted(int seat) {
+    }
+
+    // replacement: Gang replacement from the back of the wall
+    default void onTileDrawn(int seat, Tile tile, boolean replacement) {
+    }
+
+    default void onDiscard(int seat, Tile tile) {
+    }
+
+    default void onMeld(int seat, Meld meld) {
+    }
+
+    default void onDaBao(int seat, Tile bao) {
+    }
+
+    default void onViewBao(int seat) {
+    }
+
+    // All four copies of the old Bao were visible, seat picked a new one
+    default void onBaoReplaced(int seat, Tile bao) {
+    }
+
+    /**
+     * The engine is paused until {@link GameEngine#submit(Action)} answers
+     * this decision.
+     */
+    default void onDecisionRequired(Decision decision) {
+    }
+
+    // Scores in the result are already applied to the players
+    default void onHandEnded(HandResult result) {
+    }
+}
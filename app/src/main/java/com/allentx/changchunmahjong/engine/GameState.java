@@ -0,0 +1,503 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a hand in play, for look-ahead search, hints and
+ * undo. Each operation returns a new state that shares everything it did not
+ * change with this one: the deck is never copied after {@link #of}, a move
+ * copies only the 34-byte count row of the seat it touches, and discards are
+ * persistent lists, so a fork costs a few small allocations.
+ *
+ * Hands are count vectors, so tile copies are not tracked; {@link #restore}
+ * deals copies 0-3 in order. Draws are explicit ({@link #draw()},
+ * {@link #drawReplacement()}) because they are chance moves for a searcher.
+ * A Hu only marks the winner; scoring stays with
+ * {@link com.allentx.changchunmahjong.logic.ScoreCalculator}, whose result can
+ * be applied with {@link #addScores}.
+ */
+public final class GameState {
+    // Shared by every state forked from the same deal
+    private final byte[] deck;
+    private final int wallCut;
+    private final int bankerIndex;
+    private final int dice1;
+    private final int dice2;
+
+    private final int wallHead;
+    private final int wallTail;
+    private final byte[][] hands; // [seat][tile id] counts
+    private final int[][] melds; // [seat] packed melds, see meld()
+    private final TileList[] discards; // [seat] every tile the seat discarded
+    private final TileList tableDiscards; // Discards still on the table (claims remove them)
+    private final int[] scores;
+    private final int currentPlayer;
+    private final int lastDiscarder;
+    private final int lastDrawn; // Id of the tile just drawn, -1 after a discard or meld
+    private final int baoTile; // -1 before DaBao
+    private final int baoOwner;
+    private final int viewedBao; // Seat bit mask
+    private final int handLocked; // Seat bit mask
+    private final int winner;
+
+    private GameState(byte[] deck, int wallCut, int bankerIndex, int dice1, int dice2, int wallHead,
+            int wallTail, byte[][] hands, int[][] melds, TileList[] discards, TileList tableDiscards,
+            int[] scores, int currentPlayer, int lastDiscarder, int lastDrawn, int baoTile, int baoOwner,
+            int viewedBao, int handLocked, int winner) {
+        this.deck = deck;
+        this.wallCut = wallCut;
+        this.bankerIndex = bankerIndex;
+        this.dice1 = dice1;
+        this.dice2 = dice2;
+        this.wallHead = wallHead;
+        this.wallTail = wallTail;
+        this.hands = hands;
+        this.melds = melds;
+        this.discards = discards;
+        this.tableDiscards = tableDiscards;
+        this.scores = scores;
+        this.currentPlayer = currentPlayer;
+        this.lastDiscarder = lastDiscarder;
+        this.lastDrawn = lastDrawn;
+        this.baoTile = baoTile;
+        this.baoOwner = baoOwner;
+        this.viewedBao = viewedBao;
+        this.handLocked = handLocked;
+        this.winner = winner;
+    }
+
+    /**
+     * Captures the table of a hand dealt by {@link GameManager#startGame}.
+     *
+     * @param lastDiscarder Seat whose discard is the latest on the table, or -1
+     * @param lastDrawn     Tile the current seat just drew, or null
+     */
+    public static GameState of(GameManager gameManager, int lastDiscarder, Tile lastDrawn) {
+        Table table = gameManager.getTable();
+        int banker = table.getBankerIndex();
+        byte[][] hands = new byte[4][];
+        int[][] melds = new int[4][];
+        TileList[] discards = new TileList[4];
+        int[] scores = new int[4];
+        int viewed = 0;
+        int locked = 0;
+        for (int seat = 0; seat < 4; seat++) {
+            Player p = table.getPlayer(seat);
+            hands[seat] = new byte[Tile.TYPE_COUNT];
+            for (int id = 0; id < Tile.TYPE_COUNT; id++)
+                hands[seat][id] = (byte) p.getSummary().getCount(id);
+            List<Meld> playerMelds = p.getMelds();
+            melds[seat] = new int[playerMelds.size()];
+            for (int i = 0; i < playerMelds.size(); i++) {
+                Meld m = playerMelds.get(i);
+                melds[seat][i] = meld(m.getType(), m.getFirstTile().getId(), m.getFromPlayer());
+            }
+            discards[seat] = TileList.of(p.getDiscards());
+            scores[seat] = p.getScore();
+            if (p.hasViewedBao())
+                viewed |= 1 << seat;
+            if (p.isHandLocked())
+                locked |= 1 << seat;
+        }
+        Tile bao = table.getBaoTile();
+        return new GameState(table.getDeck().clone(),
+                Table.getCutPosition(table.getDice2(), GameManager.getWallOwnerIndex(banker, table.getDice1())),
+                banker, table.getDice1(), table.getDice2(), table.getWallHead(), table.getWallTail(), hands,
+                melds, discards, TileList.of(table.getDiscards()), scores, gameManager.getCurrentPlayerIndex(),
+                lastDiscarder, lastDrawn != null ? lastDrawn.getId() : -1, bao != null ? bao.getId() : -1,
+                table.getBaoOwnerIndex(), viewed, locked, -1);
+    }
+
+    /**
+     * Writes this state into the game manager's table, replacing its hand.
+     */
+    public void restore(GameManager gameManager) {
+        Table table = gameManager.getTable();
+        table.setBankerIndex(bankerIndex);
+        table.startRound(deck);
+        table.cutWall(dice1, dice2, GameManager.getWallOwnerIndex(bankerIndex, dice1));
+        table.setWallPosition(wallHead, wallTail);
+        for (int seat = 0; seat < 4; seat++) {
+            Player p = table.getPlayer(seat);
+            for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+                for (int c = 0; c < hands[seat][id]; c++)
+                    p.addTile(Tile.physical(id, c));
+            }
+            for (int m : melds[seat])
+                table.addMeld(seat, toMeld(m));
+            for (int id : TileList.toArray(discards[seat]))
+                p.addDiscard(Tile.byId(id));
+            p.setScore(scores[seat]);
+            p.setViewedBao((viewedBao & 1 << seat) != 0);
+            p.setHandLocked((handLocked & 1 << seat) != 0);
+        }
+        for (int id : TileList.toArray(tableDiscards))
+            table.addDiscard(Tile.byId(id));
+        if (baoTile != -1)
+            table.setBaoTile(Tile.byId(baoTile));
+        table.setBaoOwnerIndex(baoOwner);
+        gameManager.setCurrentPlayerIndex(currentPlayer);
+    }
+
+    /**
+     * The state after seat takes action, mirroring {@link GameManager}: DISCARD,
+     * CHI, PENG, MING_GANG, AN_GANG, DA_BAO, VIEW_BAO and HU change the table;
+     * PASS returns this state. A Gang still needs {@link #drawReplacement()}.
+     *
+     * @throws IllegalStateException If the hand cannot take the action
+     */
+    public GameState apply(int seat, Action action) {
+        switch (action.getType()) {
+            case DISCARD:
+                return discard(seat, action.getTile().getId());
+            case CHI:
+                return chi(seat);
+            case PENG:
+                return claim(seat, Meld.Type.PENG, 2);
+            case MING_GANG:
+                return claim(seat, Meld.Type.MING_GANG, 3);
+            case AN_GANG:
+                return anGang(seat);
+            case DA_BAO:
+                return daBao(seat);
+            case VIEW_BAO:
+                return viewBao(seat);
+            case HU:
+                return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail, hands, melds,
+                        discards, tableDiscards, scores, currentPlayer, lastDiscarder, lastDrawn, baoTile,
+                        baoOwner, viewedBao, handLocked, seat);
+            default: // PASS
+                return this;
+        }
+    }
+
+    // apply() for the seat whose turn it is
+    public GameState apply(Action action) {
+        return apply(currentPlayer, action);
+    }
+
+    // The current seat draws from the front of the wall
+    public GameState draw() {
+        requireWall();
+        int id = wallTile(wallHead);
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead + 1, wallTail,
+                withCount(currentPlayer, id, 1), melds, discards, tableDiscards, scores, currentPlayer,
+                lastDiscarder, id, baoTile, baoOwner, viewedBao, handLocked, winner);
+    }
+
+    // The current seat draws a Gang replacement from the back of the wall
+    public GameState drawReplacement() {
+        requireWall();
+        int id = wallTile(wallTail - 1);
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail - 1,
+                withCount(currentPlayer, id, 1), melds, discards, tableDiscards, scores, currentPlayer,
+                lastDiscarder, id, baoTile, baoOwner, viewedBao, handLocked, winner);
+    }
+
+    // An exhausted Bao is replaced from the back of the wall
+    public GameState replaceBao() {
+        requireWall();
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail - 1, hands, melds,
+                discards, tableDiscards, scores, currentPlayer, lastDiscarder, lastDrawn, wallTile(wallTail - 1),
+                baoOwner, viewedBao, handLocked, winner);
+    }
+
+    // Scores moved by a settled Hu, one delta per seat
+    public GameState addScores(int[] deltas) {
+        int[] newScores = scores.clone();
+        for (int i = 0; i < 4; i++)
+            newScores[i] += deltas[i];
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail, hands, melds,
+                discards, tableDiscards, newScores, currentPlayer, lastDiscarder, lastDrawn, baoTile, baoOwner,
+                viewedBao, handLocked, winner);
+    }
+
+    // The turn passes to the next seat
+    public GameState advanceTurn() {
+        return withTurn((currentPlayer + 1) % 4, lastDrawn);
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getBankerIndex() {
+        return bankerIndex;
+    }
+
+    public int getLastDiscarder() {
+        return lastDiscarder;
+    }
+
+    // Id of the latest discard still on the table, or -1
+    public int getLastDiscard() {
+        return tableDiscards != null ? tableDiscards.tile : -1;
+    }
+
+    // Id of the tile the current seat just drew, or -1
+    public int getLastDrawn() {
+        return lastDrawn;
+    }
+
+    public int getCount(int seat, int id) {
+        return hands[seat][id];
+    }
+
+    // A fresh copy of a seat's 34-entry count vector
+    public int[] copyCounts(int seat) {
+        int[] counts = new int[Tile.TYPE_COUNT];
+        for (int id = 0; id < Tile.TYPE_COUNT; id++)
+            counts[id] = hands[seat][id];
+        return counts;
+    }
+
+    public int getMeldCount(int seat) {
+        return melds[seat].length;
+    }
+
+    public Meld getMeld(int seat, int index) {
+        return toMeld(melds[seat][index]);
+    }
+
+    // Ids a seat has discarded, oldest first
+    public int[] getDiscards(int seat) {
+        return TileList.toArray(discards[seat]);
+    }
+
+    // Ids still in the communal discard area, oldest first
+    public int[] getTableDiscards() {
+        return TileList.toArray(tableDiscards);
+    }
+
+    public int getScore(int seat) {
+        return scores[seat];
+    }
+
+    public int getWallRemaining() {
+        return wallTail - wallHead;
+    }
+
+    public boolean isWallEmpty() {
+        return wallTail == wallHead;
+    }
+
+    // Id of the k-th tile from the front of what is left of the wall
+    public int peekWall(int k) {
+        if (k < 0 || k >= getWallRemaining())
+            throw new IndexOutOfBoundsException("Wall tile " + k + " of " + getWallRemaining());
+        return wallTile(wallHead + k);
+    }
+
+    public int getBaoTile() {
+        return baoTile;
+    }
+
+    public int getBaoOwner() {
+        return baoOwner;
+    }
+
+    public boolean hasViewedBao(int seat) {
+        return (viewedBao & 1 << seat) != 0;
+    }
+
+    public boolean isHandLocked(int seat) {
+        return (handLocked & 1 << seat) != 0;
+    }
+
+    // Seat that declared Hu, or -1
+    public int getWinner() {
+        return winner;
+    }
+
+    private GameState discard(int seat, int id) {
+        requireTiles(seat, id, 1);
+        TileList[] newDiscards = discards.clone();
+        newDiscards[seat] = new TileList(id, discards[seat]);
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail,
+                withCount(seat, id, -1), melds, newDiscards, new TileList(id, tableDiscards), scores, seat, seat,
+                -1, baoTile, baoOwner, viewedBao, handLocked, winner);
+    }
+
+    // Same neighbour choice as GameManager.executeChi(int, int)
+    private GameState chi(int seat) {
+        int t = requireLastDiscard();
+        if (t >= 27) // Honors form no sequences
+            throw new IllegalStateException("Seat " + seat + " cannot Chi " + t);
+        int rank = Tile.byId(t).getRank();
+        int lowest;
+        if (has(seat, t, rank, -1) && has(seat, t, rank, -2))
+            lowest = t - 2;
+        else if (has(seat, t, rank, -1) && has(seat, t, rank, 1))
+            lowest = t - 1;
+        else
+            lowest = t;
+        byte[] row = hands[seat].clone();
+        for (int id = lowest; id < lowest + 3; id++) {
+            if (id != t) {
+                if (id < 0 || id / 9 != t / 9 || row[id] == 0)
+                    throw new IllegalStateException("Seat " + seat + " cannot Chi " + t);
+                row[id]--;
+            }
+        }
+        return withMeld(seat, row, meld(Meld.Type.CHI, lowest, lastDiscarder));
+    }
+
+    private GameState claim(int seat, Meld.Type type, int fromHand) {
+        int t = requireLastDiscard();
+        requireTiles(seat, t, fromHand);
+        byte[] row = hands[seat].clone();
+        row[t] -= fromHand;
+        return withMeld(seat, row, meld(type, t, lastDiscarder));
+    }
+
+    private GameState anGang(int seat) {
+        for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+            if (hands[seat][id] == 4) {
+                byte[] row = hands[seat].clone();
+                row[id] = 0;
+                byte[][] newHands = hands.clone();
+                newHands[seat] = row;
+                return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail, newHands,
+                        addMeld(seat, meld(Meld.Type.AN_GANG, id, -1)), discards, tableDiscards, scores, seat,
+                        lastDiscarder, -1, baoTile, baoOwner, viewedBao, handLocked, winner);
+            }
+        }
+        throw new IllegalStateException("Seat " + seat + " has no An Gang");
+    }
+
+    private GameState daBao(int seat) {
+        if (baoOwner != -1)
+            return this; // Already has a Bao owner
+        requireWall();
+        int bit = 1 << seat;
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail - 1, hands, melds,
+                discards, tableDiscards, scores, seat, lastDiscarder, lastDrawn, wallTile(wallTail - 1), seat,
+                viewedBao | bit, handLocked | bit, winner);
+    }
+
+    private GameState viewBao(int seat) {
+        if (baoTile == -1)
+            return withTurn(seat, lastDrawn);
+        int bit = 1 << seat;
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail, hands, melds,
+                discards, tableDiscards, scores, seat, lastDiscarder, lastDrawn, baoTile, baoOwner,
+                viewedBao | bit, handLocked | bit, winner);
+    }
+
+    // A claim takes the latest discard off the table and gives the claimer the turn
+    private GameState withMeld(int seat, byte[] row, int meld) {
+        byte[][] newHands = hands.clone();
+        newHands[seat] = row;
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail, newHands,
+                addMeld(seat, meld), discards, tableDiscards.next, scores, seat, lastDiscarder, -1, baoTile,
+                baoOwner, viewedBao, handLocked, winner);
+    }
+
+    private GameState withTurn(int seat, int drawn) {
+        return new GameState(deck, wallCut, bankerIndex, dice1, dice2, wallHead, wallTail, hands, melds,
+                discards, tableDiscards, scores, seat, lastDiscarder, drawn, baoTile, baoOwner, viewedBao,
+                handLocked, winner);
+    }
+
+    private byte[][] withCount(int seat, int id, int delta) {
+        byte[][] newHands = hands.clone();
+        newHands[seat] = hands[seat].clone();
+        newHands[seat][id] += delta;
+        return newHands;
+    }
+
+    private int[][] addMeld(int seat, int meld) {
+        int[][] newMelds = melds.clone();
+        int n = melds[seat].length;
+        newMelds[seat] = Arrays.copyOf(melds[seat], n + 1);
+        newMelds[seat][n] = meld;
+        return newMelds;
+    }
+
+    // Whether seat holds the tile rank + offset of t's suit
+    private boolean has(int seat, int t, int rank, int offset) {
+        int r = rank + offset;
+        return t < 27 && r >= 1 && r <= 9 && hands[seat][t + offset] > 0;
+    }
+
+    private int wallTile(int k) {
+        return (deck[(wallCut + k) % Table.WALL_SIZE] & 0xFF) / Tile.COPIES;
+    }
+
+    private int requireLastDiscard() {
+        if (tableDiscards == null)
+            throw new IllegalStateException("No discard to claim");
+        return tableDiscards.tile;
+    }
+
+    private void requireTiles(int seat, int id, int count) {
+        if (hands[seat][id] < count)
+            throw new IllegalStateException("Seat " + seat + " holds " + hands[seat][id] + " of tile " + id);
+    }
+
+    private void requireWall() {
+        if (isWallEmpty())
+            throw new IllegalStateException("The wall is empty");
+    }
+
+    // type ordinal << 12 | first tile id << 4 | fromPlayer + 1
+    private static int meld(Meld.Type type, int firstId, int fromPlayer) {
+        return type.ordinal() << 12 | firstId << 4 | (fromPlayer + 1);
+    }
+
+    private static Meld toMeld(int meld) {
+        Meld.Type type = Meld.Type.values()[meld >>> 12];
+        int first = (meld >>> 4) & 0xFF;
+        List<Tile> tiles = new ArrayList<>(4);
+        switch (type) {
+            case CHI:
+                for (int i = 0; i < 3; i++)
+                    tiles.add(Tile.byId(first + i));
+                break;
+            case PENG:
+                for (int c = 0; c < 3; c++)
+                    tiles.add(Tile.physical(first, c));
+                break;
+            default:
+                for (int c = 0; c < 4; c++)
+                    tiles.add(Tile.physical(first, c));
+                break;
+        }
+        return new Meld(type, tiles, (meld & 0xF) - 1);
+    }
+
+    // Persistent list of tile ids, newest first; null is empty
+    private static final class TileList {
+        final int tile;
+        final TileList next;
+        final int size;
+
+        TileList(int tile, TileList next) {
+            this.tile = tile;
+            this.next = next;
+            this.size = next != null ? next.size + 1 : 1;
+        }
+
+        static TileList of(List<Tile> tiles) {
+            TileList list = null;
+            for (Tile t : tiles)
+                list = new TileList(t.getId(), list);
+            return list;
+        }
+
+        static int[] toArray(TileList list) {
+            int[] ids = new int[list != null ? list.size : 0];
+            int i = ids.length;
+            for (TileList l = list; l != null; l = l.next)
+                ids[--i] = l.tile;
+            return ids;
+        }
+    }
+}
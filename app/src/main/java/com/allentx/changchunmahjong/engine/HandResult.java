@@ -0,0 +1,80 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.logic.ScoreCalculator;
+import com.allentx.changchunmahjong.model.Tile;
+
+/**
+ * How a hand ended: a win (with its applied score) or a draw on an empty wall.
+ */
+public final class HandResult {
+    private final int winner;
+    private final Tile winningTile;
+    private final boolean selfDraw;
+    private final int discarder;
+    private final int breakdown;
+    private final int[] deltas;
+    private ScoreCalculator.ScoreResult score; // Built on first request
+    private final int nextBanker;
+    private final boolean gameOver;
+
+    HandResult(int winner, Tile winningTile, boolean selfDraw, int discarder,
+            int breakdown, int[] deltas, int nextBanker, boolean gameOver) {
+        this.winner = winner;
+        this.winningTile = winningTile;
+        this.selfDraw = selfDraw;
+        this.discarder = discarder;
+        this.breakdown = breakdown;
+        this.deltas = deltas;
+        this.nextBanker = nextBanker;
+        this.gameOver = gameOver;
+    }
+
+    public boolean isDraw() {
+        return winner == -1;
+    }
+
+    // Winning seat, -1 for a draw
+    public int getWinner() {
+        return winner;
+    }
+
+    public Tile getWinningTile() {
+        return winningTile;
+    }
+
+    public boolean isSelfDraw() {
+        return selfDraw;
+    }
+
+    // Seat that dealt in, -1 for a self-draw or a draw
+    public int getDiscarder() {
+        return discarder;
+    }
+
+    // Score change applied to a seat, 0 for a draw
+    public int getScoreDelta(int seat) {
+        return deltas == null ? 0 : deltas[seat];
+    }
+
+    // Packed multipliers and roles, see ScoreCalculator.score; 0 for a draw
+    public int getBreakdown() {
+        return breakdown;
+    }
+
+    // Score with its description for display, null for a draw
+    public ScoreCalculator.ScoreResult getScore() {
+        if (score == null && deltas != null)
+            score = new ScoreCalculator.ScoreResult(breakdown, deltas);
+        return score;
+    }
+
+    // Banker stays on a banker win or a draw, otherwise passes to the next seat
+    public int getNextBanker() {
+        return nextBanker;
+    }
+
+    // Some player's score went below zero
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -0,0 +1,57 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.logic.KeepValueEvaluator;
+import com.allentx.changchunmahjong.logic.MonteCarloEvaluator;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link AiController} that picks discards with {@link MonteCarloEvaluator}
+ * instead of the one-ply heuristic, within a fixed time per discard.
+ * Everything else (claims, Bao) is decided as by AiController.
+ */
+public class MonteCarloAiController extends AiController {
+    private final RandomSource random;
+    private final MonteCarloEvaluator evaluator;
+    private final KeepValueEvaluator heuristic = new KeepValueEvaluator();
+    private final int maxSamples;
+    private final long budgetNanos;
+
+    /**
+     * @param maxSamples   Deals played out per discard at most
+     * @param budgetMillis Time per discard, e.g. a few hundred on a device or
+     *                     seconds for offline analysis
+     */
+    public MonteCarloAiController(RandomSource random, int maxSamples, long budgetMillis) {
+        this(random, maxSamples, budgetMillis, ForkJoinPool.commonPool());
+    }
+
+    public MonteCarloAiController(RandomSource random, int maxSamples, long budgetMillis, ForkJoinPool pool) {
+        super(random.split());
+        this.random = random;
+        this.evaluator = new MonteCarloEvaluator(pool);
+        this.maxSamples = maxSamples;
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    @Override
+    protected Tile chooseDiscard(Table table, Decision decision) {
+        if (decision.getRequiredDiscard() != null)
+            return decision.getRequiredDiscard();
+
+        Player ai = table.getPlayer(decision.getSeat());
+        heuristic.evaluate(ai.getSummary().copyCounts(), ai.getMelds().size(), ai.getSummary().getMeldFlags(),
+                table.getVisibleTiles().copyCounts());
+        MonteCarloEvaluator.Result result = evaluator.evaluate(table, decision.getSeat(), maxSamples, budgetNanos,
+                random.nextInt(Integer.MAX_VALUE));
+        int best = MonteCarloEvaluator.getBestDiscard(result, heuristic);
+        for (Tile t : ai.getHand()) {
+            if (t.getId() == best)
+                return t;
+        }
+        return super.chooseDiscard(table, decision);
+    }
+}
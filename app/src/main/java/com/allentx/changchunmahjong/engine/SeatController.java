@@ -0,0 +1,14 @@
+package com.allentx.changchunmahjong.engine;
+
+/**
+ * Makes the decisions for one seat.
+ */
+public interface SeatController {
+
+    /**
+     * @return The chosen action (one of {@link Decision#getOptions()}), or null
+     *         to pause the engine until {@link GameEngine#submit(Action)} is
+     *         called, as a human seat does
+     */
+    Action decide(GameEngine engine, Decision decision);
+}
@@ -0,0 +1,314 @@
+package com.allentx.changchunmahjong.engine;
+
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.logic.KeepValueEvaluator;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Seat controller that runs an {@link AiController}'s discard choice on a
+ * worker thread, so a slow strategy never blocks the thread driving the
+ * {@link GameEngine}.
+ *
+ * Discards are searched ahead of time as soon as the hand they start from is
+ * known: the next seat's draw after every discard, the discard after a
+ * Chi / Peng or Gang, the banker's first turn, and while a human seat holds
+ * 14 tiles, the next seat's reply to each of its likely discards. A result is
+ * used only if the seat's hand, melds and the visible tiles match those it
+ * was computed from; otherwise it is thrown away. A decision with no result
+ * yet pauses the engine, and the callback answers it once the worker is done.
+ *
+ * Claims and Bao choices are cheap and stay on the engine's thread. Apart
+ * from the callback, everything runs on the engine's thread; the delegate
+ * only ever runs on the worker.
+ */
+public class SpeculativeAiController implements SeatController, GameListener {
+
+    public interface Callback {
+        /**
+         * A paused decision has its answer; call {@link GameEngine#submit}
+         * with it if the decision is still pending. Runs on the callback
+         * executor.
+         */
+        void onDecisionReady(Decision decision, Action action);
+    }
+
+    private static final int MAX_SPECULATIONS = 16; // Replies to a human's discards, plus the next turn
+
+    private final AiController delegate;
+    private final Executor callbackExecutor;
+    private final Callback callback;
+    private final ExecutorService worker;
+    private final GameManager workerScratch = new GameManager(); // Worker thread only
+    private final GameManager scratch = new GameManager(); // Engine thread only, for keys of predicted states
+    private final KeepValueEvaluator humanDiscards = new KeepValueEvaluator();
+    private final Map<Key, Speculation> speculations = new HashMap<>();
+    private GameEngine engine;
+    private int seatMask;
+
+    // Seat, melds and every count the delegate's choice depends on
+    private static final class Key {
+        private final int[] values;
+        private final int hash;
+
+        Key(Table table, int seat) {
+            Player p = table.getPlayer(seat);
+            values = new int[3 + 2 * Tile.TYPE_COUNT];
+            values[0] = seat;
+            values[1] = p.getMelds().size();
+            values[2] = p.getSummary().getMeldFlags();
+            for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+                values[3 + id] = p.getSummary().getCount(id);
+                values[3 + Tile.TYPE_COUNT + id] = table.getVisibleTiles().getCount(id);
+            }
+            hash = Arrays.hashCode(values);
+        }
+
+        int getSeat() {
+            return values[0];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Speculation {
+        final Key key;
+        volatile boolean done; // Written by the worker after discard
+        int discard = -1; // Tile id, -1 if the delegate failed
+        Future<?> future;
+        Decision waiting; // Paused decision to answer when done
+
+        Speculation(Key key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * @param callbackExecutor Runs callbacks on the engine's thread, e.g. a
+     *                         main-thread Handler's post
+     */
+    public SpeculativeAiController(AiController delegate, Executor callbackExecutor, Callback callback) {
+        this.delegate = delegate;
+        this.callbackExecutor = callbackExecutor;
+        this.callback = callback;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ai-speculation");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Listens to the engine for predictable turns.
+     *
+     * @param seatMask Bit per seat this controller plays
+     */
+    public void attach(GameEngine engine, int seatMask) {
+        this.engine = engine;
+        this.seatMask = seatMask;
+        engine.addListener(this);
+    }
+
+    // Stops the worker; pending results are dropped
+    public void shutdown() {
+        clear();
+        worker.shutdownNow();
+    }
+
+    // Searches queued, running or done but not yet used
+    int getSpeculationCount() {
+        return speculations.size();
+    }
+
+    @Override
+    public Action decide(GameEngine engine, Decision decision) {
+        if (decision.getKind() != Decision.Kind.TURN || decision.can(Action.Type.HU)
+                || decision.can(Action.Type.AN_GANG))
+            return delegate.decide(engine, decision);
+        if (decision.getRequiredDiscard() != null)
+            return Action.discard(decision.getRequiredDiscard());
+
+        Key key = new Key(engine.getTable(), decision.getSeat());
+        // Other guesses for this seat are wrong now
+        for (Iterator<Speculation> it = speculations.values().iterator(); it.hasNext();) {
+            Speculation s = it.next();
+            if (s.key.getSeat() == decision.getSeat() && !s.key.equals(key)) {
+                s.future.cancel(false);
+                it.remove();
+            }
+        }
+        Speculation s = speculations.get(key);
+        if (s == null)
+            s = speculate(key, engine.getState());
+        if (s.done) {
+            speculations.remove(key);
+            return Action.discard(tileInHand(decision, s.discard));
+        }
+        s.waiting = decision;
+        return null;
+    }
+
+    @Override
+    public void onHandStarted(int bankerIndex) {
+        clear();
+        if (controls(bankerIndex))
+            predict(engine.getState());
+    }
+
+    @Override
+    public void onDiscard(int seat, Tile tile) {
+        // Only the next seat's draw can follow now, unless someone claims; a
+        // claim is predicted when its meld is made
+        int next = (seat + 1) % 4;
+        GameState state = engine.getState();
+        GameState reply = controls(next) && !state.isWallEmpty() ? state.advanceTurn().draw() : null;
+        Key key = reply != null ? keyOf(reply) : null;
+        // Drop every other guess first, so the reply is not queued behind them
+        for (Iterator<Speculation> it = speculations.values().iterator(); it.hasNext();) {
+            Speculation s = it.next();
+            if (!s.key.equals(key) && s.waiting == null) {
+                s.future.cancel(false);
+                it.remove();
+            }
+        }
+        if (reply != null && !speculations.containsKey(key))
+            speculate(key, reply);
+    }
+
+    @Override
+    public void onMeld(int seat, Meld meld) {
+        cancelExcept(seat);
+        if (!controls(seat))
+            return;
+        GameState state = engine.getState();
+        if (meld.getType() == Meld.Type.CHI || meld.getType() == Meld.Type.PENG)
+            predict(state);
+        else if (!state.isWallEmpty())
+            predict(state.drawReplacement());
+    }
+
+    @Override
+    public void onDecisionRequired(Decision decision) {
+        // A human about to discard: guess the next seat's reply, likeliest discards first
+        int seat = decision.getSeat();
+        int next = (seat + 1) % 4;
+        if (controls(seat) || !controls(next) || decision.getKind() != Decision.Kind.TURN)
+            return;
+        GameState state = engine.getState();
+        if (state.getWallRemaining() == 0)
+            return;
+        Player p = engine.getTable().getPlayer(seat);
+        if (decision.getRequiredDiscard() != null) {
+            predict(state.apply(seat, Action.discard(decision.getRequiredDiscard())).advanceTurn().draw());
+            return;
+        }
+        humanDiscards.evaluate(p.getSummary().copyCounts(), p.getMelds().size(), p.getSummary().getMeldFlags(),
+                engine.getTable().getVisibleTiles().copyCounts());
+        long mask = humanDiscards.getHandMask();
+        while (mask != 0 && speculations.size() < MAX_SPECULATIONS) {
+            int best = -1;
+            for (long m = mask; m != 0; m &= m - 1) {
+                int id = Long.numberOfTrailingZeros(m);
+                if (best < 0 || humanDiscards.getScore(id) < humanDiscards.getScore(best))
+                    best = id;
+            }
+            mask &= ~(1L << best);
+            predict(state.apply(seat, Action.discard(Tile.byId(best))).advanceTurn().draw());
+        }
+    }
+
+    @Override
+    public void onHandEnded(HandResult result) {
+        clear();
+    }
+
+    private boolean controls(int seat) {
+        return (seatMask & 1 << seat) != 0;
+    }
+
+    // Starts a search for the current seat of a state holding 14 tiles
+    private void predict(GameState state) {
+        Key key = keyOf(state);
+        if (!speculations.containsKey(key))
+            speculate(key, state);
+    }
+
+    private Key keyOf(GameState state) {
+        state.restore(scratch);
+        return new Key(scratch.getTable(), state.getCurrentPlayer());
+    }
+
+    private Speculation speculate(Key key, GameState state) {
+        final Speculation s = new Speculation(key);
+        speculations.put(key, s);
+        s.future = worker.submit(() -> {
+            try {
+                state.restore(workerScratch);
+                Decision d = new Decision(key.getSeat(), Decision.Kind.TURN, null, -1,
+                        EnumSet.of(Action.Type.DISCARD), null);
+                s.discard = delegate.chooseDiscard(workerScratch.getTable(), d).getId();
+            } finally {
+                // A paused engine must hear back even if the search failed
+                s.done = true;
+                callbackExecutor.execute(() -> deliver(s));
+            }
+        });
+        return s;
+    }
+
+    private void deliver(Speculation s) {
+        Decision d = s.waiting;
+        if (d == null || speculations.get(s.key) != s || engine.getPendingDecision() != d)
+            return;
+        speculations.remove(s.key);
+        callback.onDecisionReady(d, Action.discard(tileInHand(d, s.discard)));
+    }
+
+    // Drops every guess except those for seat, whose turn may still come
+    private void cancelExcept(int seat) {
+        for (Iterator<Speculation> it = speculations.values().iterator(); it.hasNext();) {
+            Speculation s = it.next();
+            if (s.key.getSeat() != seat && s.waiting == null) {
+                s.future.cancel(false);
+                it.remove();
+            }
+        }
+    }
+
+    private void clear() {
+        for (Speculation s : speculations.values())
+            s.future.cancel(false);
+        speculations.clear();
+    }
+
+    // The held tile with id, or the fallback of AiController
+    private Tile tileInHand(Decision decision, int id) {
+        List<Tile> hand = engine.getTable().getPlayer(decision.getSeat()).getHand();
+        for (Tile t : hand) {
+            if (t.getId() == id)
+                return t;
+        }
+        return decision.getTile() != null ? decision.getTile() : hand.get(0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.allentx.changchunmahjong.logic;
+
+import com.allentx.changchunmahjong.model.HandSummary;
+import com.allentx.changchunmahjong.model.Tile;
+
+/**
+ * The discards one seat could claim, as 34-bit masks over tile ids: Hu, Peng,
+ * Ming Gang and Chi. They depend only on the seat's own hand and melds, so
+ * they are rebuilt when {@link HandSummary#getHash()} changes and every other
+ * discard is answered with a bit test.
+ *
+ * Hand-lock and meld-limit rules are left to the caller; the masks only say
+ * what the tiles allow.
+ */
+public final class ClaimMasks {
+    private boolean valid;
+    private long hash;
+    private long huMask;
+    private long pengMask;
+    private long mingGangMask;
+    private long gangKeepsWaitMask; // Ming Gang tiles that leave the wait unchanged
+    private long chiMask;
+
+    /**
+     * Brings the masks up to date with the hand; a no-op unless the hand or
+     * melds changed since the last call.
+     */
+    public void update(HandSummary summary) {
+        if (valid && summary.getHash() == hash)
+            return;
+        hash = summary.getHash();
+        valid = true;
+
+        int[] counts = summary.copyCounts();
+        huMask = HandCache.current().waitMask(hash, counts, summary.getMeldCount(), summary.getMeldFlags());
+        pengMask = 0;
+        mingGangMask = 0;
+        gangKeepsWaitMask = 0;
+        chiMask = 0;
+        for (int id = 0; id < HuEvaluator.TILE_TYPES; id++) {
+            if (counts[id] >= 2)
+                pengMask |= 1L << id;
+            if (counts[id] >= 3) {
+                mingGangMask |= 1L << id;
+                if (!RuleValidatorHelper.wouldGangAffectWait(counts.clone(), summary.getMeldCount(),
+                        summary.getMeldFlags(), Tile.byId(id), false))
+                    gangKeepsWaitMask |= 1L << id;
+            }
+            if (id < 27 && canChi(counts, id))
+                chiMask |= 1L << id;
+        }
+    }
+
+    // Discards that complete a Hu
+    public long getHuMask() {
+        return huMask;
+    }
+
+    public long getPengMask() {
+        return pengMask;
+    }
+
+    /**
+     * @param handLocked Locked hands (DaBao / ViewBao) may only Gang when the
+     *                   wait stays the same
+     */
+    public long getMingGangMask(boolean handLocked) {
+        return handLocked ? mingGangMask & gangKeepsWaitMask : mingGangMask;
+    }
+
+    // Discards that form a sequence with two tiles in hand (any seat; Chi is upper house only)
+    public long getChiMask() {
+        return chiMask;
+    }
+
+    // Same neighbour test as RuleValidatorHelper.canChi(HandSummary, Tile)
+    private static boolean canChi(int[] counts, int id) {
+        int rank = id % 9 + 1;
+        return (rank >= 3 && counts[id - 2] > 0 && counts[id - 1] > 0)
+                || (rank >= 2 && rank <= 8 && counts[id - 1] > 0 && counts[id + 1] > 0)
+                || (rank <= 7 && counts[id + 1] > 0 && counts[id + 2] > 0);
+    }
+}
@@ -0,0 +1,252 @@
+package com.allentx.changchunmahjong.logic;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Per-suit lookup tables for standard-hand checks.
+ *
+ * A suit is keyed by its count pattern in base 5: digit r is the number of
+ * copies of rank r + 1 (0-4), so a numbered suit has 9 digits and the honor
+ * suit 7. Each entry records which "N sets + optional pair" decompositions the
+ * pattern allows and whether one of them satisfies the Changchun triplet rule
+ * (a triplet, or for honors a dragon pair). N is implied by the tile count.
+ *
+ * The tables are generated at build time into a resource (see
+ * app/build.gradle). This class is also compiled into buildSrc to do that, so
+ * it must not depend on any other app class.
+ */
+public final class DecompositionTable {
+    public static final int SETS = 1; // Splits into sets only
+    public static final int SETS_QUALIFIED = 2; // ... with at least one triplet
+    public static final int PAIR = 4; // Splits into sets + one pair
+    public static final int PAIR_QUALIFIED = 8; // ... with a triplet or a dragon pair
+
+    public static final String RESOURCE = "decomposition_tables.bin";
+
+    public static final int NUMBER_RANKS = 9;
+    public static final int HONOR_RANKS = 7;
+
+    private static final int MAGIC = 0x43434454; // "CCDT"
+    private static final int VERSION = 1;
+    private static final int MAX_TILES = 14;
+    private static final int FIRST_DRAGON_INDEX = 4; // Zhong, Fa, Bai are honor ranks 5-7
+
+    static final int[] POW5 = { 1, 5, 25, 125, 625, 3125, 15625, 78125, 390625 };
+
+    private final int[] keys;
+    private final byte[] flags;
+    private final int mask;
+    private final int shift;
+
+    private DecompositionTable(int[] entryKeys, byte[] entryFlags, int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2) << 1;
+        keys = new int[capacity];
+        flags = new byte[capacity];
+        mask = capacity - 1;
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        java.util.Arrays.fill(keys, -1);
+        for (int i = 0; i < size; i++) {
+            int slot = slot(entryKeys[i]);
+            while (keys[slot] != -1)
+                slot = (slot + 1) & mask;
+            keys[slot] = entryKeys[i];
+            flags[slot] = entryFlags[i];
+        }
+    }
+
+    /**
+     * Returns the decomposition flags for a suit key, or 0 if the pattern cannot
+     * be split into sets (with or without a pair).
+     */
+    public int lookup(int key) {
+        int slot = slot(key);
+        while (true) {
+            int k = keys[slot];
+            if (k == key)
+                return flags[slot];
+            if (k == -1)
+                return 0;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B1) >>> shift;
+    }
+
+    public static DecompositionTable numbers() {
+        return Holder.NUMBERS;
+    }
+
+    public static DecompositionTable honors() {
+        return Holder.HONORS;
+    }
+
+    // Loaded on first use; falls back to building in memory when the generated
+    // resource is not on the classpath (e.g. plain javac builds).
+    private static final class Holder {
+        static final DecompositionTable NUMBERS;
+        static final DecompositionTable HONORS;
+
+        static {
+            DecompositionTable[] tables = load();
+            if (tables == null) {
+                tables = new DecompositionTable[] { build(false), build(true) };
+            }
+            NUMBERS = tables[0];
+            HONORS = tables[1];
+        }
+    }
+
+    private static DecompositionTable[] load() {
+        InputStream raw = DecompositionTable.class.getResourceAsStream(RESOURCE);
+        if (raw == null)
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION)
+                return null;
+            return new DecompositionTable[] { readSection(in), readSection(in) };
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static DecompositionTable readSection(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        int[] entryKeys = new int[size];
+        byte[] entryFlags = new byte[size];
+        int key = 0;
+        for (int i = 0; i < size; i++) {
+            int packed = readVarInt(in);
+            key += packed >>> 4;
+            entryKeys[i] = key;
+            entryFlags[i] = (byte) (packed & 0xF);
+        }
+        return new DecompositionTable(entryKeys, entryFlags, size);
+    }
+
+    /**
+     * Writes both tables in the resource format: a header, then for the numbered
+     * and honor sections an entry count followed by ascending keys, each stored
+     * as a varint of (key delta << 4 | flags).
+     */
+    public static void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        writeSection(data, false);
+        writeSection(data, true);
+        data.flush();
+    }
+
+    private static void writeSection(DataOutputStream out, boolean honors) throws IOException {
+        int digits = honors ? HONOR_RANKS : NUMBER_RANKS;
+        int limit = POW5[digits - 1] * 5;
+        int size = 0;
+        for (int key = 0; key < limit; key++) {
+            if (analyse(key, digits, honors) != 0)
+                size++;
+        }
+        out.writeInt(size);
+        int previous = 0;
+        for (int key = 0; key < limit; key++) {
+            int f = analyse(key, digits, honors);
+            if (f != 0) {
+                writeVarInt(out, ((key - previous) << 4) | f);
+                previous = key;
+            }
+        }
+    }
+
+    private static DecompositionTable build(boolean honors) {
+        int digits = honors ? HONOR_RANKS : NUMBER_RANKS;
+        int limit = POW5[digits - 1] * 5;
+        int[] entryKeys = new int[1024];
+        byte[] entryFlags = new byte[1024];
+        int size = 0;
+        for (int key = 0; key < limit; key++) {
+            int f = analyse(key, digits, honors);
+            if (f == 0)
+                continue;
+            if (size == entryKeys.length) {
+                entryKeys = java.util.Arrays.copyOf(entryKeys, size * 2);
+                entryFlags = java.util.Arrays.copyOf(entryFlags, size * 2);
+            }
+            entryKeys[size] = key;
+            entryFlags[size] = (byte) f;
+            size++;
+        }
+        return new DecompositionTable(entryKeys, entryFlags, size);
+    }
+
+    private static int analyse(int key, int digits, boolean honors) {
+        int[] counts = new int[digits];
+        int total = 0;
+        for (int r = 0; r < digits; r++) {
+            counts[r] = (key / POW5[r]) % 5;
+            total += counts[r];
+        }
+        if (total > MAX_TILES || total % 3 == 1)
+            return 0;
+        return search(counts, 0, false, false, honors);
+    }
+
+    private static int search(int[] counts, int from, boolean pairUsed, boolean qualified, boolean honors) {
+        int first = from;
+        while (first < counts.length && counts[first] == 0)
+            first++;
+        if (first == counts.length) {
+            if (pairUsed)
+                return qualified ? (PAIR | PAIR_QUALIFIED) : PAIR;
+            return qualified ? (SETS | SETS_QUALIFIED) : SETS;
+        }
+
+        int result = 0;
+        if (!pairUsed && counts[first] >= 2) {
+            counts[first] -= 2;
+            boolean dragonPair = honors && first >= FIRST_DRAGON_INDEX;
+            result |= search(counts, first, true, qualified || dragonPair, honors);
+            counts[first] += 2;
+        }
+        if (counts[first] >= 3) {
+            counts[first] -= 3;
+            result |= search(counts, first, pairUsed, true, honors);
+            counts[first] += 3;
+        }
+        if (!honors && first + 2 < counts.length && counts[first + 1] > 0 && counts[first + 2] > 0) {
+            counts[first]--;
+            counts[first + 1]--;
+            counts[first + 2]--;
+            result |= search(counts, first, pairUsed, qualified, honors);
+            counts[first]++;
+            counts[first + 1]++;
+            counts[first + 2]++;
+        }
+        return result;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.allentx.changchunmahjong.logic;
+
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.model.Zobrist;
+import java.util.List;
+
+/**
+ * Discard search that looks a few draws ahead: the seat picks the discard
+ * with the best expected outcome, where each draw is weighted by the live
+ * copies of that tile and the hand is scored by shanten and ukeire (the live
+ * tiles that would lower the shanten) once the look-ahead runs out.
+ *
+ * Values are in shanten units: a Hu is 1, a Tenpai hand 0 plus its share of
+ * live tiles that complete it, a 1-shanten hand -1 plus its share of
+ * improving tiles, and so on.
+ *
+ * Only the seat's own draws are searched. Live counts come from the tiles
+ * visible at the root and the hand at each node, so a node's value depends on
+ * its hand alone; a transposition table keyed by the hand's {@link Zobrist}
+ * hash reuses it whatever order the tiles came in. Draws that cannot join the
+ * hand or fill a missing suit or Yao Jiu are taken as drawn and thrown back.
+ * Inner nodes only consider discards that keep the best shanten.
+ *
+ * Searches deepen one draw at a time until the time budget or the depth limit
+ * is reached; the discard of the deepest finished pass is returned. An
+ * instance keeps its table between searches and is not thread-safe.
+ */
+public class ExpectimaxStrategy {
+    public static final int DEFAULT_MAX_DEPTH = 3;
+    // A 300 ms search visits about 5k nodes, so 2^15 slots (under 1 MB in all)
+    // leave room for longer budgets without holding megabytes between searches
+    private static final int DEFAULT_TABLE_BITS = 15;
+    private static final int ID_FIRST_ZI = 27;
+    private static final int CLOCK_INTERVAL = 256; // Nodes between deadline checks
+
+    // Transposition table: one slot per (hash, node kind, depth) index, replaced on collision
+    private static final int DECIDE = 8; // Tag bit of hands about to discard
+    private final long[] keys;
+    private final double[] values;
+    private final int[] tags; // Search generation << 4 | kind | depth; 0 = empty
+    private final int tableMask;
+    private int generation;
+
+    // Shanten by hash; independent of the visible tiles, so kept across searches
+    private final long[] shantenKeys;
+    private final byte[] shantenValues; // Shanten + 2; 0 = empty
+    private final HandCache handCache = new HandCache();
+
+    // Current search
+    private final int[] counts = new int[HuEvaluator.TILE_TYPES];
+    private final int[] seen = new int[HuEvaluator.TILE_TYPES];
+    private final HandAnalyzer.Result[] analyses = new HandAnalyzer.Result[DEFAULT_MAX_DEPTH + 2]; // Per depth, root last
+    private int meldCount;
+    private int meldFlags;
+    private long meldKey;
+    private long deadline;
+    private int clock;
+    private long nodes;
+    private double rootValue;
+
+    private static final class Timeout extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Timeout() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Timeout TIMEOUT = new Timeout();
+
+    public ExpectimaxStrategy() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * @param tableBits The transposition table holds 2^tableBits entries
+     */
+    public ExpectimaxStrategy(int tableBits) {
+        int size = 1 << tableBits;
+        keys = new long[size];
+        values = new double[size];
+        tags = new int[size];
+        tableMask = size - 1;
+        shantenKeys = new long[size];
+        shantenValues = new byte[size];
+        for (int i = 0; i < analyses.length; i++)
+            analyses[i] = new HandAnalyzer.Result();
+    }
+
+    /**
+     * Outcome of a search: the discard and its expected value.
+     */
+    public static final class Result {
+        private int discard = -1;
+        private double value;
+        private int depth = -1;
+        private long nodes;
+
+        // Tile id to discard, -1 if the hand was empty
+        public int getDiscard() {
+            return discard;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        // Draws looked ahead by the pass that chose the discard
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+    }
+
+    /**
+     * Recommends a tile to discard from a full hand.
+     *
+     * @param seenCounts Copies of each tile type visible outside this hand
+     * @return A tile from the hand, or null if it is empty
+     */
+    public Tile recommendDiscard(List<Tile> hand, List<Meld> melds, int[] seenCounts, long budgetNanos) {
+        if (hand == null || hand.isEmpty())
+            return null;
+        Result result = search(HuEvaluator.toCounts(hand), melds.size(), HuEvaluator.meldFlags(melds), seenCounts,
+                DEFAULT_MAX_DEPTH, budgetNanos);
+        for (Tile t : hand) {
+            if (t.getId() == result.discard)
+                return t;
+        }
+        return hand.get(0);
+    }
+
+    /**
+     * Searches a hand that is about to discard (14 logical tiles). The
+     * zero-draw pass always completes; deeper passes count only if they
+     * finish within the budget.
+     *
+     * @param handCounts Tiles in hand (excluding fixed melds); not modified
+     * @param maxDepth   Draws to look ahead at most
+     */
+    public Result search(int[] handCounts, int meldCount, int meldFlags, int[] seenCounts, int maxDepth,
+            long budgetNanos) {
+        System.arraycopy(seenCounts, 0, seen, 0, HuEvaluator.TILE_TYPES);
+        this.meldCount = meldCount;
+        this.meldFlags = meldFlags;
+        this.meldKey = Zobrist.meldKey(meldCount, meldFlags);
+        // Live counts change with the visible tiles, so earlier entries are stale
+        generation++;
+        if ((generation << 4) >>> 4 != generation)
+            generation = 1;
+        deadline = System.nanoTime() + budgetNanos;
+        nodes = 0;
+
+        Result result = new Result();
+        maxDepth = Math.min(maxDepth, DEFAULT_MAX_DEPTH);
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            System.arraycopy(handCounts, 0, counts, 0, HuEvaluator.TILE_TYPES);
+            try {
+                result.discard = root(depth, depth > 0);
+                result.value = rootValue;
+                result.depth = depth;
+            } catch (Timeout e) {
+                break;
+            }
+        }
+        result.nodes = nodes;
+        return result;
+    }
+
+    // Best discard at the root; every distinct tile is a candidate
+    private int root(int depth, boolean timed) {
+        clock = timed ? 0 : Integer.MIN_VALUE;
+        long hash = Zobrist.hashCounts(counts) ^ meldKey;
+        HandAnalyzer.Result analysis = HandAnalyzer.analyze(counts, meldCount, meldFlags, seen,
+                analyses[analyses.length - 1]);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (long m = analysis.getDiscardMask(); m != 0; m &= m - 1) {
+            int d = Long.numberOfTrailingZeros(m);
+            long h = Zobrist.removeTile(hash, d, counts[d]);
+            counts[d]--;
+            double v = chance(h, depth);
+            counts[d]++;
+            if (v > bestValue) {
+                bestValue = v;
+                best = d;
+            }
+        }
+        rootValue = bestValue;
+        return best;
+    }
+
+    // Hand about to discard with 'depth' draws still to look at
+    private double decide(long hash, int depth) {
+        tick();
+        int slot = slot(hash, DECIDE | depth);
+        int tag = generation << 4 | DECIDE | depth;
+        if (tags[slot] == tag && keys[slot] == hash)
+            return values[slot];
+
+        double best = decideUncached(hash, depth);
+        keys[slot] = hash;
+        values[slot] = best;
+        tags[slot] = tag;
+        return best;
+    }
+
+    private double decideUncached(long hash, int depth) {
+        if (handCache.isHu(hash, counts, meldCount, meldFlags))
+            return 1;
+        HandAnalyzer.Result analysis = HandAnalyzer.analyze(counts, meldCount, meldFlags, seen, analyses[depth + 1]);
+        int bestShanten = analysis.getBestShanten();
+        double best = Double.NEGATIVE_INFINITY;
+        for (long m = analysis.getDiscardMask(); m != 0; m &= m - 1) {
+            int d = Long.numberOfTrailingZeros(m);
+            if (analysis.getShanten(d) != bestShanten)
+                continue;
+            long h = Zobrist.removeTile(hash, d, counts[d]);
+            counts[d]--;
+            double v = chance(h, depth);
+            counts[d]++;
+            best = Math.max(best, v);
+        }
+        return best;
+    }
+
+    // Hand about to draw (13 logical tiles)
+    private double chance(long hash, int depth) {
+        tick();
+        int slot = slot(hash, depth);
+        int tag = generation << 4 | depth;
+        if (tags[slot] == tag && keys[slot] == hash)
+            return values[slot];
+
+        double value;
+        if (depth == 0) {
+            value = leaf(hash);
+        } else {
+            int total = 0;
+            int thrownBack = 0;
+            double sum = 0;
+            int flags = handFlags();
+            for (int t = 0; t < HuEvaluator.TILE_TYPES; t++) {
+                int live = live(t);
+                if (live == 0)
+                    continue;
+                total += live;
+                if (!relevant(t, flags)) {
+                    thrownBack += live;
+                    continue;
+                }
+                long h = Zobrist.addTile(hash, t, counts[t]);
+                counts[t]++;
+                sum += live * decide(h, depth - 1);
+                counts[t]--;
+            }
+            if (total == 0) {
+                value = leaf(hash);
+            } else {
+                if (thrownBack > 0)
+                    sum += thrownBack * chance(hash, depth - 1);
+                value = sum / total;
+            }
+        }
+
+        keys[slot] = hash;
+        values[slot] = value;
+        tags[slot] = tag;
+        return value;
+    }
+
+    // Shanten and ukeire of a hand about to draw
+    private double leaf(long hash) {
+        int shanten = shanten(hash);
+        int flags = handFlags();
+        int total = 0;
+        int ukeire = 0;
+        for (int t = 0; t < HuEvaluator.TILE_TYPES; t++) {
+            int live = live(t);
+            if (live == 0)
+                continue;
+            total += live;
+            if (!relevant(t, flags))
+                continue;
+            long h = Zobrist.addTile(hash, t, counts[t]);
+            counts[t]++;
+            boolean improves = shanten(h) < shanten;
+            counts[t]--;
+            if (improves)
+                ukeire += live;
+        }
+        return -shanten + (total == 0 ? 0 : (double) ukeire / total);
+    }
+
+    private int shanten(long hash) {
+        int slot = (int) (hash ^ (hash >>> 32)) & tableMask;
+        if (shantenKeys[slot] == hash && shantenValues[slot] != 0)
+            return shantenValues[slot] - 2;
+        int shanten = ShantenCalculator.shanten(counts, meldCount, meldFlags);
+        shantenKeys[slot] = hash;
+        shantenValues[slot] = (byte) (shanten + 2);
+        return shanten;
+    }
+
+    // Copies not visible at the root and not in the hand
+    private int live(int id) {
+        return Math.max(0, Tile.COPIES - seen[id] - counts[id]);
+    }
+
+    // Suit and Yao Jiu flags of the hand and melds
+    private int handFlags() {
+        int flags = meldFlags;
+        for (int i = 0; i < HuEvaluator.TILE_TYPES; i++) {
+            if (counts[i] > 0)
+                flags |= HuEvaluator.tileFlags(i);
+        }
+        return flags;
+    }
+
+    // A draw that can join a set or pair, or supply a missing suit or Yao Jiu
+    private boolean relevant(int id, int flags) {
+        if (counts[id] > 0)
+            return true;
+        int tileFlags = HuEvaluator.tileFlags(id);
+        if ((tileFlags & ~flags) != 0)
+            return true;
+        if (id >= ID_FIRST_ZI)
+            return false;
+        int rank = id % 9;
+        return (rank >= 1 && counts[id - 1] > 0) || (rank >= 2 && counts[id - 2] > 0)
+                || (rank <= 7 && counts[id + 1] > 0) || (rank <= 6 && counts[id + 2] > 0);
+    }
+
+    private int slot(long hash, int depth) {
+        long h = hash + depth * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 29)) & tableMask;
+    }
+
+    private void tick() {
+        nodes++;
+        if (++clock >= CLOCK_INTERVAL) {
+            clock = 0;
+            if (System.nanoTime() >= deadline)
+                throw TIMEOUT;
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package com.allentx.changchunmahjong.logic;
 
-import android.util.Log;
+import com.allentx.changchunmahjong.model.Meld;
 import com.allentx.changchunmahjong.model.Player;
 import com.allentx.changchunmahjong.model.Table;
 import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
+/**
+ * Table operations for one game: dealing, drawing, discarding, melds and Bao.
+ * Plain Java so it can run off the UI thread; turn order and claims are driven
+ * by {@link com.allentx.changchunmahjong.engine.GameEngine}.
+ */
 public class GameManager {
-    private static final String TAG = "GameManager";
     private final Table table;
-    private final Random random;
+    private final RandomSource random;
 
     public GameManager() {
-        this.table = new Table();
-        this.random = new Random();
+        this(RandomSource.create());
+    }
+
+    /**
+     * @param random Source for the shuffle and dice; seed it to replay a game
+     *               exactly
+     */
+    public GameManager(RandomSource random) {
+        this.table = new Table(random.split());
+        this.random = random;
     }
 
     private int currentPlayerIndex;
@@ -29,31 +41,106 @@ public class GameManager {
         return t;
     }
 
+    // Replacement draw after a Gang, taken from the back of the wall
+    public Tile drawReplacementTile() {
+        Tile t = table.drawFromWallBack();
+        if (t != null) {
+            table.getPlayer(currentPlayerIndex).addTile(t);
+        }
+        return t;
+    }
+
     public void discardTile(int playerIndex, Tile tile) {
         Player p = table.getPlayer(playerIndex);
 
         // Hand Locking Rule: If player has DaBao'ed, they can ONLY discard the drawn
-        // tile
-        if (p.isHandLocked()) {
-            // In GameActivity, the tile being discarded is naturally the drawn one if ui
-            // allows,
-            // but we enforce it here for safety.
-            Log.d(TAG, "Player " + playerIndex + " is locked. Discarding: " + tile.getChineseName());
-        }
-
-        if (p.getHand().contains(tile)) {
-            p.removeTile(tile);
+        // tile. GameEngine only offers that tile to locked players.
+        if (p.removeTile(tile) != null) {
             p.addDiscard(tile);
             table.addDiscard(tile); // Add to communal area
         }
     }
 
+    /**
+     * Claims the latest discard as a Chi with two neighbours from the hand.
+     */
+    public Meld executeChi(int playerIndex, int fromPlayer) {
+        Player p = table.getPlayer(playerIndex);
+        List<Tile> discards = table.getDiscards();
+        Tile t = discards.get(discards.size() - 1);
+
+        // Find which neighbors to use
+        int r = t.getRank();
+        int lowest;
+        if (has(p, t.getSuit(), r - 1) && has(p, t.getSuit(), r - 2)) {
+            lowest = r - 2;
+        } else if (has(p, t.getSuit(), r - 1) && has(p, t.getSuit(), r + 1)) {
+            lowest = r - 1;
+        } else {
+            lowest = r;
+        }
+        return executeChi(playerIndex, fromPlayer, Tile.of(t.getSuit(), lowest));
+    }
+
+    /**
+     * Claims the latest discard as the Chi starting at lowest (e.g. when
+     * replaying a recorded hand).
+     */
+    public Meld executeChi(int playerIndex, int fromPlayer, Tile lowest) {
+        Player p = table.getPlayer(playerIndex);
+        Tile t = table.takeLastDiscard(); // Stays in the discarder's own pile
+        List<Tile> meldList = new ArrayList<>();
+        meldList.add(t);
+        for (int r = lowest.getRank(); r < lowest.getRank() + 3; r++) {
+            if (r != t.getRank())
+                meldList.add(p.removeTile(Tile.of(t.getSuit(), r)));
+        }
+        return addMeld(p, Meld.Type.CHI, meldList, fromPlayer);
+    }
+
+    /**
+     * Claims the latest discard as a Peng (two matching tiles from the hand) or
+     * Ming Gang (three). A Gang still needs {@link #drawReplacementTile()}.
+     */
+    public Meld executeClaim(int playerIndex, Meld.Type type, int fromPlayer) {
+        Player p = table.getPlayer(playerIndex);
+        Tile t = table.takeLastDiscard(); // Stays in the discarder's own pile
+        List<Tile> meldList = new ArrayList<>();
+        meldList.add(t);
+        int fromHand = (type == Meld.Type.MING_GANG) ? 3 : 2;
+        for (int i = 0; i < fromHand; i++)
+            meldList.add(p.removeTile(t));
+        return addMeld(p, type, meldList, fromPlayer);
+    }
+
+    /**
+     * Lays down four concealed copies of tile. Needs a replacement draw after.
+     */
+    public Meld executeAnGang(int playerIndex, Tile tile) {
+        Player p = table.getPlayer(playerIndex);
+        List<Tile> meldList = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            meldList.add(p.removeTile(tile));
+        return addMeld(p, Meld.Type.AN_GANG, meldList, -1);
+    }
+
+    private Meld addMeld(Player p, Meld.Type type, List<Tile> tiles, int fromPlayer) {
+        Meld meld = new Meld(type, tiles, fromPlayer);
+        table.addMeld(p.getSeatIndex(), meld);
+        currentPlayerIndex = p.getSeatIndex();
+        return meld;
+    }
+
+    private static boolean has(Player p, Tile.Suit suit, int rank) {
+        return rank >= 1 && rank <= 9 && p.getSummary().getCount(Tile.of(suit, rank)) > 0;
+    }
+
     public Tile executeDaBao(int playerIndex) {
         Player p = table.getPlayer(playerIndex);
         if (table.getBaoOwnerIndex() != -1)
             return null; // Already has a Bao owner
 
-        Tile drawn = table.drawFromWall();
+        Tile drawn = table.drawFromWallBack(); // Bao is taken from the back of the wall
         if (drawn != null) {
             table.setBaoTile(drawn);
             table.setBaoOwnerIndex(playerIndex);
@@ -72,25 +159,10 @@ public class GameManager {
         }
     }
 
+    // All four copies of the Bao are in discards or melds
     public boolean isBaoExhausted() {
         Tile currentBao = table.getBaoTile();
-        if (currentBao == null)
-            return false;
-
-        int count = 0;
-        for (Tile d : table.getDiscards()) {
-            if (d.equals(currentBao))
-                count++;
-        }
-        for (int i = 0; i < 4; i++) {
-            for (com.allentx.changchunmahjong.model.Meld m : table.getPlayer(i).getMelds()) {
-                for (Tile t : m.getTiles()) {
-                    if (t.equals(currentBao))
-                        count++;
-                }
-            }
-        }
-        return count >= 4;
+        return currentBao != null && table.getVisibleTiles().getCount(currentBao) >= Tile.COPIES;
     }
 
     public int getNextEligibleBaoPlayer(int startFromIndex) {
@@ -106,7 +178,7 @@ public class GameManager {
     }
 
     public Tile replaceBao(int playerIndex) {
-        Tile newBao = table.drawFromWall();
+        Tile newBao = table.drawFromWallBack();
         if (newBao != null) {
             table.setBaoTile(newBao);
         }
@@ -138,58 +210,53 @@ public class GameManager {
      * 4. Deal Tiles (13/14)
      */
     public void startGame(int bankerIndex) {
-        Log.d(TAG, "Starting Game with Banker: " + bankerIndex);
         table.setBankerIndex(bankerIndex);
         table.startRound(); // Shuffles and resets
 
         // --- 2. Roll Dice 1 ---
         // Range 2-12
         int dice1 = rollDice();
-        Log.d(TAG, "Dice 1: " + dice1);
-
-        // Determine Wall Owner.
-        // Count from Banker (East). 1=East, 2=North, 3=West, 4=South, 5=East...
-        // Formula: (BankerIndex + (dice1 - 1)) % 4
-        int wallOwnerIndex = (table.getBankerIndex() + (dice1 - 1)) % 4;
-        Log.d(TAG, "Wall Owner Index: " + wallOwnerIndex);
 
         // --- 3. Roll Dice 2 ---
         int dice2 = rollDice();
-        Log.d(TAG, "Dice 2: " + dice2);
+
+        breakAndDeal(dice1, dice2);
+
+        // Game is now in "Playing" state (Dealer needs to discard)
+    }
+
+    /**
+     * Starts a recorded hand: the deck order and dice are given instead of
+     * shuffled and rolled.
+     *
+     * @param deckOrder Physical tile indices, see {@link Table#startRound(byte[])}
+     */
+    public void startGame(int bankerIndex, byte[] deckOrder, int dice1, int dice2) {
+        table.setBankerIndex(bankerIndex);
+        table.startRound(deckOrder);
+        breakAndDeal(dice1, dice2);
+    }
+
+    /**
+     * Seat whose side of the wall is broken. Count from Banker (East):
+     * 1=East, 2=North, 3=West, 4=South, 5=East...
+     */
+    public static int getWallOwnerIndex(int bankerIndex, int dice1) {
+        return (bankerIndex + (dice1 - 1)) % 4;
+    }
+
+    private void breakAndDeal(int dice1, int dice2) {
+        // Determine Wall Owner from dice 1
+        int wallOwnerIndex = getWallOwnerIndex(table.getBankerIndex(), dice1);
 
         // Breach Point: Count 'dice2' stacks from right of Wall Owner.
-        // In a physical game, this determines WHERE in the wall we start taking.
-        // In our logical List<Tile> wall, we can simulate this by rotating the list
-        // OR simply by popping from the top, assuming 'shuffle' did the randomization.
-        // BUT to be "Authentic" (visually), we might want to track the index.
-        // For logic (v1), we will just accept the shuffled list as the "Breach
-        // Corrected" list.
-        // If we want to simulate the "Cut", we can shift the list.
-
-        // Let's shift the list to simulate the Cut.
-        // There are 34 stacks per wall (136 / 4 = 34).
-        // Total stacks = 68 (since 2 high). Total tiles = 136.
-        // "Right side" depends on orientation.
-        // For simplicity: We treat the List<Tile> as a continuous ring starting from
-        // East Wall left.
-        // We will just Collections.rotate the list based on the dice to strictly follow
-        // "Random Cut".
-
-        // Cut amount ~ (wallOwner * 34) + dice2 * 2;
-        // This is complex to perfect without visual wall data.
-        // For now, SHUFFLE is sufficient randomness.
-        // We will proceed to Deal.
+        // The wall is a ring of 4 sides x 17 stacks x 2 tiles (136). Drawing starts
+        // at the cut and moves forward; replacement tiles come from the other end.
+        table.cutWall(dice1, dice2, wallOwnerIndex);
 
         // --- 4. Deal ---
+        // Hands stay sorted as tiles are added
         dealTiles();
-
-        // --- 5. Sort Hands ---
-        for (int i = 0; i < 4; i++) {
-            table.getPlayer(i).sortHand();
-        }
-
-        // Game is now in "Playing" state (Dealer needs to discard)
-        Log.d(TAG, "Deal Complete. Banker Hand Size: " + table.getPlayer(table.getBankerIndex()).getHand().size());
     }
 
     private void dealTiles() {
@@ -197,7 +264,6 @@ public class GameManager {
         // 3 rounds of 4 tiles = 12 tiles.
         // Then "Jump Deal" (Tiao Pai): Banker takes 2, others take 1.
 
-        List<Tile> wall = table.getWall();
         int banker = table.getBankerIndex();
 
         // 3 rounds of 4
@@ -205,7 +271,7 @@ public class GameManager {
             for (int p = 0; p < 4; p++) {
                 int seat = (banker + p) % 4; // Follows 0->1->2->3 sequence
                 for (int t = 0; t < 4; t++) {
-                    table.getPlayer(seat).addTile(wall.remove(0));
+                    table.getPlayer(seat).addTile(table.drawFromWall());
                 }
             }
         }
@@ -226,11 +292,11 @@ public class GameManager {
         // Round 4: Everyone takes 1
         for (int p = 0; p < 4; p++) {
             int seat = (banker + p) % 4;
-            table.getPlayer(seat).addTile(wall.remove(0));
+            table.getPlayer(seat).addTile(table.drawFromWall());
         }
 
         // Round 5: Banker takes one more
-        table.getPlayer(banker).addTile(wall.remove(0));
+        table.getPlayer(banker).addTile(table.drawFromWall());
 
         // Set current turn to Banker
         currentPlayerIndex = banker;
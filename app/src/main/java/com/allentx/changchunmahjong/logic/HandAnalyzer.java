@@ -0,0 +1,182 @@
+package com.allentx.changchunmahjong.logic;
+
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.List;
+
+/**
+ * Discard analysis for a hand that is about to discard (14 logical tiles).
+ *
+ * For every distinct tile in hand it reports what discarding one copy leaves:
+ * the shanten, the wait mask (see {@link HuEvaluator#waitMask}) and how many
+ * copies of those waits are still live. The per-suit decomposition and shanten
+ * tables of the full hand are looked up once; each discard only re-derives the
+ * suit it is taken from.
+ */
+public class HandAnalyzer {
+    private static final int ID_FIRST_ZI = 27;
+
+    /**
+     * Per-discard results indexed by tile id. Entries are only meaningful for ids
+     * in {@link #getDiscardMask()}. A Result can be reused across calls.
+     */
+    public static final class Result {
+        private long discardMask;
+        private int bestShanten;
+        private final int[] shanten = new int[HuEvaluator.TILE_TYPES];
+        private final long[] waits = new long[HuEvaluator.TILE_TYPES];
+        private final int[] liveCounts = new int[HuEvaluator.TILE_TYPES];
+
+        /** Distinct tiles that can be discarded, as a mask over tile ids. */
+        public long getDiscardMask() {
+            return discardMask;
+        }
+
+        /** Discards that leave the hand Tenpai. */
+        public long getTenpaiDiscardMask() {
+            long mask = 0;
+            for (long m = discardMask; m != 0; m &= m - 1) {
+                int id = Long.numberOfTrailingZeros(m);
+                if (waits[id] != 0)
+                    mask |= 1L << id;
+            }
+            return mask;
+        }
+
+        public boolean canDiscard(int id) {
+            return (discardMask & (1L << id)) != 0;
+        }
+
+        /** Shanten after discarding tile id. */
+        public int getShanten(int id) {
+            return shanten[id];
+        }
+
+        /** Lowest shanten reachable with one discard. */
+        public int getBestShanten() {
+            return bestShanten;
+        }
+
+        /** Wait mask after discarding tile id; 0 if that leaves no Tenpai. */
+        public long getWaitMask(int id) {
+            return waits[id];
+        }
+
+        /** Unseen copies of the waits after discarding tile id. */
+        public int getLiveCount(int id) {
+            return liveCounts[id];
+        }
+    }
+
+    /**
+     * @param hand  Tiles in hand (excluding fixed melds)
+     * @param melds Exposed melds
+     * @param seen  Tiles visible outside this hand (discards, all exposed melds)
+     */
+    public static Result analyze(List<Tile> hand, List<Meld> melds, List<Tile> seen) {
+        int[] seenCounts = seen == null ? null : HuEvaluator.toCounts(seen);
+        return analyze(HuEvaluator.toCounts(hand), melds.size(), HuEvaluator.meldFlags(melds), seenCounts,
+                new Result());
+    }
+
+    /**
+     * Analyzes every distinct discard of a count vector.
+     *
+     * Live counts are 4 minus the copies in 'seenCounts' (may be null) and in
+     * this hand, so the discarded tile itself counts as gone.
+     *
+     * @param counts Tiles in hand; restored on return
+     * @param out    Result to fill
+     */
+    public static Result analyze(int[] counts, int meldCount, int meldFlags, int[] seenCounts, Result out) {
+        int handSize = 0;
+        int yaoJiuTiles = 0;
+        for (int i = 0; i < HuEvaluator.TILE_TYPES; i++) {
+            handSize += counts[i];
+            if ((HuEvaluator.tileFlags(i) & HuEvaluator.MELD_YAO_JIU) != 0)
+                yaoJiuTiles += counts[i];
+        }
+        boolean leavesThirteen = meldCount * 3 + handSize - 1 == 13;
+
+        // Whole-hand decomposition shared by every discard
+        int[] keys = new int[4];
+        int[] sizes = new int[4];
+        int[] suitFlags = new int[4];
+        boolean inTableRange = true;
+        for (int suit = 0; suit < 4; suit++) {
+            keys[suit] = HuEvaluator.suitKey(counts, suit);
+            inTableRange &= keys[suit] >= 0;
+            sizes[suit] = HuEvaluator.suitSize(counts, suit);
+            if (keys[suit] >= 0)
+                suitFlags[suit] = HuEvaluator.suitFlags(suit, keys[suit]);
+        }
+        int[][] suitTables = new int[4][];
+        for (int suit = 0; suit < 4; suit++)
+            suitTables[suit] = ShantenCalculator.suitTable(counts, suit);
+
+        int[] discardKeys = new int[4];
+        int[] discardSizes = new int[4];
+        int[] discardFlags = new int[4];
+        int[][] discardTables = new int[4][];
+
+        out.discardMask = 0;
+        out.bestShanten = Integer.MAX_VALUE;
+        for (int d = 0; d < HuEvaluator.TILE_TYPES; d++) {
+            out.shanten[d] = 0;
+            out.waits[d] = 0;
+            out.liveCounts[d] = 0;
+            if (counts[d] == 0)
+                continue;
+            out.discardMask |= 1L << d;
+
+            counts[d]--;
+            long waits;
+            int shanten;
+            if (leavesThirteen && inTableRange) {
+                int suit = d < ID_FIRST_ZI ? d / 9 : 3;
+                for (int s = 0; s < 4; s++) {
+                    discardKeys[s] = keys[s];
+                    discardSizes[s] = sizes[s];
+                    discardFlags[s] = suitFlags[s];
+                    discardTables[s] = suitTables[s];
+                }
+                discardKeys[suit] -= DecompositionTable.POW5[d - suit * 9];
+                discardSizes[suit]--;
+                discardFlags[suit] = HuEvaluator.suitFlags(suit, discardKeys[suit]);
+                discardTables[suit] = ShantenCalculator.suitTable(counts, suit);
+
+                int handFlags = meldFlags;
+                if (discardSizes[0] > 0)
+                    handFlags |= HuEvaluator.MELD_WAN;
+                if (discardSizes[1] > 0)
+                    handFlags |= HuEvaluator.MELD_TIAO;
+                if (discardSizes[2] > 0)
+                    handFlags |= HuEvaluator.MELD_TONG;
+                int yaoJiuLeft = yaoJiuTiles - ((HuEvaluator.tileFlags(d) & HuEvaluator.MELD_YAO_JIU) != 0 ? 1 : 0);
+                if (yaoJiuLeft > 0)
+                    handFlags |= HuEvaluator.MELD_YAO_JIU;
+
+                waits = HuEvaluator.waitMask(counts, meldCount, meldFlags, handFlags, discardKeys, discardSizes,
+                        discardFlags);
+                shanten = ShantenCalculator.shanten(counts, meldCount, meldFlags, discardTables);
+            } else {
+                waits = HuEvaluator.waitMask(counts, meldCount, meldFlags);
+                shanten = ShantenCalculator.shanten(counts, meldCount, meldFlags);
+            }
+            counts[d]++;
+
+            int live = 0;
+            for (long m = waits; m != 0; m &= m - 1) {
+                int w = Long.numberOfTrailingZeros(m);
+                int unseen = 4 - counts[w] - (seenCounts == null ? 0 : seenCounts[w]);
+                if (unseen > 0)
+                    live += unseen;
+            }
+            out.shanten[d] = shanten;
+            out.waits[d] = waits;
+            out.liveCounts[d] = live;
+            out.bestShanten = Math.min(out.bestShanten, shanten);
+        }
+        return out;
+    }
+}
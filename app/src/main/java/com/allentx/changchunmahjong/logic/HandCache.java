@@ -0,0 +1,173 @@
+package com.allentx.changchunmahjong.logic;
+
+import com.allentx.changchunmahjong.model.Zobrist;
+import java.util.Arrays;
+
+/**
+ * Bounded cache of Hu, Tenpai and wait-mask results keyed by the
+ * {@link Zobrist} hash of a hand (tile counts plus meld signature).
+ *
+ * Entries live in fixed primitive arrays grouped into small buckets; a full
+ * bucket evicts its least recently used entry. Two different hands sharing a
+ * 64-bit hash are treated as equal.
+ *
+ * An instance is not thread-safe. {@link #current()} gives each thread its own
+ * cache, so the UI thread, AI workers and simulator workers never contend.
+ */
+public class HandCache {
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int WAYS = 4; // Entries per bucket
+
+    // Packed entry value: wait mask in the low 34 bits, then known/result bits
+    private static final long WAIT_MASK = (1L << HuEvaluator.TILE_TYPES) - 1;
+    private static final long WAIT_KNOWN = 1L << 40;
+    private static final long HU_KNOWN = 1L << 41;
+    private static final long HU = 1L << 42;
+    private static final long TENPAI_KNOWN = 1L << 43;
+    private static final long TENPAI = 1L << 44;
+
+    private static final ThreadLocal<HandCache> CURRENT = new ThreadLocal<HandCache>() {
+        @Override
+        protected HandCache initialValue() {
+            return new HandCache(DEFAULT_CAPACITY);
+        }
+    };
+
+    private final long[] keys;
+    private final long[] values; // 0 = empty slot
+    private final long[] stamps; // Last use
+    private final int bucketMask;
+    private long clock;
+
+    public HandCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Maximum number of entries, rounded up to a power of two
+     */
+    public HandCache(int capacity) {
+        int buckets = Integer.highestOneBit(Math.max(capacity / WAYS - 1, 1)) << 1;
+        keys = new long[buckets * WAYS];
+        values = new long[buckets * WAYS];
+        stamps = new long[buckets * WAYS];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * The calling thread's cache.
+     */
+    public static HandCache current() {
+        return CURRENT.get();
+    }
+
+    public boolean isHu(int[] counts, int meldCount, int meldFlags) {
+        return isHu(Zobrist.hash(counts, meldCount, meldFlags), counts, meldCount, meldFlags);
+    }
+
+    /**
+     * As {@link HuEvaluator#isHu}, with the hand's hash already known (e.g.
+     * updated incrementally with {@link Zobrist#addTile}).
+     */
+    public boolean isHu(long hash, int[] counts, int meldCount, int meldFlags) {
+        long entry = lookup(hash, HU_KNOWN);
+        if (entry != 0)
+            return (entry & HU) != 0;
+        boolean hu = HuEvaluator.isHu(counts, meldCount, meldFlags);
+        store(hash, HU_KNOWN | (hu ? HU : 0));
+        return hu;
+    }
+
+    public long waitMask(int[] counts, int meldCount, int meldFlags) {
+        return waitMask(Zobrist.hash(counts, meldCount, meldFlags), counts, meldCount, meldFlags);
+    }
+
+    /**
+     * As {@link HuEvaluator#waitMask}, with the hand's hash already known.
+     */
+    public long waitMask(long hash, int[] counts, int meldCount, int meldFlags) {
+        long entry = lookup(hash, WAIT_KNOWN);
+        if (entry != 0)
+            return entry & WAIT_MASK;
+        long mask = HuEvaluator.waitMask(counts, meldCount, meldFlags);
+        store(hash, WAIT_KNOWN | mask);
+        return mask;
+    }
+
+    public boolean isTenpai(int[] counts, int meldCount, int meldFlags) {
+        return isTenpai(Zobrist.hash(counts, meldCount, meldFlags), counts, meldCount, meldFlags);
+    }
+
+    /**
+     * Tenpai for a 13-tile hand (it has a wait), or for a 14-tile hand (some
+     * discard leaves it waiting). Other sizes are never Tenpai.
+     */
+    public boolean isTenpai(long hash, int[] counts, int meldCount, int meldFlags) {
+        int logicalTotal = meldCount * 3;
+        for (int i = 0; i < HuEvaluator.TILE_TYPES; i++)
+            logicalTotal += counts[i];
+        if (logicalTotal == 13)
+            return waitMask(hash, counts, meldCount, meldFlags) != 0;
+        if (logicalTotal != 14)
+            return false;
+
+        long entry = lookup(hash, TENPAI_KNOWN);
+        if (entry != 0)
+            return (entry & TENPAI) != 0;
+        // Check if discarding any tile leaves us in Tenpai (waiting for 1)
+        boolean ready = false;
+        for (int id = 0; id < HuEvaluator.TILE_TYPES && !ready; id++) {
+            if (counts[id] == 0)
+                continue;
+            counts[id]--;
+            ready = HuEvaluator.waitMask(counts, meldCount, meldFlags) != 0;
+            counts[id]++;
+        }
+        store(hash, TENPAI_KNOWN | (ready ? TENPAI : 0));
+        return ready;
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public void clear() {
+        Arrays.fill(values, 0);
+    }
+
+    // Returns the entry if it holds the 'known' bit, otherwise 0
+    private long lookup(long hash, long known) {
+        int bucket = bucketOf(hash);
+        for (int slot = bucket * WAYS; slot < (bucket + 1) * WAYS; slot++) {
+            if (values[slot] != 0 && keys[slot] == hash) {
+                if ((values[slot] & known) == 0)
+                    break;
+                stamps[slot] = ++clock;
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    // Merges result bits into the hand's entry, evicting the bucket's LRU entry if needed
+    private void store(long hash, long bits) {
+        int bucket = bucketOf(hash);
+        int victim = bucket * WAYS;
+        for (int slot = bucket * WAYS; slot < (bucket + 1) * WAYS; slot++) {
+            if (values[slot] != 0 && keys[slot] == hash) {
+                values[slot] |= bits;
+                stamps[slot] = ++clock;
+                return;
+            }
+            // Prefer an empty slot, otherwise the least recently used one
+            if (values[victim] != 0 && (values[slot] == 0 || stamps[slot] < stamps[victim]))
+                victim = slot;
+        }
+        keys[victim] = hash;
+        values[victim] = bits;
+        stamps[victim] = ++clock;
+    }
+
+    private int bucketOf(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & bucketMask;
+    }
+}
@@ -0,0 +1,208 @@
+package com.allentx.changchunmahjong.logic;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Enumerates every standard (sets + one pair) partition of a winning hand on a
+ * 34-entry tile-count vector, for scoring patterns that depend on how the
+ * hand is read rather than on whether it wins.
+ *
+ * Suits split independently, so each suit's count pattern (the base-5 key of
+ * {@link DecompositionTable}) is decomposed once and memoized; a hand is then
+ * the product of its four suit lists. Seven Pairs is not a sets + pair shape
+ * and yields no partitions.
+ *
+ * A partition is reported as blocks: {@code kind << 8 | first tile id}, one
+ * per set or pair in hand. Exposed melds are not included.
+ */
+public final class HandPartitions {
+    // Block kinds
+    public static final int PAIR = 0;
+    public static final int TRIPLET = 1;
+    public static final int SEQUENCE = 2;
+
+    public static final int MAX_BLOCKS = 5; // Four sets and the pair
+
+    private static final int ID_FIRST_ZI = 27;
+    private static final int FIRST_DRAGON_RANK = 4; // Zhong, Fa, Bai are honor ranks 5-7
+
+    // A suit split packs up to five blocks as bytes (kind << 4 | rank) and the block count above them
+    private static final int COUNT_SHIFT = 56;
+    private static final long[] NO_SPLITS = new long[0];
+
+    private static final ConcurrentHashMap<Integer, long[]> NUMBER_SPLITS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, long[]> HONOR_SPLITS = new ConcurrentHashMap<>();
+
+    private HandPartitions() {
+    }
+
+    public interface Visitor {
+        /**
+         * Called once per partition. The array is reused between calls.
+         *
+         * @return false to stop the enumeration
+         */
+        boolean visit(int[] blocks, int blockCount);
+    }
+
+    public static int kind(int block) {
+        return block >> 8;
+    }
+
+    // Tile id of the block's lowest tile
+    public static int firstId(int block) {
+        return block & 0xFF;
+    }
+
+    /**
+     * Visits every partition of a winning hand that satisfies the Changchun
+     * rules: all three suits and a Yao Jiu tile across hand and melds, and a
+     * triplet, exposed Peng/Gang or dragon pair.
+     *
+     * @param counts    Tiles in hand including the winning tile (excluding fixed melds)
+     * @param meldCount Number of exposed melds; each counts as one logical set
+     * @param meldFlags Summary of the exposed melds, see {@link HuEvaluator#meldFlags}
+     * @return Number of partitions visited
+     */
+    public static int enumerate(int[] counts, int meldCount, int meldFlags, Visitor visitor) {
+        int handSize = 0;
+        int flags = meldFlags;
+        for (int i = 0; i < HuEvaluator.TILE_TYPES; i++) {
+            if (counts[i] > 0) {
+                handSize += counts[i];
+                flags |= HuEvaluator.tileFlags(i);
+            }
+        }
+        if (meldCount * 3 + handSize != 14)
+            return 0;
+        int allSuits = HuEvaluator.MELD_WAN | HuEvaluator.MELD_TIAO | HuEvaluator.MELD_TONG;
+        if ((flags & allSuits) != allSuits || (flags & HuEvaluator.MELD_YAO_JIU) == 0)
+            return 0;
+
+        // A suit of 3n + 2 tiles holds the pair; exactly one may
+        long[][] splits = new long[4][];
+        int pairSuits = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            int key = HuEvaluator.suitKey(counts, suit);
+            int suitSize = HuEvaluator.suitSize(counts, suit);
+            if (key < 0 || suitSize % 3 == 1 || (suitSize % 3 == 2 && ++pairSuits > 1))
+                return 0;
+            splits[suit] = splits(suit, key);
+            if (splits[suit].length == 0)
+                return 0;
+        }
+        int[] visited = new int[1];
+        product(splits, 0, new int[MAX_BLOCKS], 0, (meldFlags & HuEvaluator.MELD_PENG_GANG) != 0, visitor,
+                visited);
+        return visited[0];
+    }
+
+    /**
+     * Whether some partition of the winning hand uses the winning tile as the
+     * middle of a sequence (a closed "in-between" wait).
+     *
+     * @param counts Tiles in hand including the winning tile
+     */
+    public static boolean isKanchan(int[] counts, int meldCount, int meldFlags, int winningId) {
+        if (winningId >= ID_FIRST_ZI || winningId % 9 == 0 || winningId % 9 == 8)
+            return false;
+        final int start = winningId - 1;
+        final boolean[] found = new boolean[1];
+        enumerate(counts, meldCount, meldFlags, (blocks, blockCount) -> {
+            for (int i = 0; i < blockCount; i++) {
+                if (blocks[i] == (SEQUENCE << 8 | start)) {
+                    found[0] = true;
+                    return false;
+                }
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    // Returns false once the visitor asks to stop
+    private static boolean product(long[][] splits, int suit, int[] blocks, int blockCount, boolean qualified,
+            Visitor visitor, int[] visited) {
+        if (suit == 4) {
+            if (!qualified)
+                return true;
+            visited[0]++;
+            return visitor.visit(blocks, blockCount);
+        }
+        int base = suit * 9;
+        for (long split : splits[suit]) {
+            int n = (int) (split >>> COUNT_SHIFT);
+            boolean q = qualified;
+            for (int i = 0; i < n; i++) {
+                int b = (int) (split >>> (8 * i)) & 0xFF;
+                int kind = b >> 4;
+                int rank = b & 0xF;
+                blocks[blockCount + i] = kind << 8 | (base + rank);
+                if (kind == TRIPLET || (kind == PAIR && suit == 3 && rank >= FIRST_DRAGON_RANK))
+                    q = true;
+            }
+            if (!product(splits, suit + 1, blocks, blockCount + n, q, visitor, visited))
+                return false;
+        }
+        return true;
+    }
+
+    // Every split of one suit pattern into sets and at most one pair, memoized by key
+    private static long[] splits(int suit, int key) {
+        final boolean honors = suit == 3;
+        ConcurrentHashMap<Integer, long[]> memo = honors ? HONOR_SPLITS : NUMBER_SPLITS;
+        long[] cached = memo.get(key);
+        if (cached != null)
+            return cached;
+
+        int ranks = honors ? DecompositionTable.HONOR_RANKS : DecompositionTable.NUMBER_RANKS;
+        int[] counts = new int[ranks];
+        for (int r = 0; r < ranks; r++)
+            counts[r] = key / DecompositionTable.POW5[r] % 5;
+        long[][] out = { new long[8] };
+        int size = search(counts, 0, false, honors, 0L, 0, out, 0);
+        long[] result = size == 0 ? NO_SPLITS : java.util.Arrays.copyOf(out[0], size);
+        memo.putIfAbsent(key, result);
+        return result;
+    }
+
+    // Consumes the lowest remaining tile, so each block multiset is reached by exactly one path
+    private static int search(int[] counts, int from, boolean pairUsed, boolean honors, long split, int n,
+            long[][] out, int size) {
+        int first = from;
+        while (first < counts.length && counts[first] == 0)
+            first++;
+        if (first == counts.length) {
+            if (size == out[0].length)
+                out[0] = java.util.Arrays.copyOf(out[0], size * 2);
+            out[0][size] = split | (long) n << COUNT_SHIFT;
+            return size + 1;
+        }
+        if (n == MAX_BLOCKS)
+            return size;
+
+        if (!pairUsed && counts[first] >= 2) {
+            counts[first] -= 2;
+            size = search(counts, first, true, honors, split | (long) (PAIR << 4 | first) << (8 * n), n + 1,
+                    out, size);
+            counts[first] += 2;
+        }
+        if (counts[first] >= 3) {
+            counts[first] -= 3;
+            size = search(counts, first, pairUsed, honors, split | (long) (TRIPLET << 4 | first) << (8 * n),
+                    n + 1, out, size);
+            counts[first] += 3;
+        }
+        if (!honors && first + 2 < counts.length && counts[first + 1] > 0 && counts[first + 2] > 0) {
+            counts[first]--;
+            counts[first + 1]--;
+            counts[first + 2]--;
+            size = search(counts, first, pairUsed, honors, split | (long) (SEQUENCE << 4 | first) << (8 * n),
+                    n + 1, out, size);
+            counts[first]++;
+            counts[first + 1]++;
+            counts[first + 2]++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,346 @@
+package com.allentx.changchunmahjong.logic;
+
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.List;
+
+/**
+ * Allocation-free Hu (Win) evaluation on a 34-entry tile-count vector indexed
+ * by {@link Tile#getId()}.
+ *
+ * Backtracking removes and restores sets in place, so the count vector passed
+ * in is unchanged when a call returns. Exposed melds are summarised once with
+ * {@link #meldFlags(List)} instead of being rescanned on every check.
+ */
+public class HuEvaluator {
+    public static final int TILE_TYPES = 34;
+
+    // Meld summary flags (see meldFlags), defined with Meld
+    public static final int MELD_WAN = Meld.FLAG_WAN;
+    public static final int MELD_TIAO = Meld.FLAG_TIAO;
+    public static final int MELD_TONG = Meld.FLAG_TONG;
+    public static final int MELD_YAO_JIU = Meld.FLAG_YAO_JIU;
+    public static final int MELD_PENG_GANG = Meld.FLAG_PENG_GANG;
+
+    private static final int ID_FIRST_ZI = 27;
+    private static final int ID_ZHONG = ID_FIRST_ZI + Tile.ID_ZHONG - 1;
+    private static final int ID_BAI = ID_FIRST_ZI + Tile.ID_BAI - 1;
+
+    /**
+     * Summarises exposed melds into a bit set of MELD_* flags: which suits and
+     * whether a Yao Jiu tile appear in them, and whether any of them is a
+     * Peng/Gang (which satisfies the Changchun triplet requirement).
+     */
+    public static int meldFlags(List<Meld> melds) {
+        int flags = 0;
+        for (Meld m : melds)
+            flags |= meldFlags(m);
+        return flags;
+    }
+
+    /**
+     * MELD_* flags of a single meld.
+     */
+    public static int meldFlags(Meld m) {
+        return m.getFlags();
+    }
+
+    /**
+     * Counts tiles into a fresh 34-entry vector.
+     */
+    public static int[] toCounts(List<Tile> tiles) {
+        int[] counts = new int[TILE_TYPES];
+        for (Tile t : tiles)
+            counts[t.getId()]++;
+        return counts;
+    }
+
+    /**
+     * Strict Changchun Hu check on counts.
+     *
+     * @param counts     Tiles in hand (excluding fixed melds)
+     * @param meldCount  Number of exposed melds; each counts as one logical set
+     * @param meldFlags  Summary of the exposed melds, see {@link #meldFlags(List)}
+     */
+    public static boolean isHu(int[] counts, int meldCount, int meldFlags) {
+        // 1. Basic Size Check: physical hand + (melds * 3) must be 14
+        int handSize = 0;
+        for (int i = 0; i < TILE_TYPES; i++)
+            handSize += counts[i];
+        if (meldCount * 3 + handSize != 14)
+            return false;
+
+        // 2. Suit/Special Rule Checks
+        int flags = meldFlags;
+        for (int i = 0; i < TILE_TYPES; i++) {
+            if (counts[i] > 0)
+                flags |= tileFlags(i);
+        }
+        if ((flags & (MELD_WAN | MELD_TIAO | MELD_TONG)) != (MELD_WAN | MELD_TIAO | MELD_TONG))
+            return false;
+        if ((flags & MELD_YAO_JIU) == 0)
+            return false;
+
+        // 3. Hu Pattern Checks
+        // A. Check 7 Pairs (Only if 0 melds)
+        if (meldCount == 0 && isQiDui(counts))
+            return true;
+
+        // B. Check Standard: (4 - melds) sets + 1 pair in hand
+        return isStandardHu(counts, 4 - meldCount, (meldFlags & MELD_PENG_GANG) != 0);
+    }
+
+    /**
+     * Wait set of a 13-tile (logical) hand as a 34-bit mask: bit i is set if drawing
+     * tile id i completes a Hu. Tiles already held four times are never waits.
+     *
+     * Each suit is decomposed once; a candidate only changes its own suit, so
+     * testing it is one table lookup plus the shared combine step. Candidates
+     * are limited to tiles that can actually join a set or pair (held, or
+     * within two ranks of a held tile of the same suit) and to Yao Jiu tiles
+     * when the hand still lacks one.
+     */
+    public static long waitMask(int[] counts, int meldCount, int meldFlags) {
+        int handSize = 0;
+        int flags = meldFlags;
+        for (int i = 0; i < TILE_TYPES; i++) {
+            if (counts[i] > 0) {
+                handSize += counts[i];
+                flags |= tileFlags(i);
+            }
+        }
+        if (meldCount * 3 + handSize != 13)
+            return 0;
+        // A suit missing from hand and melds cannot be completed by one isolated draw
+        if ((flags & (MELD_WAN | MELD_TIAO | MELD_TONG)) != (MELD_WAN | MELD_TIAO | MELD_TONG))
+            return 0;
+
+        // Shared structural decomposition
+        int[] keys = new int[4];
+        int[] sizes = new int[4];
+        int[] suitFlags = new int[4];
+        for (int suit = 0; suit < 4; suit++) {
+            keys[suit] = suitKey(counts, suit);
+            if (keys[suit] < 0)
+                return 0; // More than four copies of a tile
+            sizes[suit] = suitSize(counts, suit);
+            suitFlags[suit] = suitFlags(suit, keys[suit]);
+        }
+        return waitMask(counts, meldCount, meldFlags, flags, keys, sizes, suitFlags);
+    }
+
+    /**
+     * Wait mask of a 13-tile (logical) hand whose per-suit keys, sizes and table
+     * flags are already known, e.g. derived from a larger hand by one discard
+     * (see {@link HandAnalyzer}). 'handFlags' are the meld flags plus the
+     * flags of every tile in hand.
+     */
+    static long waitMask(int[] counts, int meldCount, int meldFlags, int handFlags, int[] keys, int[] sizes,
+            int[] suitFlags) {
+        if ((handFlags & (MELD_WAN | MELD_TIAO | MELD_TONG)) != (MELD_WAN | MELD_TIAO | MELD_TONG))
+            return 0;
+        boolean needYaoJiu = (handFlags & MELD_YAO_JIU) == 0;
+        boolean hasPengGang = (meldFlags & MELD_PENG_GANG) != 0;
+        int requiredSets = 4 - meldCount;
+
+        // Seven Pairs: exactly one odd count, all others even
+        int oddTile = -1;
+        if (meldCount == 0) {
+            for (int i = 0; i < TILE_TYPES; i++) {
+                if ((counts[i] & 1) != 0) {
+                    if (oddTile != -1) {
+                        oddTile = -1;
+                        break;
+                    }
+                    oddTile = i;
+                }
+            }
+        }
+
+        long mask = 0;
+        for (int w = 0; w < TILE_TYPES; w++) {
+            if (counts[w] >= 4 || !canJoin(counts, w))
+                continue;
+            if (needYaoJiu && (tileFlags(w) & MELD_YAO_JIU) == 0)
+                continue;
+            if (w == oddTile) {
+                mask |= 1L << w;
+                continue;
+            }
+            int suit = w < ID_FIRST_ZI ? w / 9 : 3;
+            int rank = w - suit * 9;
+            int withW = suitFlags(suit, keys[suit] + DecompositionTable.POW5[rank]);
+            if (combine(sizes, suitFlags, suit, withW, requiredSets, hasPengGang))
+                mask |= 1L << w;
+        }
+        return mask;
+    }
+
+    // Held, or within two ranks of a held tile of the same numbered suit
+    private static boolean canJoin(int[] counts, int w) {
+        if (counts[w] > 0)
+            return true;
+        if (w >= ID_FIRST_ZI)
+            return false;
+        int rank = w % 9;
+        return (rank >= 1 && counts[w - 1] > 0) || (rank >= 2 && counts[w - 2] > 0)
+                || (rank <= 7 && counts[w + 1] > 0) || (rank <= 6 && counts[w + 2] > 0);
+    }
+
+    /**
+     * Standard-shape combine over the four suits. The suits combine
+     * independently, so the hand qualifies for the triplet rule if any one suit
+     * has a qualifying split. Suit 'changed' (or -1) holds one extra tile whose
+     * table flags are 'changedFlags'.
+     */
+    private static boolean combine(int[] sizes, int[] suitFlags, int changed, int changedFlags, int requiredSets,
+            boolean alreadyHasPengGang) {
+        int sets = 0;
+        boolean pairFound = false;
+        boolean qualified = alreadyHasPengGang;
+        for (int suit = 0; suit < 4; suit++) {
+            int suitTiles = suit == changed ? sizes[suit] + 1 : sizes[suit];
+            int flags = suit == changed ? changedFlags : suitFlags[suit];
+            if (suitTiles % 3 == 0) {
+                if ((flags & DecompositionTable.SETS) == 0)
+                    return false;
+                if ((flags & DecompositionTable.SETS_QUALIFIED) != 0)
+                    qualified = true;
+            } else if (suitTiles % 3 == 2) {
+                if (pairFound || (flags & DecompositionTable.PAIR) == 0)
+                    return false;
+                pairFound = true;
+                if ((flags & DecompositionTable.PAIR_QUALIFIED) != 0)
+                    qualified = true;
+            } else {
+                return false;
+            }
+            sets += suitTiles / 3;
+        }
+        return pairFound && qualified && sets == requiredSets;
+    }
+
+    /**
+     * Seven Pairs: 14 tiles, every tile type held an even number of times. Four of
+     * a kind counts as two pairs.
+     */
+    public static boolean isQiDui(int[] counts) {
+        int total = 0;
+        for (int i = 0; i < TILE_TYPES; i++) {
+            if ((counts[i] & 1) != 0)
+                return false;
+            total += counts[i];
+        }
+        return total == 14;
+    }
+
+    /**
+     * Standard shape: exactly requiredSets sets plus one pair, with at least one
+     * triplet (or an already exposed Peng/Gang, or a dragon pair).
+     *
+     * Each suit is looked up in the precomputed {@link DecompositionTable}s and
+     * the results are combined.
+     */
+    public static boolean isStandardHu(int[] counts, int requiredSets, boolean alreadyHasPengGang) {
+        int[] sizes = new int[4];
+        int[] suitFlags = new int[4];
+        for (int suit = 0; suit < 4; suit++) {
+            int key = suitKey(counts, suit);
+            if (key < 0)
+                return isStandardHuSearch(counts, requiredSets, alreadyHasPengGang);
+            sizes[suit] = suitSize(counts, suit);
+            suitFlags[suit] = suitFlags(suit, key);
+        }
+        return combine(sizes, suitFlags, -1, 0, requiredSets, alreadyHasPengGang);
+    }
+
+    /**
+     * Base-5 pattern of one suit (0-2 numbered, 3 honors), or -1 if a count is out
+     * of the 0-4 range the tables cover.
+     */
+    static int suitKey(int[] counts, int suit) {
+        int base = suit * 9;
+        int ranks = suit == 3 ? DecompositionTable.HONOR_RANKS : DecompositionTable.NUMBER_RANKS;
+        int key = 0;
+        for (int r = 0; r < ranks; r++) {
+            int c = counts[base + r];
+            if (c > 4)
+                return -1;
+            key += c * DecompositionTable.POW5[r];
+        }
+        return key;
+    }
+
+    static int suitSize(int[] counts, int suit) {
+        int base = suit * 9;
+        int ranks = suit == 3 ? DecompositionTable.HONOR_RANKS : DecompositionTable.NUMBER_RANKS;
+        int total = 0;
+        for (int r = 0; r < ranks; r++)
+            total += counts[base + r];
+        return total;
+    }
+
+    static int suitFlags(int suit, int key) {
+        return (suit == 3 ? DecompositionTable.honors() : DecompositionTable.numbers()).lookup(key);
+    }
+
+    // Recursive fallback for count vectors the tables do not cover
+    private static boolean isStandardHuSearch(int[] counts, int requiredSets, boolean alreadyHasPengGang) {
+        for (int pair = 0; pair < TILE_TYPES; pair++) {
+            if (counts[pair] < 2)
+                continue;
+            counts[pair] -= 2;
+            boolean isDragonPair = pair >= ID_ZHONG && pair <= ID_BAI;
+            boolean ok = canFormExactlyNSets(counts, 0, requiredSets, alreadyHasPengGang || isDragonPair);
+            counts[pair] += 2;
+            if (ok)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes sets from the lowest remaining tile upwards. Tiles below 'from' are
+     * already known to be zero.
+     */
+    private static boolean canFormExactlyNSets(int[] counts, int from, int n, boolean foundPengGang) {
+        int first = from;
+        while (first < TILE_TYPES && counts[first] == 0)
+            first++;
+        if (first == TILE_TYPES)
+            return n == 0 && foundPengGang;
+        if (n == 0)
+            return false;
+
+        // 1. Try Triplet (counts as Peng/Gang)
+        if (counts[first] >= 3) {
+            counts[first] -= 3;
+            boolean ok = canFormExactlyNSets(counts, first, n - 1, true);
+            counts[first] += 3;
+            if (ok)
+                return true;
+        }
+
+        // 2. Try Sequence (numbered suits only, must not wrap into the next suit)
+        if (first < ID_FIRST_ZI && first % 9 <= 6 && counts[first + 1] > 0 && counts[first + 2] > 0) {
+            counts[first]--;
+            counts[first + 1]--;
+            counts[first + 2]--;
+            boolean ok = canFormExactlyNSets(counts, first, n - 1, foundPengGang);
+            counts[first]++;
+            counts[first + 1]++;
+            counts[first + 2]++;
+            if (ok)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Suit and Yao Jiu flags contributed by a single tile id.
+     */
+    public static int tileFlags(int id) {
+        return Meld.tileFlags(id);
+    }
+}
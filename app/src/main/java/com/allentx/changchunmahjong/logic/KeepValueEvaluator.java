@@ -0,0 +1,192 @@
+package com.allentx.changchunmahjong.logic;
+
+import com.allentx.changchunmahjong.model.Tile;
+
+/**
+ * The keep-value heuristic of {@link SmartAiStrategy#getKeepValues} on count
+ * vectors: one pass per distinct tile in hand, scores written into a reused
+ * array indexed by tile id. Lower means a better discard.
+ *
+ * Holds its buffers between calls, so keep one per thread (e.g. per AI seat
+ * or per screen) and read the scores before the next evaluate.
+ */
+public final class KeepValueEvaluator {
+    // Keep value added per shanten step a discard would lose
+    static final double SHANTEN_STEP_VALUE = 120;
+
+    private static final int ID_FIRST_ZI = 27;
+    private static final int ID_ZHONG = ID_FIRST_ZI + Tile.ID_ZHONG - 1;
+    private static final int ID_BAI = ID_FIRST_ZI + Tile.ID_BAI - 1;
+
+    private final HandAnalyzer.Result analysis = new HandAnalyzer.Result();
+    private final int[] visible = new int[Tile.TYPE_COUNT];
+    private final double[] scores = new double[Tile.TYPE_COUNT];
+    private long handMask;
+
+    /**
+     * Scores every tile type in hand.
+     *
+     * @param handCounts Tiles in hand (excluding fixed melds); restored on return
+     * @param meldFlags  Summary of this seat's melds, see {@link HuEvaluator#meldFlags}
+     * @param seenCounts Copies of each tile type visible outside this hand
+     *                   (discards and all exposed melds)
+     * @return The score array, valid for ids in {@link #getHandMask()}
+     */
+    public double[] evaluate(int[] handCounts, int meldCount, int meldFlags, int[] seenCounts) {
+        handMask = 0;
+        int yaoJiuInHand = 0;
+        int wan = 0;
+        int tiao = 0;
+        int tong = 0;
+        for (int i = 0; i < Tile.TYPE_COUNT; i++) {
+            visible[i] = seenCounts[i] + handCounts[i];
+            int c = handCounts[i];
+            if (c == 0)
+                continue;
+            handMask |= 1L << i;
+            if (isYaoJiu(i))
+                yaoJiuInHand += c;
+            if (i < 9)
+                wan += c;
+            else if (i < 18)
+                tiao += c;
+            else if (i < ID_FIRST_ZI)
+                tong += c;
+        }
+        if (handMask == 0)
+            return scores;
+
+        HandAnalyzer.analyze(handCounts, meldCount, meldFlags, seenCounts, analysis);
+        boolean hasPengGang = (meldFlags & HuEvaluator.MELD_PENG_GANG) != 0;
+        boolean meldYaoJiu = (meldFlags & HuEvaluator.MELD_YAO_JIU) != 0;
+
+        int bestShanten = Integer.MAX_VALUE;
+        for (long m = handMask; m != 0; m &= m - 1) {
+            int id = Long.numberOfTrailingZeros(m);
+            int suitInHand = id < 9 ? wan : id < 18 ? tiao : id < ID_FIRST_ZI ? tong : 0;
+            double score = keepValue(handCounts, id, hasPengGang, meldYaoJiu || yaoJiuInHand > 1,
+                    (meldFlags & suitFlag(id)) != 0, suitInHand);
+
+            int outs = analysis.getLiveCount(id);
+            if (outs > 0)
+                score -= (500 + outs * 50);
+            scores[id] = score;
+            bestShanten = Math.min(bestShanten, analysis.getShanten(id));
+        }
+
+        // Shanten step: every extra step away from ready that discarding a tile
+        // costs makes it worth keeping
+        for (long m = handMask; m != 0; m &= m - 1) {
+            int id = Long.numberOfTrailingZeros(m);
+            scores[id] = scores[id] + (analysis.getShanten(id) - bestShanten) * SHANTEN_STEP_VALUE;
+        }
+        return scores;
+    }
+
+    // Tile types scored by the last evaluate
+    public long getHandMask() {
+        return handMask;
+    }
+
+    public double getScore(int id) {
+        return scores[id];
+    }
+
+    /**
+     * @param otherYaoJiu Another Yao Jiu tile is held (another copy counts) or melded
+     * @param suitInMelds The target's suit appears in an exposed meld
+     * @param suitInHand  Tiles of the target's suit in hand
+     */
+    private double keepValue(int[] hand, int id, boolean hasPengGang, boolean otherYaoJiu, boolean suitInMelds,
+            int suitInHand) {
+        double score = 0;
+
+        // 1. Triplets and pairs
+        int countInHand = hand[id];
+        if (countInHand >= 3) {
+            score += 100;
+        } else if (countInHand == 2) {
+            boolean isDragon = id >= ID_ZHONG && id <= ID_BAI;
+            // Need at least one triplet to win; until then pairs are critical
+            if (!hasPengGang) {
+                score += isDragon ? 180 : 150;
+            } else {
+                score += isDragon ? 150 : 40;
+            }
+        }
+
+        // 2. Yao Jiu requirement: keep the only one across hand and melds
+        if (isYaoJiu(id)) {
+            if (!otherYaoJiu) {
+                score += 100;
+            } else {
+                score += 20;
+            }
+        }
+
+        // 3. Three suits requirement: protect the few tiles of a suit not yet melded
+        if (id < ID_FIRST_ZI && !suitInMelds) {
+            if (suitInHand == 1) {
+                score += 400;
+            } else if (suitInHand == 2) {
+                score += 300;
+            } else if (suitInHand == 3) {
+                score += 150;
+            }
+        }
+
+        // 4. Sequences and their waits (numbered tiles only)
+        if (id < ID_FIRST_ZI) {
+            boolean m2 = has(hand, id, -2);
+            boolean m1 = has(hand, id, -1);
+            boolean p1 = has(hand, id, 1);
+            boolean p2 = has(hand, id, 2);
+            if ((m1 && p1) || (m2 && m1) || (p1 && p2))
+                score += 80;
+
+            // Side wait, e.g. 2,3 looking for 1,4
+            if (m1 || p1) {
+                int seen = m1 ? seen(id, -2) + seen(id, 1) : seen(id, -1) + seen(id, 2);
+                score += 25 * availability(8, seen);
+            }
+            // Gap wait, e.g. 2,4 looking for 3
+            if (m2 || p2) {
+                int seen = m2 ? seen(id, -1) : seen(id, 1);
+                score += 12 * availability(4, seen);
+            }
+        } else if (countInHand == 1) {
+            // Lone honors are worth less
+            score -= 20;
+        }
+
+        // Copies already visible are harder to draw
+        score -= (visible[id] * 5);
+        return score;
+    }
+
+    private static double availability(int maxPossible, int seen) {
+        return Math.max(0, (double) (maxPossible - seen) / maxPossible);
+    }
+
+    // Held copy of the same-suit tile 'offset' ranks away
+    private static boolean has(int[] hand, int id, int offset) {
+        int rank = id % 9 + offset;
+        return rank >= 0 && rank < 9 && hand[id + offset] > 0;
+    }
+
+    // Visible copies of the same-suit tile 'offset' ranks away; off the suit is dead
+    private int seen(int id, int offset) {
+        int rank = id % 9 + offset;
+        if (rank < 0 || rank >= 9)
+            return 4;
+        return visible[id + offset];
+    }
+
+    private static boolean isYaoJiu(int id) {
+        return (HuEvaluator.tileFlags(id) & HuEvaluator.MELD_YAO_JIU) != 0;
+    }
+
+    private static int suitFlag(int id) {
+        return HuEvaluator.tileFlags(id) & (HuEvaluator.MELD_WAN | HuEvaluator.MELD_TIAO | HuEvaluator.MELD_TONG);
+    }
+}
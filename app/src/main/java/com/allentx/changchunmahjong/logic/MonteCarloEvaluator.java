@@ -0,0 +1,378 @@
+package com.allentx.changchunmahjong.logic;
+
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Discard evaluation by sampling: the tiles a seat cannot see (the wall and
+ * the opponents' hidden hands) are dealt at random, consistent with every
+ * visible tile, and each candidate discard is played forward to the end of the
+ * hand under a fast default policy. A candidate is rated by how often the seat
+ * then wins and how often it deals in.
+ *
+ * Every candidate is played on the same deals, so differences between them
+ * are not drowned by the luck of the deal. Sample i is seeded from (seed, i)
+ * alone and tallies are plain counts merged as tasks join, so a run that
+ * finishes all its samples gives the same result on any number of threads.
+ * When the deadline cuts a run short, each task keeps the samples it finished.
+ *
+ * The playout is deliberately simple: no Chi, Peng or Gang claims, no new
+ * DaBao / ViewBao, the first seat after the discarder takes a Hu, and a Tenpai
+ * seat discards what it draws. Bao wins count only for a Bao this seat can see.
+ */
+public final class MonteCarloEvaluator {
+    private static final int SPLITS_PER_THREAD = 8; // Leaf tasks per thread, for load balancing
+    private static final int ID_FIRST_ZI = 27;
+
+    // Standard errors by which a candidate must beat the heuristic's choice
+    public static final double CONFIDENCE = 2.0;
+
+    private final ForkJoinPool pool;
+
+    public MonteCarloEvaluator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public MonteCarloEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Win and deal-in counts per candidate discard, indexed by tile id.
+     */
+    public static final class Result {
+        private long candidateMask;
+        private int samples;
+        private final int[] wins = new int[Tile.TYPE_COUNT];
+        private final int[] dealIns = new int[Tile.TYPE_COUNT];
+
+        void merge(Result other) {
+            samples += other.samples;
+            for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+                wins[id] += other.wins[id];
+                dealIns[id] += other.dealIns[id];
+            }
+        }
+
+        /** Tile types that were evaluated, as a mask over tile ids. */
+        public long getCandidateMask() {
+            return candidateMask;
+        }
+
+        /** Deals played out; every candidate was played on each of them. */
+        public int getSamples() {
+            return samples;
+        }
+
+        public double getWinRate(int id) {
+            return samples == 0 ? 0 : (double) wins[id] / samples;
+        }
+
+        public double getDealInRate(int id) {
+            return samples == 0 ? 0 : (double) dealIns[id] / samples;
+        }
+
+        /** Win rate minus deal-in rate after discarding tile id; higher is better. */
+        public double getValue(int id) {
+            return getWinRate(id) - getDealInRate(id);
+        }
+    }
+
+    /**
+     * Rates every distinct tile the seat could discard. The seat must be on
+     * turn with a full hand (14 logical tiles).
+     *
+     * @param maxSamples Deals to play out at most
+     * @param budgetNanos Wall-clock limit; the run stops early when it is used up
+     * @param seed       Seeds the deals
+     */
+    public Result evaluate(Table table, int seat, int maxSamples, long budgetNanos, long seed) {
+        Setup setup = new Setup(table, seat);
+        int threads = Math.max(1, pool.getParallelism());
+        int leafSize = Math.max(1, maxSamples / (threads * SPLITS_PER_THREAD));
+        long deadline = System.nanoTime() + budgetNanos;
+        Result result = pool.invoke(new Batch(setup, seed, 0, maxSamples, leafSize, deadline));
+        result.candidateMask = setup.candidates;
+        return result;
+    }
+
+    /**
+     * The heuristic's discard (lowest keep value) unless a candidate rates
+     * clearly better: by more than {@link #CONFIDENCE} standard errors of the
+     * difference in value. With few samples this is the heuristic's choice.
+     *
+     * @return A tile id, or -1 if nothing was evaluated
+     */
+    public static int getBestDiscard(Result result, KeepValueEvaluator heuristic) {
+        int prior = -1;
+        int best = -1;
+        for (long m = result.candidateMask; m != 0; m &= m - 1) {
+            int id = Long.numberOfTrailingZeros(m);
+            if (prior == -1 || heuristic.getScore(id) < heuristic.getScore(prior))
+                prior = id;
+            if (best == -1 || result.getValue(id) > result.getValue(best))
+                best = id;
+        }
+        if (best == prior || result.samples == 0)
+            return prior;
+        double variance = (spread(result, best) + spread(result, prior)) / result.samples;
+        return result.getValue(best) - result.getValue(prior) > CONFIDENCE * Math.sqrt(variance) ? best : prior;
+    }
+
+    // Variance of one sample's outcome (+1 win, -1 deal-in, 0 otherwise)
+    private static double spread(Result result, int id) {
+        double mean = result.getValue(id);
+        return result.getWinRate(id) + result.getDealInRate(id) - mean * mean;
+    }
+
+    // What the evaluating seat knows, captured once before the tasks start
+    private static final class Setup {
+        final int seat;
+        final int[] own;
+        final int[][] melds = new int[4][2]; // {count, flags} per seat
+        final int[] hiddenSizes = new int[4];
+        final int[] unseen = new int[Tile.TYPE_COUNT];
+        final int unseenTotal;
+        final int wallRemaining;
+        final int bao; // -1 unless this seat can see it
+        final boolean[] baoAccess = new boolean[4];
+        final long candidates;
+
+        Setup(Table table, int seat) {
+            this.seat = seat;
+            Player me = table.getPlayer(seat);
+            own = me.getSummary().copyCounts();
+            for (int s = 0; s < 4; s++) {
+                Player p = table.getPlayer(s);
+                melds[s][0] = p.getSummary().getMeldCount();
+                melds[s][1] = p.getSummary().getMeldFlags();
+                hiddenSizes[s] = s == seat ? 0 : p.getHand().size();
+            }
+
+            Tile baoTile = table.getBaoTile();
+            boolean canSee = baoTile != null && (table.getBaoOwnerIndex() == seat || me.hasViewedBao());
+            bao = canSee ? baoTile.getId() : -1;
+            for (int s = 0; s < 4; s++)
+                baoAccess[s] = table.getBaoOwnerIndex() == s || table.getPlayer(s).hasViewedBao();
+
+            int total = 0;
+            long mask = 0;
+            for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+                unseen[id] = Math.max(0, Tile.COPIES - own[id] - table.getVisibleTiles().getCount(id)
+                        - (id == bao ? 1 : 0));
+                total += unseen[id];
+                if (own[id] > 0)
+                    mask |= 1L << id;
+            }
+            unseenTotal = total;
+            wallRemaining = table.getWallRemaining();
+            candidates = mask;
+        }
+    }
+
+    private static final class Batch extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final Setup setup;
+        private final long seed;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final long deadline;
+
+        Batch(Setup setup, long seed, int from, int to, int leafSize, long deadline) {
+            this.setup = setup;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= leafSize) {
+                Result result = new Result();
+                Playout playout = new Playout(setup);
+                for (int i = from; i < to && System.nanoTime() < deadline; i++) {
+                    playout.deal(RandomSource.seeded(sampleSeed(seed, i)));
+                    for (long m = setup.candidates; m != 0; m &= m - 1) {
+                        int id = Long.numberOfTrailingZeros(m);
+                        int outcome = playout.play(id);
+                        if (outcome == Playout.WIN)
+                            result.wins[id]++;
+                        else if (outcome == Playout.DEAL_IN)
+                            result.dealIns[id]++;
+                    }
+                    result.samples++;
+                }
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            Batch left = new Batch(setup, seed, from, mid, leafSize, deadline);
+            left.fork();
+            Result result = new Batch(setup, seed, mid, to, leafSize, deadline).compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    // SplitMix64 finalizer over (seed, index), as for simulated hands
+    static long sampleSeed(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * One deal of the unseen tiles and the playouts on it. Buffers are reused
+     * from sample to sample.
+     */
+    private static final class Playout {
+        static final int NONE = 0; // Draw, or another seat won off someone else
+        static final int WIN = 1;
+        static final int DEAL_IN = 2;
+
+        private final Setup setup;
+        private final int[] unseen; // Unseen tile ids in id order
+        private final int[] pool;
+        private final int[][] dealt = new int[4][Tile.TYPE_COUNT];
+        private final long[] dealtWaits = new long[4];
+        private final int[] wall;
+        private int wallSize;
+
+        private final int[][] counts = new int[4][Tile.TYPE_COUNT];
+        private final long[] waits = new long[4];
+        private final int[] suitSizes = new int[3];
+
+        Playout(Setup setup) {
+            this.setup = setup;
+            unseen = new int[setup.unseenTotal];
+            int k = 0;
+            for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+                for (int c = 0; c < setup.unseen[id]; c++)
+                    unseen[k++] = id;
+            }
+            pool = new int[setup.unseenTotal];
+            wall = new int[setup.unseenTotal];
+        }
+
+        // Shuffles the unseen tiles into hidden hands and a wall; depends on the source alone
+        void deal(RandomSource random) {
+            System.arraycopy(unseen, 0, pool, 0, pool.length);
+            for (int i = pool.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = pool[i];
+                pool[i] = pool[j];
+                pool[j] = t;
+            }
+            int k = 0;
+            for (int s = 0; s < 4; s++) {
+                if (s == setup.seat) {
+                    System.arraycopy(setup.own, 0, dealt[s], 0, Tile.TYPE_COUNT);
+                    continue;
+                }
+                java.util.Arrays.fill(dealt[s], 0);
+                for (int n = 0; n < setup.hiddenSizes[s] && k < pool.length; n++)
+                    dealt[s][pool[k++]]++;
+                dealtWaits[s] = HuEvaluator.waitMask(dealt[s], setup.melds[s][0], setup.melds[s][1]);
+            }
+            wallSize = Math.min(setup.wallRemaining, pool.length - k);
+            System.arraycopy(pool, k, wall, 0, wallSize);
+        }
+
+        // Plays the hand out after the seat discards tile id
+        int play(int discard) {
+            for (int s = 0; s < 4; s++) {
+                System.arraycopy(dealt[s], 0, counts[s], 0, Tile.TYPE_COUNT);
+                waits[s] = dealtWaits[s];
+            }
+            int seat = setup.seat;
+            counts[seat][discard]--;
+            waits[seat] = HuEvaluator.waitMask(counts[seat], setup.melds[seat][0], setup.melds[seat][1]);
+
+            int turn = seat;
+            int tile = discard;
+            for (int next = 0;; next++) {
+                // Claims on the discard, in seat order after the discarder
+                for (int k = 1; k < 4; k++) {
+                    int s = (turn + k) % 4;
+                    if ((waits[s] & 1L << tile) != 0)
+                        return s == seat ? WIN : turn == seat ? DEAL_IN : NONE;
+                }
+                if (next == wallSize)
+                    return NONE;
+
+                turn = (turn + 1) % 4;
+                int drawn = wall[next];
+                if ((waits[turn] & 1L << drawn) != 0
+                        || (drawn == setup.bao && waits[turn] != 0 && setup.baoAccess[turn]))
+                    return turn == seat ? WIN : NONE;
+                if (waits[turn] != 0) {
+                    tile = drawn; // Keep the wait
+                    continue;
+                }
+                int[] hand = counts[turn];
+                hand[drawn]++;
+                tile = chooseDiscard(hand, setup.melds[turn][1]);
+                hand[tile]--;
+                if (tile != drawn)
+                    waits[turn] = HuEvaluator.waitMask(hand, setup.melds[turn][0], setup.melds[turn][1]);
+            }
+        }
+
+        /**
+         * Default policy: throw the least connected tile, protecting the last
+         * tile of an unmelded suit and the last Yao Jiu tile.
+         */
+        private int chooseDiscard(int[] hand, int meldFlags) {
+            java.util.Arrays.fill(suitSizes, 0);
+            int yaoJiu = 0;
+            for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+                if (hand[id] == 0)
+                    continue;
+                if (id < ID_FIRST_ZI)
+                    suitSizes[id / 9] += hand[id];
+                if ((HuEvaluator.tileFlags(id) & HuEvaluator.MELD_YAO_JIU) != 0)
+                    yaoJiu += hand[id];
+            }
+
+            int best = -1;
+            int bestValue = Integer.MAX_VALUE;
+            for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+                int c = hand[id];
+                if (c == 0)
+                    continue;
+                int value = c >= 2 ? 6 * c : 0;
+                int flags = HuEvaluator.tileFlags(id);
+                int suitFlag = flags & (HuEvaluator.MELD_WAN | HuEvaluator.MELD_TIAO | HuEvaluator.MELD_TONG);
+                if (id < ID_FIRST_ZI) {
+                    int rank = id % 9;
+                    if (rank >= 1 && hand[id - 1] > 0)
+                        value += 3;
+                    if (rank <= 7 && hand[id + 1] > 0)
+                        value += 3;
+                    if (rank >= 2 && hand[id - 2] > 0)
+                        value += 1;
+                    if (rank <= 6 && hand[id + 2] > 0)
+                        value += 1;
+                    if (suitSizes[id / 9] == c && (meldFlags & suitFlag) == 0)
+                        value += 10;
+                }
+                if ((flags & HuEvaluator.MELD_YAO_JIU) != 0 && yaoJiu == c
+                        && (meldFlags & HuEvaluator.MELD_YAO_JIU) == 0)
+                    value += 10;
+                if (value < bestValue) {
+                    bestValue = value;
+                    best = id;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package com.allentx.changchunmahjong.logic;
 
+import com.allentx.changchunmahjong.model.HandSummary;
 import com.allentx.changchunmahjong.model.Meld;
 import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.model.Zobrist;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class RuleValidatorHelper {
@@ -17,174 +18,23 @@ public class RuleValidatorHelper {
      *                   Total tiles must be 14 (melds * 3 + hand).
      */
     public static boolean isHu(List<Tile> handTiles, List<Meld> melds) {
-        // 1. Basic Size Check
-        int totalTiles = (melds.size() * 3) + handTiles.size();
-        // Exception: Gangs count as 3 tiles for set calculations but have 4 physical
-        // tiles.
-        // Our Meld model tiles list will have 4 tiles for Gang, but it's logically 1
-        // set.
-        // Let's count Logical Sets instead.
-        int logicalTotal = melds.size() * 3 + handTiles.size();
-        // If there's a Gang in melds, it has 4 tiles but counts as 1 set (3 tiles).
-        // Actual physical tiles in melds:
-        int physicalMeldTiles = 0;
-        for (Meld m : melds)
-            physicalMeldTiles += m.getTiles().size();
-        int actualTotal = physicalMeldTiles + handTiles.size();
-
-        // In Mahjong, you win with 14 tiles (or 14 + number of Gangs).
-        // Let's simplify: physicalHand + (melds * 3) should be 14.
-        if (logicalTotal != 14)
-            return false;
-
-        // 2. Suit/Special Rule Checks
-        List<Tile> allTiles = new ArrayList<>(handTiles);
-        for (Meld m : melds)
-            allTiles.addAll(m.getTiles());
-
-        if (!hasThreeSuits(allTiles))
-            return false;
-        if (!hasYaoJiu(allTiles))
-            return false;
-
-        // 3. Hu Pattern Checks
-        List<Tile> sortedHand = new ArrayList<>(handTiles);
-        Collections.sort(sortedHand);
-
-        // A. Check 7 Pairs (Only if 0 melds)
-        if (melds.isEmpty() && isQiDui(sortedHand))
-            return true;
-
-        // B. Check Standard: (4 - melds.size()) sets + 1 pair in hand
-        int requiredSets = 4 - melds.size();
-        boolean hasExposedPengGang = false;
-        for (Meld m : melds) {
-            if (m.getType() == Meld.Type.PENG || m.getType() == Meld.Type.MING_GANG
-                    || m.getType() == Meld.Type.AN_GANG) {
-                hasExposedPengGang = true;
-                break;
-            }
-        }
-        return checkStandardHu(sortedHand, requiredSets, hasExposedPengGang);
-    }
-
-    private static boolean hasThreeSuits(List<Tile> tiles) {
-        boolean hasWan = false;
-        boolean hasTiao = false;
-        boolean hasTong = false;
-        for (Tile t : tiles) {
-            if (t.getSuit() == Tile.Suit.WAN)
-                hasWan = true;
-            if (t.getSuit() == Tile.Suit.TIAO)
-                hasTiao = true;
-            if (t.getSuit() == Tile.Suit.TONG)
-                hasTong = true;
-        }
-        return hasWan && hasTiao && hasTong;
-    }
-
-    private static boolean hasYaoJiu(List<Tile> tiles) {
-        for (Tile t : tiles) {
-            if (!t.isNumber())
-                return true; // Honors count as Yao Jiu
-            if (t.getRank() == 1 || t.getRank() == 9)
-                return true;
-        }
-        return false;
+        // Thin adapter: count the hand once, then run the in-place evaluator
+        return HandCache.current().isHu(HuEvaluator.toCounts(handTiles), melds.size(),
+                HuEvaluator.meldFlags(melds));
     }
 
-    private static boolean isQiDui(List<Tile> hand) {
-        if (hand.size() != 14)
-            return false;
-        for (int i = 0; i < 14; i += 2) {
-            if (!hand.get(i).equals(hand.get(i + 1)))
-                return false;
-        }
-        return true;
-    }
-
-    private static boolean checkStandardHu(List<Tile> hand, int requiredSets, boolean alreadyHasPengGang) {
-        // Try every unique tile as the pair
-        List<Tile> uniqueTiles = new ArrayList<>();
-        for (Tile t : hand) {
-            boolean found = false;
-            for (Tile u : uniqueTiles) {
-                if (u.equals(t)) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found)
-                uniqueTiles.add(t);
-        }
-
-        for (Tile pairTile : uniqueTiles) {
-            int count = 0;
-            for (Tile t : hand)
-                if (t.equals(pairTile))
-                    count++;
-
-            if (count >= 2) {
-                List<Tile> remaining = new ArrayList<>(hand);
-                remaining.remove(pairTile);
-                remaining.remove(pairTile);
-
-                boolean isDragonPair = pairTile.getSuit() == Tile.Suit.ZI && (pairTile.getRank() == Tile.ID_ZHONG
-                        || pairTile.getRank() == Tile.ID_FA || pairTile.getRank() == Tile.ID_BAI);
-
-                if (canFormExactlyNSets(remaining, requiredSets, alreadyHasPengGang || isDragonPair)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private static boolean canFormExactlyNSets(List<Tile> tiles, int n, boolean foundPengGang) {
-        if (n == 0)
-            return tiles.isEmpty() && foundPengGang;
-        if (tiles.isEmpty())
-            return n == 0 && foundPengGang;
-
-        Tile first = tiles.get(0);
-
-        // 1. Try Triplet (counts as Peng/Gang)
-        int count = 0;
-        for (Tile t : tiles)
-            if (t.equals(first))
-                count++;
-        if (count >= 3) {
-            List<Tile> next = new ArrayList<>(tiles);
-            next.remove(first);
-            next.remove(first);
-            next.remove(first);
-            if (canFormExactlyNSets(next, n - 1, true))
-                return true;
-        }
-
-        // 2. Try Sequence
-        if (first.isNumber()) {
-            Tile t2 = findAlso(tiles, first.getSuit(), first.getRank() + 1);
-            Tile t3 = findAlso(tiles, first.getSuit(), first.getRank() + 2);
-            if (t2 != null && t3 != null) {
-                List<Tile> next = new ArrayList<>(tiles);
-                next.remove(first);
-                next.remove(t2);
-                next.remove(t3);
-                if (canFormExactlyNSets(next, n - 1, foundPengGang))
-                    return true;
-            }
-        }
-
-        return false;
-    }
-
-    private static Tile findAlso(List<Tile> tiles, Tile.Suit suit, int rank) {
-        for (Tile t : tiles) {
-            if (t.getSuit() == suit && t.getRank() == rank)
-                return t;
-        }
-        return null;
+    /**
+     * Whether the hand plus one more tile (a claimed discard or a draw) is a Hu,
+     * without building the combined list.
+     */
+    public static boolean isHuWith(List<Tile> handTiles, List<Meld> melds, Tile extra) {
+        int[] counts = HuEvaluator.toCounts(handTiles);
+        int meldFlags = HuEvaluator.meldFlags(melds);
+        long hash = Zobrist.hash(counts, melds.size(), meldFlags);
+        int id = extra.getId();
+        hash = Zobrist.addTile(hash, id, counts[id]);
+        counts[id]++;
+        return HandCache.current().isHu(hash, counts, melds.size(), meldFlags);
     }
 
     // --- Action Checkers ---
@@ -242,28 +92,24 @@ public class RuleValidatorHelper {
     }
 
     public static boolean isTenpai(List<Tile> hand, List<Meld> melds) {
-        int logicalTotal = hand.size() + (melds.size() * 3);
-        if (logicalTotal == 13) {
-            // Try adding every possible tile to see if it results in a Hu
-            for (Tile.Suit s : Tile.Suit.values()) {
-                int maxRank = (s == Tile.Suit.ZI) ? 7 : 9;
-                for (int r = 1; r <= maxRank; r++) {
-                    List<Tile> testHand = new ArrayList<>(hand);
-                    testHand.add(new Tile(s, r));
-                    if (isHu(testHand, melds))
-                        return true;
-                }
-            }
-        } else if (logicalTotal == 14) {
-            // Check if discarding any tile leaves us in Tenpai (waiting for 1)
-            for (Tile t : hand) {
-                List<Tile> subHand = new ArrayList<>(hand);
-                subHand.remove(t);
-                if (isTenpai(subHand, melds))
-                    return true;
-            }
-        }
-        return false;
+        return HandCache.current().isTenpai(HuEvaluator.toCounts(hand), melds.size(),
+                HuEvaluator.meldFlags(melds));
+    }
+
+    /**
+     * Wait set of a 13-tile hand as a 34-bit mask indexed by {@link Tile#getId()}.
+     */
+    public static long getWaitMask(List<Tile> hand, List<Meld> melds) {
+        return HandCache.current().waitMask(HuEvaluator.toCounts(hand), melds.size(),
+                HuEvaluator.meldFlags(melds));
+    }
+
+    /**
+     * Distance to ready for a 13- or 14-tile hand: -1 = already Hu, 0 = Tenpai,
+     * n = n more useful draws needed. See {@link ShantenCalculator}.
+     */
+    public static int getShanten(List<Tile> hand, List<Meld> melds) {
+        return ShantenCalculator.shanten(HuEvaluator.toCounts(hand), melds.size(), HuEvaluator.meldFlags(melds));
     }
 
     public static List<Tile> getTenpaiDiscards(List<Tile> hand, List<Meld> melds) {
@@ -272,16 +118,13 @@ public class RuleValidatorHelper {
         if (logicalTotal != 14)
             return discards;
 
+        // One shared analysis instead of a Tenpai check per tile; keep hand order
+        long tenpaiDiscards = HandAnalyzer.analyze(hand, melds, null).getTenpaiDiscardMask();
         for (Tile t : hand) {
-            List<Tile> subHand = new ArrayList<>(hand);
-            subHand.remove(t);
-            if (isTenpai(subHand, melds)) {
-                boolean alreadyAdded = false;
-                for (Tile d : discards)
-                    if (d.equals(t))
-                        alreadyAdded = true;
-                if (!alreadyAdded)
-                    discards.add(t);
+            long bit = 1L << t.getId();
+            if ((tenpaiDiscards & bit) != 0) {
+                discards.add(t);
+                tenpaiDiscards &= ~bit;
             }
         }
         return discards;
@@ -289,65 +132,103 @@ public class RuleValidatorHelper {
 
     public static List<Tile> getOuts(List<Tile> hand, List<Meld> melds) {
         List<Tile> outs = new ArrayList<>();
-        if (melds.size() * 3 + hand.size() != 13)
-            return outs;
-
-        for (Tile.Suit s : Tile.Suit.values()) {
-            int maxRank = (s == Tile.Suit.ZI) ? 7 : 9;
-            for (int r = 1; r <= maxRank; r++) {
-                Tile candidate = new Tile(s, r);
-                List<Tile> testHand = new ArrayList<>(hand);
-                testHand.add(candidate);
-                if (isHu(testHand, melds)) {
-                    outs.add(candidate);
-                }
-            }
+        long mask = getWaitMask(hand, melds);
+        for (int id = 0; id < HuEvaluator.TILE_TYPES; id++) {
+            if ((mask & (1L << id)) != 0)
+                outs.add(Tile.byId(id));
         }
         return outs;
     }
 
     public static boolean wouldGangAffectWait(List<Tile> hand, List<Meld> melds, Tile gangTile, boolean isAnGang) {
-        List<Tile> originalOuts = getOuts(hand, melds);
-        if (originalOuts.isEmpty())
+        return wouldGangAffectWait(HuEvaluator.toCounts(hand), melds.size(), HuEvaluator.meldFlags(melds), gangTile,
+                isAnGang);
+    }
+
+    // Overwrites counts
+    static boolean wouldGangAffectWait(int[] counts, int meldCount, int meldFlags, Tile gangTile,
+            boolean isAnGang) {
+        HandCache cache = HandCache.current();
+        long originalOuts = cache.waitMask(counts, meldCount, meldFlags);
+        if (originalOuts == 0)
             return false; // Not in Tenpai or doesn't have valid outs, allow Gang normally?
                           // (Usually locked means you ARE in Tenpai)
 
-        // Simulate Gang
-        List<Tile> testHand = new ArrayList<>(hand);
-        List<Meld> testMelds = new ArrayList<>(melds);
-
-        List<Tile> mTiles = new ArrayList<>();
-        for (int i = 0; i < 4; i++)
-            mTiles.add(gangTile);
-
-        if (isAnGang) {
-            // Remove 4 from hand
-            for (int i = 0; i < 4; i++)
-                testHand.remove(gangTile);
-        } else {
-            // Remove 3 from hand (1 comes from discard)
-            for (int i = 0; i < 3; i++)
-                testHand.remove(gangTile);
-        }
-        testMelds.add(new Meld(isAnGang ? Meld.Type.AN_GANG : Meld.Type.MING_GANG, mTiles, -1));
-
-        List<Tile> newOuts = getOuts(testHand, testMelds);
+        // Simulate Gang: An Gang removes 4 from hand, Ming Gang 3 (1 comes from discard)
+        int id = gangTile.getId();
+        counts[id] = Math.max(0, counts[id] - (isAnGang ? 4 : 3));
+        int gangFlags = meldFlags | HuEvaluator.MELD_PENG_GANG | HuEvaluator.tileFlags(id);
+        long newOuts = cache.waitMask(counts, meldCount + 1, gangFlags);
 
         // Compare sets: Gang is allowed if wait set remains unchanged
-        if (originalOuts.size() != newOuts.size())
-            return true;
-        for (Tile out : originalOuts) {
-            boolean found = false;
-            for (Tile n : newOuts) {
-                if (n.equals(out)) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found)
-                return true;
+        return originalOuts != newOuts;
+    }
+
+    // --- HandSummary overloads ---
+    // Same checks on a player's live summary: counts are read directly instead of
+    // walking the tile list, and the hash is already maintained.
+
+    public static boolean isHu(HandSummary summary) {
+        return HandCache.current().isHu(summary.getHash(), summary.copyCounts(), summary.getMeldCount(),
+                summary.getMeldFlags());
+    }
+
+    public static boolean isHuWith(HandSummary summary, Tile extra) {
+        int[] counts = summary.copyCounts();
+        int id = extra.getId();
+        long hash = Zobrist.addTile(summary.getHash(), id, counts[id]);
+        counts[id]++;
+        return HandCache.current().isHu(hash, counts, summary.getMeldCount(), summary.getMeldFlags());
+    }
+
+    public static boolean isTenpai(HandSummary summary) {
+        return HandCache.current().isTenpai(summary.getHash(), summary.copyCounts(), summary.getMeldCount(),
+                summary.getMeldFlags());
+    }
+
+    public static long getWaitMask(HandSummary summary) {
+        return HandCache.current().waitMask(summary.getHash(), summary.copyCounts(), summary.getMeldCount(),
+                summary.getMeldFlags());
+    }
+
+    public static int getShanten(HandSummary summary) {
+        return ShantenCalculator.shanten(summary.copyCounts(), summary.getMeldCount(), summary.getMeldFlags());
+    }
+
+    public static boolean canChi(HandSummary summary, Tile target) {
+        if (!target.isNumber())
+            return false;
+        int id = target.getId();
+        int rank = target.getRank();
+        boolean c1 = rank >= 3 && summary.getCount(id - 2) > 0 && summary.getCount(id - 1) > 0;
+        boolean c2 = rank >= 2 && rank <= 8 && summary.getCount(id - 1) > 0 && summary.getCount(id + 1) > 0;
+        boolean c3 = rank <= 7 && summary.getCount(id + 1) > 0 && summary.getCount(id + 2) > 0;
+        return c1 || c2 || c3;
+    }
+
+    public static boolean canPeng(HandSummary summary, Tile target) {
+        return summary.getCount(target) >= 2;
+    }
+
+    public static boolean canMingGang(HandSummary summary, Tile target) {
+        return summary.getCount(target) >= 3;
+    }
+
+    public static boolean canAnGang(HandSummary summary) {
+        return getAnGangTile(summary) != null;
+    }
+
+    public static Tile getAnGangTile(HandSummary summary) {
+        for (int id = 0; id < HuEvaluator.TILE_TYPES; id++) {
+            if (summary.getCount(id) == 4)
+                return Tile.byId(id);
         }
-        return false;
+        return null;
+    }
+
+    public static boolean wouldGangAffectWait(HandSummary summary, Tile gangTile, boolean isAnGang) {
+        return wouldGangAffectWait(summary.copyCounts(), summary.getMeldCount(), summary.getMeldFlags(), gangTile,
+                isAnGang);
     }
 
     private static boolean has(List<Tile> hand, Tile.Suit suit, int rank) {
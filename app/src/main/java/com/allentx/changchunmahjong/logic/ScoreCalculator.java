@@ -1,18 +1,41 @@
 package com.allentx.changchunmahjong.logic;
 
+import com.allentx.changchunmahjong.model.HandSummary;
 import com.allentx.changchunmahjong.model.Meld;
 import com.allentx.changchunmahjong.model.Player;
 import com.allentx.changchunmahjong.model.Tile;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class ScoreCalculator {
 
+    // Breakdown returned by score(): multiplier flags and the seats involved
+    public static final int STANDUP = 1;
+    public static final int KANCHAN = 1 << 1;
+    public static final int SELF_DRAW = 1 << 2;
+    public static final int WINNER_IS_BANKER = 1 << 3;
+    public static final int DISCARDER_IS_BANKER = 1 << 4;
+    private static final int WINNER_SHIFT = 8; // 2 bits
+    private static final int BANKER_SHIFT = 10; // 2 bits
+    private static final int DISCARDER_SHIFT = 12; // 3 bits, seat + 1 so a self-draw is 0
+
+    /**
+     * Score of a finished hand for display. Built from a breakdown and its
+     * deltas; the engine and simulator use {@link #score} directly.
+     */
     public static class ScoreResult {
         public Map<Integer, Integer> scoreChanges = new HashMap<>(); // SeatIndex -> Delta
         public String description = "";
+
+        public ScoreResult() {
+        }
+
+        public ScoreResult(int breakdown, int[] deltas) {
+            for (int i = 0; i < 4; i++)
+                scoreChanges.put(i, deltas[i]);
+            description = describe(breakdown);
+        }
     }
 
     /**
@@ -21,26 +44,118 @@ public class ScoreCalculator {
      */
     public static ScoreResult calculate(Player winner, Tile winningTile, boolean isSelfDraw,
             int bankerIndex, int discarderIndex, List<Player> allPlayers) {
-        ScoreResult result = new ScoreResult();
-        StringBuilder desc = new StringBuilder();
+        int[] deltas = new int[4];
+        int breakdown = score(winner, winningTile, isSelfDraw, bankerIndex, discarderIndex, deltas);
+        return new ScoreResult(breakdown, deltas);
+    }
 
-        // 1. Calculate Base Multiplier G
-        // G = Standup * Private In-Between
-        // Possible values: 1, 2, 4
-        int G = 1;
+    /**
+     * Calculates score changes for a win without building a description.
+     *
+     * @param deltas Receives the change for each seat; all four are written
+     * @return The breakdown: multiplier flags ({@link #STANDUP}, {@link #KANCHAN},
+     *         {@link #SELF_DRAW}, {@link #WINNER_IS_BANKER},
+     *         {@link #DISCARDER_IS_BANKER}) and the winner, banker and
+     *         discarder seats, read back with the getters below
+     */
+    public static int score(Player winner, Tile winningTile, boolean isSelfDraw,
+            int bankerIndex, int discarderIndex, int[] deltas) {
+        int winnerIndex = winner.getSeatIndex();
+        int breakdown = winnerIndex << WINNER_SHIFT | bankerIndex << BANKER_SHIFT;
+        if (isStandup(winner, isSelfDraw))
+            breakdown |= STANDUP;
+        if (isKanchan(winner, winningTile, isSelfDraw))
+            breakdown |= KANCHAN;
+        if (winnerIndex == bankerIndex)
+            breakdown |= WINNER_IS_BANKER;
+        if (isSelfDraw) {
+            breakdown |= SELF_DRAW;
+        } else {
+            breakdown |= (discarderIndex + 1) << DISCARDER_SHIFT;
+            if (discarderIndex == bankerIndex)
+                breakdown |= DISCARDER_IS_BANKER;
+        }
 
-        boolean isStandup = isStandup(winner, isSelfDraw);
-        if (isStandup) {
+        for (int i = 0; i < 4; i++)
+            deltas[i] = -getPayment(breakdown, i);
+        int total = 0;
+        for (int i = 0; i < 4; i++)
+            total -= deltas[i];
+        deltas[winnerIndex] = total;
+        return breakdown;
+    }
+
+    /**
+     * Base multiplier G = Standup * Private In-Between.
+     * Possible values: 1, 2, 4
+     */
+    public static int getMultiplier(int breakdown) {
+        int G = 1;
+        if ((breakdown & STANDUP) != 0)
             G *= 2;
-            desc.append("立直(站立) x2  ");
+        if ((breakdown & KANCHAN) != 0)
+            G *= 2;
+        return G;
+    }
+
+    public static int getWinner(int breakdown) {
+        return breakdown >> WINNER_SHIFT & 3;
+    }
+
+    public static int getBanker(int breakdown) {
+        return breakdown >> BANKER_SHIFT & 3;
+    }
+
+    // Seat that dealt in, -1 for a self-draw
+    public static int getDiscarder(int breakdown) {
+        return (breakdown >> DISCARDER_SHIFT & 7) - 1;
+    }
+
+    /**
+     * What the given seat pays the winner; 0 for the winner and for seats
+     * that do not pay.
+     */
+    public static int getPayment(int breakdown, int seat) {
+        int G = getMultiplier(breakdown);
+        boolean winnerIsBanker = (breakdown & WINNER_IS_BANKER) != 0;
+        if (seat == getWinner(breakdown))
+            return 0;
+
+        if ((breakdown & SELF_DRAW) != 0) {
+            // Self-Draw Win: all 3 others pay
+            // 5.1.1 Winner Is Banker: Each pays 4G.
+            // 5.1.2 Winner Is Not Banker: Banker pays 4G, others pay 2G.
+            if (winnerIsBanker || seat == getBanker(breakdown))
+                return 4 * G;
+            return 2 * G;
         }
 
-        boolean isKanchan = isKanchan(winner, winningTile);
-        if (isKanchan) {
-            G *= 2;
-            desc.append("夹 x2  ");
+        // Discard Win: only discarder pays
+        if (seat != getDiscarder(breakdown))
+            return 0;
+        if (winnerIsBanker) {
+            // Case 6.1: Winner Is Banker -> Discarder pays 8G.
+            return 8 * G;
+        } else if ((breakdown & DISCARDER_IS_BANKER) != 0) {
+            // Case 6.2: Winner Not Banker, Discarder Is Banker -> Discarder pays 6G.
+            return 6 * G;
+        } else {
+            // Case 6.3: Winner Not Banker, Discarder Not Banker -> Discarder pays 5G.
+            return 5 * G;
         }
+    }
 
+    /**
+     * The "why" shown in the score dialog, built from a breakdown returned by
+     * {@link #score}.
+     */
+    public static String describe(int breakdown) {
+        StringBuilder desc = new StringBuilder();
+        int G = getMultiplier(breakdown);
+        if ((breakdown & STANDUP) != 0)
+            desc.append("立直(站立) x2  ");
+        if ((breakdown & KANCHAN) != 0)
+            desc.append("夹 x2  ");
         if (G == 1) {
             desc.append("平胡  ");
         } else {
@@ -48,78 +163,25 @@ public class ScoreCalculator {
         }
         desc.append("\n");
 
-        int winnerIndex = winner.getSeatIndex();
-        boolean winnerIsBanker = (winnerIndex == bankerIndex);
-
-        // Initialize changes
-        for (int i = 0; i < 4; i++) {
-            result.scoreChanges.put(i, 0);
-        }
-
-        if (isSelfDraw) {
-            // Self-Draw Win
-            // All 3 others pay
+        int bankerIndex = getBanker(breakdown);
+        if ((breakdown & SELF_DRAW) != 0) {
             desc.append("自摸！\n");
-
-            int totalWin = 0;
             for (int i = 0; i < 4; i++) {
-                if (i == winnerIndex)
+                if (i == getWinner(breakdown))
                     continue;
-
-                // 5.1.1 Winner Is Banker: Each pays 4G.
-                // 5.1.2 Winner Is Not Banker: Banker pays 4G, others pay 2G.
-                int payment;
-                boolean payerIsBanker = (i == bankerIndex);
-
-                if (winnerIsBanker) {
-                    payment = 4 * G;
-                } else {
-                    if (payerIsBanker) {
-                        payment = 4 * G;
-                    } else {
-                        payment = 2 * G;
-                    }
-                }
-
-                result.scoreChanges.put(i, -payment);
-                totalWin += payment;
-
-                String role = payerIsBanker ? "庄家" : "闲家";
+                String role = (i == bankerIndex) ? "庄家" : "闲家";
                 String name = (i == 0) ? "我" : "电脑" + i;
-                desc.append(String.format("%s (%s) 支付 %d\n", name, role, payment));
+                desc.append(String.format("%s (%s) 支付 %d\n", name, role, getPayment(breakdown, i)));
             }
-            result.scoreChanges.put(winnerIndex, totalWin);
-
         } else {
-            // Discard Win
-            // Only discarder pays
             desc.append("点炮胡！\n");
-
-            boolean discarderIsBanker = (discarderIndex == bankerIndex);
-            int payment;
-
-            if (winnerIsBanker) {
-                // Case 6.1: Winner Is Banker -> Discarder pays 8G.
-                payment = 8 * G;
-            } else {
-                if (discarderIsBanker) {
-                    // Case 6.2: Winner Not Banker, Discarder Is Banker -> Discarder pays 6G.
-                    payment = 6 * G;
-                } else {
-                    // Case 6.3: Winner Not Banker, Discarder Not Banker -> Discarder pays 5G.
-                    payment = 5 * G;
-                }
-            }
-
-            result.scoreChanges.put(discarderIndex, -payment);
-            result.scoreChanges.put(winnerIndex, payment);
-
-            String role = discarderIsBanker ? "庄家" : "闲家";
+            int discarderIndex = getDiscarder(breakdown);
+            String role = (discarderIndex == bankerIndex) ? "庄家" : "闲家";
             String name = (discarderIndex == 0) ? "我" : "电脑" + discarderIndex;
-            desc.append(String.format("放炮者: %s (%s) 支付 %d\n", name, role, payment));
+            desc.append(String.format("放炮者: %s (%s) 支付 %d\n", name, role,
+                    getPayment(breakdown, discarderIndex)));
         }
-
-        return result;
+        return desc.toString();
     }
 
     private static boolean isStandup(Player winner, boolean isSelfDraw) {
@@ -140,69 +202,37 @@ public class ScoreCalculator {
         return true;
     }
 
-    private static boolean isKanchan(Player winner, Tile winningTile) {
-        if (!winningTile.isNumber())
+    /**
+     * Kanchan: some way of reading the winning hand completes a sequence with
+     * the winning tile in the middle. A Bao win need not hold the drawn tile
+     * in any shape; it counts if the Bao stands in for a Kanchan wait.
+     */
+    private static boolean isKanchan(Player winner, Tile winningTile, boolean isSelfDraw) {
+        HandSummary summary = winner.getSummary();
+        int[] counts = summary.copyCounts();
+        int meldCount = summary.getMeldCount();
+        int meldFlags = summary.getMeldFlags();
+        int w = winningTile.getId();
+        // A discard win is scored before the tile joins the hand
+        if (!isSelfDraw)
+            counts[w]++;
+        if (HandPartitions.isKanchan(counts, meldCount, meldFlags, w)) // False for honors
+            return true;
+        // Only a Bao win leaves the hand short; the Bao may be any tile, honors included
+        if (!isSelfDraw || HuEvaluator.isHu(counts, meldCount, meldFlags))
             return false;
 
-        // Check if hand can be formed such that winningTile completes a sequence X-W-Y
-        // where winningTile is W (middle).
-        // This requires W-1 and W+1 to exist in the hand, AND remain available for this
-        // sequence
-        // after all other tiles are formed into valid sets.
-        // This is a complex check usually.
-        // Simple heuristic: Remove W-1 and W+1. If remaing can Hu, then Kanchan is
-        // possible.
-        // Note: A tile can complete multiple shapes (e.g. 23334 wins on 3 -> 234 + 33,
-        // or 234 + 33).
-        // Kanchan is valid if AT LEAST ONE valid partition uses it as Middle.
-
-        // Strict approach:
-        List<Tile> hand = new ArrayList<>(winner.getHand());
-        // Since winner has ALREADY won, 'hand' includes the winning tile (if self draw)
-        // or we need to add it (if discard).
-        // The calling code passes 'winner'. If simulating, we should ensure 'hand' is
-        // full 14.
-
-        // Actually, Player.getHand() usually excludes the winning tile if it wasn't
-        // added yet,
-        // OR includes it. In our GameActivity, we add `discarded` to a copy list to
-        // check Hu.
-        // Let's assume for `isKanchan`, we need to inspect the 13-tile hand + winTile.
-
-        // However, simpler logic:
-        // Does hand have T-1 and T+1?
-        // If so, do they form a crucial sequence?
-        // This is hard to prove without a full backtracking partitioner.
-        // For MVP: Check if T-1 and T+1 exist. If so, credit it.
-        // (This is "loose" but acceptable for v1).
-
-        // Better: Try to remove T-1, T+1. If remaining 11 tiles + T can form standard
-        // Hu patterns?
-        // No, remaining 11 tiles need to form (3 sets + pair).
-
-        int rank = winningTile.getRank();
-        Tile tMinus = find(hand, winningTile.getSuit(), rank - 1);
-        Tile tPlus = find(hand, winningTile.getSuit(), rank + 1);
-
-        if (tMinus != null && tPlus != null) {
-            // Potential Kanchan
-            // To be strict: Remove tMinus, tPlus, and winningTile (if in hand).
-            // Then check if rest is valid.
-            // But 'winningTile' might not be in 'hand' depending on when we call this.
-            // Let's assume 'hand' is the 14 tiles config.
-
-            // Let's verify with "loose" check for strictly Changchun implementation speed.
-            return true;
+        counts[w]--;
+        long waits = HuEvaluator.waitMask(counts, meldCount, meldFlags);
+        for (int id = 0; id < HuEvaluator.TILE_TYPES; id++) {
+            if ((waits & 1L << id) == 0)
+                continue;
+            counts[id]++;
+            boolean kanchan = HandPartitions.isKanchan(counts, meldCount, meldFlags, id);
+            counts[id]--;
+            if (kanchan)
+                return true;
         }
-
         return false;
     }
-
-    private static Tile find(List<Tile> tiles, Tile.Suit suit, int rank) {
-        for (Tile t : tiles) {
-            if (t.getSuit() == suit && t.getRank() == rank)
-                return t;
-        }
-        return null;
-    }
 }
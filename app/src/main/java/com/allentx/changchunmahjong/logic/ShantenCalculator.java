@@ -0,0 +1,246 @@
+package com.allentx.changchunmahjong.logic;
+
+import java.util.Arrays;
+
+/**
+ * Shanten (tiles-to-ready) on a 34-entry tile-count vector.
+ *
+ * -1 means the hand is already a Hu, 0 means Tenpai (ready), n means exactly n
+ * more useful draws are needed before the hand is ready. The value is one less
+ * than the fewest tiles the hand is missing from any winning hand that meets
+ * the Changchun rules: three suits and a Yao Jiu tile across hand and melds,
+ * and a triplet, exposed Peng/Gang or dragon pair unless the hand is Seven
+ * Pairs. No hand may hold a fifth copy; copies visible elsewhere are not
+ * considered. One draw and discard can change the value by at most one.
+ *
+ * Suits are independent: for each suit's count pattern (the base-5 key of
+ * {@link DecompositionTable}) the fewest missing tiles is tabulated per
+ * number of sets, pair, Yao Jiu and triplet rule in one pass over the ranks,
+ * and kept in a small direct-mapped cache; a hand then combines its four
+ * tables. A table keeps only entries no other entry beats on every count,
+ * packed as {@code entry << 8 | missing}.
+ */
+public class ShantenCalculator {
+    public static final int HU = -1;
+    public static final int TENPAI = 0;
+
+    private static final int FIRST_DRAGON_RANK = 4; // Zhong, Fa, Bai are honor ranks 5-7
+    private static final int INFINITE = Byte.MAX_VALUE;
+
+    // Table entry: sets (0-4) x pair x Yao Jiu x triplet rule met
+    private static final int ENTRIES = 5 * 2 * 2 * 2;
+
+    // Suit tables by key; a slot keeps the latest key that hashed to it
+    private static final int NUMBER_CACHE_BITS = 12;
+    private static final int HONOR_CACHE_BITS = 10;
+    private static final CachedTable[] NUMBER_TABLES = new CachedTable[1 << NUMBER_CACHE_BITS];
+    private static final CachedTable[] HONOR_TABLES = new CachedTable[1 << HONOR_CACHE_BITS];
+
+    // Immutable, so a slot read on another thread always pairs a key with its table
+    private static final class CachedTable {
+        final int key;
+        final int[] table;
+
+        CachedTable(int key, int[] table) {
+            this.key = key;
+            this.table = table;
+        }
+    }
+
+    /**
+     * @param counts    Tiles in hand (excluding fixed melds); not modified
+     * @param meldCount Number of exposed melds
+     * @param meldFlags Summary of the exposed melds, see
+     *                  {@link HuEvaluator#meldFlags(java.util.List)}
+     */
+    public static int shanten(int[] counts, int meldCount, int meldFlags) {
+        int[][] suitTables = new int[4][];
+        for (int suit = 0; suit < 4; suit++)
+            suitTables[suit] = suitTable(counts, suit);
+        return shanten(counts, meldCount, meldFlags, suitTables);
+    }
+
+    /**
+     * Shanten from per-suit tables already looked up with
+     * {@link #suitTable(int[], int)}, so callers that vary one suit at a time
+     * can reuse the other three.
+     */
+    static int shanten(int[] counts, int meldCount, int meldFlags, int[][] suitTables) {
+        int missing = standardMissing(meldCount, meldFlags, suitTables);
+        if (meldCount == 0) {
+            // Every pair not yet held costs at least one tile
+            int pairs = 0;
+            for (int i = 0; i < HuEvaluator.TILE_TYPES; i++)
+                pairs += Math.min(counts[i], 4) / 2;
+            if (7 - pairs < missing)
+                missing = Math.min(missing, qiDuiMissing(counts));
+        }
+        return missing - 1;
+    }
+
+    /**
+     * Fewest missing tiles of one suit (0-2 numbered, 3 honors) per table entry.
+     */
+    static int[] suitTable(int[] counts, int suit) {
+        int key = HuEvaluator.suitKey(counts, suit);
+        if (key < 0)
+            return computeTable(counts, suit); // Outside the cached range
+        CachedTable[] cache = suit == 3 ? HONOR_TABLES : NUMBER_TABLES;
+        int slot = (key * 0x9E3779B1) >>> (32 - (suit == 3 ? HONOR_CACHE_BITS : NUMBER_CACHE_BITS));
+        CachedTable cached = cache[slot];
+        if (cached == null || cached.key != key) {
+            cached = new CachedTable(key, computeTable(counts, suit));
+            cache[slot] = cached;
+        }
+        return cached.table;
+    }
+
+    private static int entry(int sets, int pair, int yaoJiu, int qualified) {
+        return ((sets * 2 + pair) * 2 + yaoJiu) * 2 + qualified;
+    }
+
+    // (4 - meldCount) sets and a pair, combined over the suits
+    private static int standardMissing(int meldCount, int meldFlags, int[][] suitTables) {
+        int requiredSets = 4 - meldCount;
+        if (requiredSets < 0)
+            return INFINITE;
+        int[] best = new int[ENTRIES];
+        int[] next = new int[ENTRIES];
+        Arrays.fill(best, INFINITE);
+        best[entry(0, 0, (meldFlags & HuEvaluator.MELD_YAO_JIU) != 0 ? 1 : 0,
+                (meldFlags & HuEvaluator.MELD_PENG_GANG) != 0 ? 1 : 0)] = 0;
+
+        int[] suitBits = { HuEvaluator.MELD_WAN, HuEvaluator.MELD_TIAO, HuEvaluator.MELD_TONG };
+        for (int suit = 0; suit < 4; suit++) {
+            // A suit missing from the melds must appear in the winning hand
+            boolean mustAppear = suit < 3 && (meldFlags & suitBits[suit]) == 0;
+            int[] table = suitTables[suit];
+            Arrays.fill(next, INFINITE);
+            for (int a = 0; a < ENTRIES; a++) {
+                if (best[a] >= INFINITE)
+                    continue;
+                int aSets = a >> 3;
+                int aPair = (a >> 2) & 1;
+                for (int packed : table) {
+                    int b = packed >> 8;
+                    int sets = aSets + (b >> 3);
+                    int pair = aPair + ((b >> 2) & 1);
+                    if (sets > requiredSets || pair > 1 || (mustAppear && (b >> 2) == 0))
+                        continue;
+                    int e = entry(sets, pair, ((a | b) >> 1) & 1, (a | b) & 1);
+                    next[e] = Math.min(next[e], best[a] + (packed & 0xFF));
+                }
+            }
+            int[] swap = best;
+            best = next;
+            next = swap;
+        }
+        return best[entry(requiredSets, 1, 1, 1)];
+    }
+
+    // Seven Pairs: four of a kind counts as two pairs
+    private static int qiDuiMissing(int[] counts) {
+        // State: pairs (0-7) x suits present (3 bits) x Yao Jiu
+        int states = 8 * 8 * 2;
+        int[] best = new int[states];
+        int[] next = new int[states];
+        Arrays.fill(best, INFINITE);
+        best[0] = 0;
+        for (int id = 0; id < HuEvaluator.TILE_TYPES; id++) {
+            int flags = HuEvaluator.tileFlags(id);
+            int suitBits = flags & (HuEvaluator.MELD_WAN | HuEvaluator.MELD_TIAO | HuEvaluator.MELD_TONG);
+            int yaoJiu = (flags & HuEvaluator.MELD_YAO_JIU) != 0 ? 1 : 0;
+            System.arraycopy(best, 0, next, 0, states); // No pair of this tile
+            for (int s = 0; s < states; s++) {
+                if (best[s] >= INFINITE)
+                    continue;
+                int pairs = s >> 4;
+                for (int copies = 2; copies <= 4 && pairs + copies / 2 <= 7; copies += 2) {
+                    int e = (pairs + copies / 2) << 4 | ((s >> 1) & 7 | suitBits) << 1 | (s & 1 | yaoJiu);
+                    next[e] = Math.min(next[e], best[s] + Math.max(0, copies - counts[id]));
+                }
+            }
+            int[] swap = best;
+            best = next;
+            next = swap;
+        }
+        return best[7 << 4 | 7 << 1 | 1];
+    }
+
+    /**
+     * Fewest missing tiles per table entry, one rank at a time. A state is the
+     * entry built so far plus the sequences started at the previous two ranks,
+     * which still take a tile of this rank; a rank holds at most four tiles of
+     * the target.
+     */
+    private static int[] computeTable(int[] counts, int suit) {
+        boolean honors = suit == 3;
+        int ranks = honors ? DecompositionTable.HONOR_RANKS : DecompositionTable.NUMBER_RANKS;
+        // State: (sequences started at r - 1) * 5 + (started at r - 2), then the entry
+        int states = 25 * ENTRIES;
+        byte[] best = new byte[states];
+        byte[] next = new byte[states];
+        Arrays.fill(best, (byte) INFINITE);
+        best[0] = 0;
+
+        for (int r = 0; r < ranks; r++) {
+            int held = counts[suit * 9 + r];
+            int yaoJiuRank = isYaoJiu(honors, r) ? 1 : 0;
+            int dragonPair = honors && r >= FIRST_DRAGON_RANK ? 1 : 0;
+            int maxStarted = honors || r > ranks - 3 ? 0 : 4;
+            Arrays.fill(next, (byte) INFINITE);
+            for (int s = 0; s < states; s++) {
+                int missing = best[s];
+                if (missing >= INFINITE)
+                    continue;
+                int open = s / ENTRIES;
+                int e = s % ENTRIES;
+                int sets = e >> 3;
+                int pair = (e >> 2) & 1;
+                for (int triplet = 0; triplet <= 1; triplet++) {
+                    for (int p = 0; p <= 1 - pair; p++) {
+                        for (int started = 0; started <= maxStarted && sets + triplet + started <= 4; started++) {
+                            int target = open / 5 + open % 5 + 3 * triplet + 2 * p + started;
+                            if (target > 4)
+                                break;
+                            int yaoJiu = (e >> 1) & 1 | (triplet | p) & yaoJiuRank
+                                    | (started > 0 && (r == 0 || r == 6) ? 1 : 0);
+                            int qualified = e & 1 | triplet | p & dragonPair;
+                            int to = (started * 5 + open / 5) * ENTRIES
+                                    + entry(sets + triplet + started, pair + p, yaoJiu, qualified);
+                            int total = missing + Math.max(0, target - held);
+                            if (total < next[to])
+                                next[to] = (byte) total;
+                        }
+                    }
+                }
+            }
+            byte[] swap = best;
+            best = next;
+            next = swap;
+        }
+
+        // No sequence starts in the last two ranks, so only states 0..ENTRIES - 1 remain
+        int[] packed = new int[ENTRIES];
+        int n = 0;
+        for (int e = 0; e < ENTRIES; e++) {
+            if (best[e] < INFINITE && !dominated(best, e))
+                packed[n++] = e << 8 | best[e];
+        }
+        return Arrays.copyOf(packed, n);
+    }
+
+    // Another entry with the same sets and pair, no more missing tiles and at least the same flags
+    private static boolean dominated(byte[] table, int e) {
+        for (int flags = 0; flags < 4; flags++) {
+            int other = (e & ~3) | flags;
+            if (other != e && (flags & (e & 3)) == (e & 3) && table[other] <= table[e])
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isYaoJiu(boolean honors, int rank) {
+        return honors || rank == 0 || rank == 8;
+    }
+}
@@ -0,0 +1,164 @@
+package com.allentx.changchunmahjong.model;
+
+/**
+ * Running summary of a player's hand and melds, kept up to date by
+ * {@link Player} on every add, remove and meld so rule and AI checks can
+ * answer count, suit and Yao Jiu questions without walking the tile list.
+ *
+ * Read-only outside the model package.
+ */
+public final class HandSummary {
+    private static final int ID_FIRST_ZI = 27;
+    private static final int ID_ZHONG = ID_FIRST_ZI + Tile.ID_ZHONG - 1;
+
+    private final int[] counts = new int[Tile.TYPE_COUNT];
+    private final int[] suitCounts = new int[4];
+    private int size;
+    private int yaoJiuCount;
+    private int pairCount; // Tile types held at least twice
+    private int tripletCount; // Tile types held at least three times
+    private int dragonPairCount; // Dragon types held at least twice
+    private int meldCount;
+    private int meldFlags;
+    private long countsHash;
+
+    HandSummary() {
+    }
+
+    void add(int id) {
+        int c = counts[id];
+        countsHash = Zobrist.addTile(countsHash, id, c);
+        counts[id] = c + 1;
+        size++;
+        suitCounts[suitOf(id)]++;
+        if (isYaoJiu(id))
+            yaoJiuCount++;
+        if (c == 1) {
+            pairCount++;
+            if (id >= ID_ZHONG)
+                dragonPairCount++;
+        } else if (c == 2) {
+            tripletCount++;
+        }
+    }
+
+    void remove(int id) {
+        int c = counts[id];
+        if (c == 0)
+            return;
+        countsHash = Zobrist.removeTile(countsHash, id, c);
+        counts[id] = c - 1;
+        size--;
+        suitCounts[suitOf(id)]--;
+        if (isYaoJiu(id))
+            yaoJiuCount--;
+        if (c == 2) {
+            pairCount--;
+            if (id >= ID_ZHONG)
+                dragonPairCount--;
+        } else if (c == 3) {
+            tripletCount--;
+        }
+    }
+
+    void addMeld(Meld meld) {
+        meldCount++;
+        meldFlags |= meld.getFlags();
+    }
+
+    void clear() {
+        java.util.Arrays.fill(counts, 0);
+        java.util.Arrays.fill(suitCounts, 0);
+        size = 0;
+        yaoJiuCount = 0;
+        pairCount = 0;
+        tripletCount = 0;
+        dragonPairCount = 0;
+        meldCount = 0;
+        meldFlags = 0;
+        countsHash = 0;
+    }
+
+    /** Copies of tile id in hand. */
+    public int getCount(int id) {
+        return counts[id];
+    }
+
+    public int getCount(Tile tile) {
+        return counts[tile.getId()];
+    }
+
+    /** A fresh copy of the 34-entry count vector, safe to modify. */
+    public int[] copyCounts() {
+        return counts.clone();
+    }
+
+    /** Physical tiles in hand (excluding melds). */
+    public int getSize() {
+        return size;
+    }
+
+    /** Hand plus three per meld, as the rules count a hand. */
+    public int getLogicalSize() {
+        return size + meldCount * 3;
+    }
+
+    public int getSuitCount(Tile.Suit suit) {
+        return suitCounts[suit.ordinal()];
+    }
+
+    /** Yao Jiu tiles (terminals and honors) in hand. */
+    public int getYaoJiuCount() {
+        return yaoJiuCount;
+    }
+
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    public boolean hasTriplet() {
+        return tripletCount > 0;
+    }
+
+    public boolean hasDragonPair() {
+        return dragonPairCount > 0;
+    }
+
+    public int getMeldCount() {
+        return meldCount;
+    }
+
+    /** Summary of the melds: {@link Meld#getFlags()} of each, ORed. */
+    public int getMeldFlags() {
+        return meldFlags;
+    }
+
+    public boolean hasPengGangMeld() {
+        return (meldFlags & Meld.FLAG_PENG_GANG) != 0;
+    }
+
+    /** Wan, Tiao and Tong all present across hand and melds. */
+    public boolean hasThreeSuits() {
+        return (suitCounts[0] > 0 || (meldFlags & Meld.FLAG_WAN) != 0)
+                && (suitCounts[1] > 0 || (meldFlags & Meld.FLAG_TIAO) != 0)
+                && (suitCounts[2] > 0 || (meldFlags & Meld.FLAG_TONG) != 0);
+    }
+
+    /** A terminal or honor somewhere in hand or melds. */
+    public boolean hasYaoJiu() {
+        return yaoJiuCount > 0 || (meldFlags & Meld.FLAG_YAO_JIU) != 0;
+    }
+
+    /** {@link Zobrist} hash of the hand counts and meld signature. */
+    public long getHash() {
+        return countsHash ^ Zobrist.meldKey(meldCount, meldFlags);
+    }
+
+    private static int suitOf(int id) {
+        return id < ID_FIRST_ZI ? id / 9 : 3;
+    }
+
+    private static boolean isYaoJiu(int id) {
+        return (Meld.tileFlags(id) & Meld.FLAG_YAO_JIU) != 0;
+    }
+}
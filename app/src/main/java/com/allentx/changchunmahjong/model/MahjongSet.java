@@ -1,44 +1,82 @@
 package com.allentx.changchunmahjong.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import com.allentx.changchunmahjong.util.RandomSource;
 
+/**
+ * The 136 physical tiles as a primitive deck of physical indices
+ * (id * 4 + copy, see {@link Tile#getPhysicalIndex()}).
+ */
 public class MahjongSet {
-    private final List<Tile> tiles;
+    public static final int SIZE = Tile.TYPE_COUNT * Tile.COPIES;
+
+    private final byte[] deck = new byte[SIZE];
+    private RandomSource random;
 
     public MahjongSet() {
-        tiles = new ArrayList<>();
+        this(RandomSource.create());
+    }
+
+    public MahjongSet(RandomSource random) {
+        this.random = random;
         initialize();
     }
 
     private void initialize() {
-        tiles.clear();
-        // Add Wan, Tiao, Tong (1-9) * 4
-        for (Tile.Suit suit : new Tile.Suit[] { Tile.Suit.WAN, Tile.Suit.TIAO, Tile.Suit.TONG }) {
-            for (int rank = 1; rank <= 9; rank++) {
-                for (int i = 0; i < 4; i++) {
-                    tiles.add(new Tile(suit, rank));
-                }
-            }
+        // Wan, Tiao, Tong (1-9) then Zi (1-7), four physical copies each
+        for (int i = 0; i < SIZE; i++)
+            deck[i] = (byte) i;
+    }
+
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+    }
+
+    /**
+     * Restores the ordered deck and shuffles it in place (Fisher-Yates), so the
+     * result depends only on the random source: a seeded source reproduces the
+     * same deal.
+     */
+    public void shuffle() {
+        initialize();
+        for (int i = SIZE - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte t = deck[i];
+            deck[i] = deck[j];
+            deck[j] = t;
         }
-        // Add Zi (1-7) * 4
-        for (int rank = 1; rank <= 7; rank++) {
-            for (int i = 0; i < 4; i++) {
-                tiles.add(new Tile(Tile.Suit.ZI, rank));
-            }
+    }
+
+    /**
+     * Replaces the deck with a known order (e.g. to rebuild a recorded hand).
+     *
+     * @param order The 136 physical indices, each exactly once
+     */
+    public void setOrder(byte[] order) {
+        boolean[] used = new boolean[SIZE];
+        if (order.length != SIZE)
+            throw new IllegalArgumentException("Deck needs " + SIZE + " tiles");
+        for (byte b : order) {
+            int index = b & 0xFF;
+            if (index >= SIZE || used[index])
+                throw new IllegalArgumentException("Not a permutation of the deck");
+            used[index] = true;
         }
+        System.arraycopy(order, 0, deck, 0, SIZE);
     }
 
-    public void shuffle() {
-        Collections.shuffle(tiles);
+    /**
+     * The deck itself (physical indices in deal order, read as unsigned
+     * bytes); read-only for callers.
+     */
+    public byte[] getDeck() {
+        return deck;
     }
 
-    public List<Tile> getTiles() {
-        return tiles;
+    public Tile getTile(int position) {
+        return Tile.byPhysicalIndex(deck[position] & 0xFF);
     }
 
     public int getSize() {
-        return tiles.size();
+        return SIZE;
     }
 }
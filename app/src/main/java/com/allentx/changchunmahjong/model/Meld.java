@@ -1,5 +1,7 @@
 package com.allentx.changchunmahjong.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Meld {
@@ -11,21 +13,44 @@ public class Meld {
         BU_GANG // Added Quad (was Peng, self-drew 4th)
     }
 
+    // Summary flags of a meld's tiles and type; OR them over melds with getFlags()
+    public static final int FLAG_WAN = 1;
+    public static final int FLAG_TIAO = 2;
+    public static final int FLAG_TONG = 4;
+    public static final int FLAG_YAO_JIU = 8;
+    public static final int FLAG_PENG_GANG = 16; // Satisfies the Changchun triplet requirement
+
+    private static final int ID_FIRST_ZI = 27;
+
     private final Type type;
     private final Tile firstTile; // For Chi: lowest rank; For others: the tile type
-    private final List<Tile> tiles;
+    private final List<Tile> tiles; // Sorted, read-only
     private final int fromPlayer; // Seat index of who fed the tile (-1 if self/AnGang)
+    private final int flags;
 
     public Meld(Type type, List<Tile> tiles, int fromPlayer) {
         this.type = type;
-        this.tiles = tiles;
         this.fromPlayer = fromPlayer;
-        if (tiles != null && !tiles.isEmpty()) {
-            java.util.Collections.sort(this.tiles);
-            this.firstTile = this.tiles.get(0);
-        } else {
-            this.firstTile = null;
-        }
+        // Sort a copy: the caller keeps its list as it was
+        List<Tile> sorted = tiles != null ? new ArrayList<>(tiles) : new ArrayList<Tile>();
+        Collections.sort(sorted);
+        this.tiles = Collections.unmodifiableList(sorted);
+        this.firstTile = sorted.isEmpty() ? null : sorted.get(0);
+        int f = type == Type.PENG || type == Type.MING_GANG || type == Type.AN_GANG ? FLAG_PENG_GANG : 0;
+        for (Tile t : sorted)
+            f |= tileFlags(t.getId());
+        this.flags = f;
+    }
+
+    /**
+     * Suit and Yao Jiu flags contributed by a single tile id.
+     */
+    public static int tileFlags(int id) {
+        if (id >= ID_FIRST_ZI)
+            return FLAG_YAO_JIU; // Honors count as Yao Jiu
+        int suitFlag = id < 9 ? FLAG_WAN : (id < 18 ? FLAG_TIAO : FLAG_TONG);
+        int rankIndex = id % 9;
+        return (rankIndex == 0 || rankIndex == 8) ? (suitFlag | FLAG_YAO_JIU) : suitFlag;
     }
 
     public Type getType() {
@@ -43,4 +68,9 @@ public class Meld {
     public Tile getFirstTile() {
         return firstTile;
     }
+
+    // FLAG_* bits: suits and Yao Jiu among the tiles, and whether it is a Peng/Gang
+    public int getFlags() {
+        return flags;
+    }
 }
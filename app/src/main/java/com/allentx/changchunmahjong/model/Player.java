@@ -5,8 +5,13 @@ import java.util.Collections;
 import java.util.List;
 
 public class Player {
-    private final List<Tile> hand;
+    public static final int STARTING_SCORE = 100;
+
+    private final List<Tile> hand; // Always sorted
+    private final List<Tile> handView;
     private final List<Meld> melds;
+    private final List<Meld> meldsView;
+    private final HandSummary summary;
     private final List<Tile> discards;
     private final int seatIndex;
     private int score;
@@ -16,9 +21,12 @@ public class Player {
     public Player(int seatIndex) {
         this.seatIndex = seatIndex;
         this.hand = new ArrayList<>();
+        this.handView = Collections.unmodifiableList(hand);
         this.melds = new ArrayList<>();
+        this.meldsView = Collections.unmodifiableList(melds);
+        this.summary = new HandSummary();
         this.discards = new ArrayList<>();
-        this.score = 100;
+        this.score = STARTING_SCORE;
         this.isHandLocked = false;
         this.hasViewedBao = false;
     }
@@ -36,26 +44,68 @@ public class Player {
     }
 
     public void addTile(Tile tile) {
-        hand.add(tile);
-        sortHand();
-    }
-
-    public void removeTile(Tile tile) {
-        // Need to be careful with object reference equality vs logical equality
-        // Tile.equals uses logical equality (rank/suit)
-        hand.remove(tile);
-    }
-
-    public void sortHand() {
-        Collections.sort(hand);
-    }
-
+        // Binary insertion after any equal tiles keeps the hand sorted
+        int lo = 0;
+        int hi = hand.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hand.get(mid).getId() <= tile.getId())
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        hand.add(lo, tile);
+        summary.add(tile.getId());
+    }
+
+    /**
+     * Removes one tile of the same type, preferring this exact copy if it is in
+     * hand (Tile.equals uses logical equality).
+     *
+     * @return The tile instance removed from hand, or null if none matched
+     */
+    public Tile removeTile(Tile tile) {
+        int first = -1;
+        for (int i = 0; i < hand.size(); i++) {
+            Tile t = hand.get(i);
+            if (t.getId() > tile.getId())
+                break;
+            if (t == tile) {
+                first = i;
+                break;
+            }
+            if (first == -1 && t.getId() == tile.getId())
+                first = i;
+        }
+        if (first == -1)
+            return null;
+        summary.remove(tile.getId());
+        return hand.remove(first);
+    }
+
+    /**
+     * Clears hand, melds and discards for a new round.
+     */
+    public void resetForRound() {
+        hand.clear();
+        melds.clear();
+        discards.clear();
+        summary.clear();
+        hasViewedBao = false;
+        isHandLocked = false;
+    }
+
+    // Read-only, sorted; change it through addTile / removeTile
     public List<Tile> getHand() {
-        return hand;
+        return handView;
     }
 
     public List<Meld> getMelds() {
-        return melds;
+        return meldsView;
+    }
+
+    public HandSummary getSummary() {
+        return summary;
     }
 
     public List<Tile> getDiscards() {
@@ -66,8 +116,10 @@ public class Player {
         return seatIndex;
     }
 
-    public void addMeld(Meld meld) {
+    // Through Table.addMeld, which also records the tiles as visible
+    void addMeld(Meld meld) {
         melds.add(meld);
+        summary.addMeld(meld);
     }
 
     public void addDiscard(Tile tile) {
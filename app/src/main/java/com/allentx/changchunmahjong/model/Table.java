@@ -1,6 +1,8 @@
 package com.allentx.changchunmahjong.model;
 
+import com.allentx.changchunmahjong.util.RandomSource;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Table {
@@ -9,10 +11,22 @@ public class Table {
     public static final int SEAT_WEST = 2;
     public static final int SEAT_NORTH = 3;
 
+    public static final int WALL_SIZE = 136;
+    public static final int TILES_PER_SIDE = 34; // 17 stacks, 2 high
+
     private final MahjongSet mahjongSet;
     private final Player[] players;
-    private final List<Tile> wall;
+
+    // The wall is the shuffled deck read as a ring starting at the cut. Draws
+    // take from the head (front); Gang replacements and Bao tiles come from the
+    // tail (back).
+    private final byte[] wall;
+    private int wallCut;
+    private int wallHead; // Tiles drawn from the front
+    private int wallTail; // One past the last tile still at the back
     private final List<Tile> discards; // Added discards list
+    private final List<Tile> discardsView;
+    private final TileLedger visibleTiles; // Discards and melds, kept in step with both
     private int bankerIndex; // Dealer
 
     // Dice handling for wall breaking
@@ -23,13 +37,22 @@ public class Table {
     private int baoOwnerIndex = -1; // -1 means no one has DaBao'ed yet
 
     public Table() {
-        mahjongSet = new MahjongSet();
+        this(RandomSource.create());
+    }
+
+    /**
+     * @param random Shuffle source; a seeded one makes every deal reproducible
+     */
+    public Table(RandomSource random) {
+        mahjongSet = new MahjongSet(random);
+        wall = mahjongSet.getDeck();
         players = new Player[4];
         for (int i = 0; i < 4; i++) {
             players[i] = new Player(i);
         }
-        wall = new ArrayList<>();
         discards = new ArrayList<>(); // Initialize discards list
+        discardsView = Collections.unmodifiableList(discards);
+        visibleTiles = new TileLedger();
         bankerIndex = SEAT_EAST; // Default start
     }
 
@@ -37,17 +60,29 @@ public class Table {
     public void startRound() {
         // 1. Shuffle
         mahjongSet.shuffle();
-        wall.clear();
-        wall.addAll(mahjongSet.getTiles());
+        resetRound();
+    }
+
+    /**
+     * Starts a round on a known deck order instead of a shuffle (replays).
+     *
+     * @param deckOrder Physical tile indices, see {@link MahjongSet#setOrder}
+     */
+    public void startRound(byte[] deckOrder) {
+        mahjongSet.setOrder(deckOrder);
+        resetRound();
+    }
+
+    private void resetRound() {
+        wallCut = 0;
+        wallHead = 0;
+        wallTail = WALL_SIZE;
 
         // 2. Clear players and table discards
         discards.clear();
+        visibleTiles.clear();
         for (Player p : players) {
-            p.getHand().clear();
-            p.getMelds().clear();
-            p.getDiscards().clear();
-            p.setViewedBao(false); // Reset Bao viewing status
-            p.setHandLocked(false); // Reset hand lock status
+            p.resetForRound(); // Hand, melds, discards, Bao viewing and lock status
         }
 
         // Dice should be set by GameManager, but we can reset them
@@ -59,10 +94,78 @@ public class Table {
         baoOwnerIndex = -1;
     }
 
+    /**
+     * Breaks the wall: counting from the wall owner's side, the draw starts
+     * dice2 stacks in. Must be called before any tile is drawn.
+     */
+    public void cutWall(int dice1, int dice2, int wallOwnerIndex) {
+        dice1_Sum = dice1;
+        dice2_Sum = dice2;
+        wallCut = getCutPosition(dice2, wallOwnerIndex);
+    }
+
+    // Deck position of the first tile drawn after cutWall(dice1, dice2, wallOwnerIndex)
+    public static int getCutPosition(int dice2, int wallOwnerIndex) {
+        return (wallOwnerIndex * TILES_PER_SIDE + dice2 * 2) % WALL_SIZE;
+    }
+
+    // Next tile from the front of the wall, or null if it is empty
     public Tile drawFromWall() {
-        if (wall.isEmpty())
+        if (isWallEmpty())
             return null; // Draw game?
-        return wall.remove(0); // Removing from "Head" of the list
+        return Tile.byPhysicalIndex(wall[(wallCut + wallHead++) % WALL_SIZE] & 0xFF);
+    }
+
+    // Next tile from the back of the wall (Gang replacement, Bao), or null
+    public Tile drawFromWallBack() {
+        if (isWallEmpty())
+            return null;
+        return Tile.byPhysicalIndex(wall[(wallCut + --wallTail) % WALL_SIZE] & 0xFF);
+    }
+
+    public int getWallRemaining() {
+        return wallTail - wallHead;
+    }
+
+    public boolean isWallEmpty() {
+        return wallTail == wallHead;
+    }
+
+    /**
+     * The deck the wall is read from (physical indices as unsigned bytes);
+     * read-only for callers.
+     */
+    public byte[] getDeck() {
+        return wall;
+    }
+
+    // Tiles drawn from the front so far
+    public int getWallHead() {
+        return wallHead;
+    }
+
+    // WALL_SIZE minus the tiles drawn from the back so far
+    public int getWallTail() {
+        return wallTail;
+    }
+
+    /**
+     * Moves the wall back or forward to a saved position of the same deal
+     * (replay keyframes).
+     */
+    public void setWallPosition(int head, int tail) {
+        if (head < 0 || head > tail || tail > WALL_SIZE)
+            throw new IllegalArgumentException("Bad wall position " + head + ".." + tail);
+        wallHead = head;
+        wallTail = tail;
+    }
+
+    public int getDice1() {
+        return dice1_Sum;
+    }
+
+    public int getDice2() {
+        return dice2_Sum;
     }
 
     public Player getPlayer(int index) {
@@ -77,16 +180,39 @@ public class Table {
         this.bankerIndex = index;
     }
 
-    public List<Tile> getWall() {
-        return wall;
-    }
-
     public void addDiscard(Tile tile) {
         discards.add(tile);
+        visibleTiles.add(tile);
+    }
+
+    /**
+     * Removes the latest discard for a claim; it becomes visible again as part
+     * of the claimer's meld.
+     */
+    public Tile takeLastDiscard() {
+        Tile t = discards.remove(discards.size() - 1);
+        visibleTiles.remove(t);
+        return t;
+    }
+
+    // Lays down a meld for seat; its tiles become visible to everyone
+    public void addMeld(int seat, Meld meld) {
+        players[seat].addMeld(meld);
+        for (Tile t : meld.getTiles())
+            visibleTiles.add(t);
     }
 
+    // Read-only; change it through addDiscard / takeLastDiscard
     public List<Tile> getDiscards() {
-        return discards;
+        return discardsView;
+    }
+
+    /**
+     * Live count of every visible tile type, updated on each discard, claim
+     * and meld.
+     */
+    public TileLedger getVisibleTiles() {
+        return visibleTiles;
     }
 
     public Tile getBaoTile() {
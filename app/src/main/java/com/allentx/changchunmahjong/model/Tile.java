@@ -1,8 +1,14 @@
 package com.allentx.changchunmahjong.model;
 
-import java.util.Objects;
-
-public class Tile implements Comparable<Tile> {
+/**
+ * A mahjong tile. Instances are immutable and pre-built: {@link #of} and
+ * {@link #byId} return the shared instance for a tile type, and
+ * {@link #physical} returns one of the four physical copies dealt from a
+ * {@link MahjongSet}. Equality and hashing only look at the tile type (id), so
+ * copies are interchangeable for rules, while the UI can still tell the copies
+ * in a hand apart by reference.
+ */
+public final class Tile implements Comparable<Tile> {
     public enum Suit {
         WAN, // Characters (1-9)
         TIAO, // Bamboo (1-9)
@@ -18,29 +24,62 @@ public class Tile implements Comparable<Tile> {
     public static final int ID_FA = 6;
     public static final int ID_BAI = 7;
 
+    public static final int TYPE_COUNT = 34;
+    public static final int COPIES = 4;
+
+    // Physical tiles by id * COPIES + copy; copy 0 doubles as the type instance
+    private static final Tile[] PHYSICAL = new Tile[TYPE_COUNT * COPIES];
+
+    static {
+        for (int id = 0; id < TYPE_COUNT; id++) {
+            Suit suit = Suit.values()[Math.min(id / 9, 3)];
+            for (int copy = 0; copy < COPIES; copy++)
+                PHYSICAL[id * COPIES + copy] = new Tile(suit, id - suit.ordinal() * 9 + 1, id, copy);
+        }
+    }
+
     private final Suit suit;
     private final int rank; // 1-9 for numbered, 1-7 for ZI (ESWNZFB)
     private final int id; // Unique ID for finding resources (0-33)
+    private final int copy; // Which of the four physical copies (0-3)
 
-    public Tile(Suit suit, int rank) {
+    private Tile(Suit suit, int rank, int id, int copy) {
         this.suit = suit;
         this.rank = rank;
-        this.id = calculateId();
+        this.id = id;
+        this.copy = copy;
     }
 
-    private int calculateId() {
-        switch (suit) {
-            case WAN:
-                return rank - 1;
-            case TIAO:
-                return 9 + (rank - 1);
-            case TONG:
-                return 18 + (rank - 1);
-            case ZI:
-                return 27 + (rank - 1);
-            default:
-                return 0;
-        }
+    /**
+     * The shared instance for a tile type.
+     */
+    public static Tile of(Suit suit, int rank) {
+        int ranks = suit == Suit.ZI ? 7 : 9;
+        if (rank < 1 || rank > ranks)
+            throw new IllegalArgumentException("No tile " + suit + ":" + rank);
+        return PHYSICAL[(suit.ordinal() * 9 + rank - 1) * COPIES];
+    }
+
+    /**
+     * The shared instance for a tile id (0-33).
+     */
+    public static Tile byId(int id) {
+        return PHYSICAL[id * COPIES];
+    }
+
+    /**
+     * Physical copy 0-3 of a tile type; copy 0 is the {@link #byId} instance.
+     */
+    public static Tile physical(int id, int copy) {
+        return PHYSICAL[id * COPIES + copy];
+    }
+
+    /**
+     * Physical tile by its index id * 4 + copy (0-135), see
+     * {@link #getPhysicalIndex()}.
+     */
+    public static Tile byPhysicalIndex(int index) {
+        return PHYSICAL[index];
     }
 
     public Suit getSuit() {
@@ -56,6 +95,16 @@ public class Tile implements Comparable<Tile> {
         return id;
     }
 
+    // Which physical copy of the type this is (0-3)
+    public int getCopy() {
+        return copy;
+    }
+
+    // Index among all 136 physical tiles: id * 4 + copy
+    public int getPhysicalIndex() {
+        return id * COPIES + copy;
+    }
+
     public boolean isNumber() {
         return suit != Suit.ZI;
     }
@@ -71,15 +120,12 @@ public class Tile implements Comparable<Tile> {
     public boolean equals(Object o) {
         if (this == o)
             return true;
-        if (o == null || getClass() != o.getClass())
-            return false;
-        Tile tile = (Tile) o;
-        return rank == tile.rank && suit == tile.suit;
+        return o instanceof Tile && id == ((Tile) o).id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(suit, rank);
+        return id;
     }
 
     @Override
@@ -117,9 +163,7 @@ public class Tile implements Comparable<Tile> {
 
     @Override
     public int compareTo(Tile o) {
-        int suitCompare = this.suit.compareTo(o.suit);
-        if (suitCompare != 0)
-            return suitCompare;
-        return Integer.compare(this.rank, o.rank);
+        // Ids are ordered by suit, then rank
+        return Integer.compare(this.id, o.id);
     }
 }
@@ -0,0 +1,61 @@
+package com.allentx.changchunmahjong.model;
+
+/**
+ * Copies of each tile type everyone at the table can see: discards still on
+ * the table plus the tiles of every meld. A claimed discard leaves the table
+ * and joins a meld, so it is counted once.
+ *
+ * Owned and kept current by {@link Table}; read-only outside the model
+ * package.
+ */
+public final class TileLedger {
+    private final int[] counts = new int[Tile.TYPE_COUNT];
+    private int size;
+
+    TileLedger() {
+    }
+
+    void add(Tile tile) {
+        counts[tile.getId()]++;
+        size++;
+    }
+
+    void remove(Tile tile) {
+        counts[tile.getId()]--;
+        size--;
+    }
+
+    void clear() {
+        java.util.Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    /** Visible copies of tile id. */
+    public int getCount(int id) {
+        return counts[id];
+    }
+
+    public int getCount(Tile tile) {
+        return counts[tile.getId()];
+    }
+
+    /** Copies of tile id not visible and not in the given hand. */
+    public int getLiveCount(int id, HandSummary hand) {
+        return Math.max(0, Tile.COPIES - counts[id] - hand.getCount(id));
+    }
+
+    /** Visible tiles in total. */
+    public int getSize() {
+        return size;
+    }
+
+    /** A fresh copy of the 34-entry count vector, safe to modify. */
+    public int[] copyCounts() {
+        return counts.clone();
+    }
+
+    /** Copies the count vector into a caller-owned array of 34. */
+    public void copyCounts(int[] into) {
+        System.arraycopy(counts, 0, into, 0, Tile.TYPE_COUNT);
+    }
+}
@@ -0,0 +1,87 @@
+package com.allentx.changchunmahjong.model;
+
+/**
+ * 64-bit Zobrist hashing of a hand: a tile-count vector plus the exposed meld
+ * signature (meld count and {@link Meld#getFlags()} summary).
+ *
+ * Every (tile id, copy count) pair has a fixed random key and a hand hashes to
+ * the XOR of the keys of its counts, so adding or removing a tile updates the
+ * hash in O(1). Keys come from a fixed seed, so hashes are stable across runs.
+ */
+public final class Zobrist {
+    // Counts are keyed modulo 16; a real hand never holds more than 4 copies
+    private static final int COUNT_SLOTS = 16;
+    private static final int MELD_SLOTS = 5 * 32; // Meld count 0-4 x 5 flag bits
+
+    private static final long[] TILE_KEYS = new long[Tile.TYPE_COUNT * COUNT_SLOTS];
+    private static final long[] MELD_KEYS = new long[MELD_SLOTS];
+
+    static {
+        long seed = 0x43484D4A5A4F4252L;
+        for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+            // Holding zero copies contributes nothing, so the empty hand hashes to 0
+            for (int c = 1; c < COUNT_SLOTS; c++) {
+                seed += 0x9E3779B97F4A7C15L;
+                TILE_KEYS[id * COUNT_SLOTS + c] = mix(seed);
+            }
+        }
+        for (int i = 0; i < MELD_SLOTS; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            MELD_KEYS[i] = mix(seed);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Hash of the tiles in a count vector.
+     */
+    public static long hashCounts(int[] counts) {
+        long hash = 0;
+        for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+            if (counts[id] != 0)
+                hash ^= tileKey(id, counts[id]);
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of a hand including its exposed melds.
+     */
+    public static long hash(int[] counts, int meldCount, int meldFlags) {
+        return hashCounts(counts) ^ meldKey(meldCount, meldFlags);
+    }
+
+    /**
+     * Key for the meld part of a hash. Swapping melds is hash ^ old ^ new.
+     */
+    public static long meldKey(int meldCount, int meldFlags) {
+        return MELD_KEYS[Math.min(meldCount, 4) * 32 + (meldFlags & 31)];
+    }
+
+    /**
+     * Updates a hash for one more copy of tile id, given the count before adding.
+     */
+    public static long addTile(long hash, int id, int countBefore) {
+        return hash ^ tileKey(id, countBefore) ^ tileKey(id, countBefore + 1);
+    }
+
+    /**
+     * Updates a hash for one copy fewer of tile id, given the count before removing.
+     */
+    public static long removeTile(long hash, int id, int countBefore) {
+        return hash ^ tileKey(id, countBefore) ^ tileKey(id, countBefore - 1);
+    }
+
+    private static long tileKey(int id, int count) {
+        return TILE_KEYS[id * COUNT_SLOTS + (count & (COUNT_SLOTS - 1))];
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,177 @@
+package com.allentx.changchunmahjong.record;
+
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.allentx.changchunmahjong.record.RecordFormat.*;
+
+/**
+ * Encodes one hand at a time into a reusable byte buffer, in the layout of
+ * {@link RecordFormat}. Not thread-safe; keep one per worker.
+ *
+ * In untimed records a front draw is held back and folded into the same seat's
+ * next discard. Timed records keep every action separate so each has its own
+ * timestamp.
+ */
+public final class GameRecordEncoder {
+    private byte[] buf = new byte[256];
+    private int size;
+    private boolean timed;
+    private long lastMillis;
+
+    // A front draw waiting for its discard (untimed only)
+    private int pendingDrawSeat = -1;
+    private int pendingDrawTile;
+
+    /**
+     * Starts a new hand, discarding whatever was encoded before.
+     *
+     * @param timed       Store the time between actions (live play)
+     * @param startMillis Clock reading the first action's delay is taken from
+     */
+    public void beginHand(long handId, int banker, int dice1, int dice2, boolean timed, long startMillis) {
+        size = 0;
+        this.timed = timed;
+        lastMillis = startMillis;
+        pendingDrawSeat = -1;
+        put(banker | (timed ? FLAG_TIMED : 0));
+        put(dice1 << 4 | dice2);
+        putVarLong(handId);
+    }
+
+    /**
+     * One seat's dealt hand; call for seats 0-3 in order right after
+     * {@link #beginHand}.
+     */
+    public void deal(List<Tile> hand) {
+        for (Tile t : hand)
+            put(t.getId());
+    }
+
+    public void draw(int seat, Tile tile, boolean replacement, long millis) {
+        flushDraw();
+        if (!replacement && !timed) {
+            pendingDrawSeat = seat;
+            pendingDrawTile = tile.getId();
+            return;
+        }
+        action(replacement ? OP_DRAW_BACK : OP_DRAW, seat, millis);
+        put(tile.getId());
+    }
+
+    public void discard(int seat, Tile tile, long millis) {
+        if (pendingDrawSeat == seat) {
+            pendingDrawSeat = -1;
+            if (pendingDrawTile == tile.getId()) {
+                action(OP_DRAW_TSUMOGIRI, seat, millis);
+                put(pendingDrawTile);
+            } else {
+                action(OP_DRAW_DISCARD, seat, millis);
+                put(pendingDrawTile);
+                put(tile.getId());
+            }
+            return;
+        }
+        flushDraw();
+        action(OP_DISCARD, seat, millis);
+        put(tile.getId());
+    }
+
+    // lowest: first tile of the sequence; the claimed tile is the latest discard
+    public void chi(int seat, Tile lowest, long millis) {
+        simple(OP_CHI, seat, millis);
+        put(lowest.getId());
+    }
+
+    public void peng(int seat, long millis) {
+        simple(OP_PENG, seat, millis);
+    }
+
+    public void mingGang(int seat, long millis) {
+        simple(OP_MING_GANG, seat, millis);
+    }
+
+    public void anGang(int seat, Tile tile, long millis) {
+        simple(OP_AN_GANG, seat, millis);
+        put(tile.getId());
+    }
+
+    public void daBao(int seat, Tile bao, long millis) {
+        simple(OP_DA_BAO, seat, millis);
+        put(bao.getId());
+    }
+
+    public void viewBao(int seat, long millis) {
+        simple(OP_VIEW_BAO, seat, millis);
+    }
+
+    public void baoReplaced(int seat, Tile bao, long millis) {
+        simple(OP_BAO_REPLACE, seat, millis);
+        put(bao.getId());
+    }
+
+    /**
+     * Ends the hand with a win.
+     *
+     * @param discarder   Seat that dealt in, -1 for a self-draw
+     * @param scoreDeltas Score change of seats 0-3
+     */
+    public void hu(int seat, boolean selfDraw, int discarder, Tile winningTile, int[] scoreDeltas, long millis) {
+        simple(OP_HU, seat, millis);
+        put((selfDraw ? 1 : 0) | (discarder + 1) << 1);
+        put(winningTile.getId());
+        for (int i = 0; i < 4; i++)
+            putVarLong(zigzag(scoreDeltas[i]) & 0xFFFFFFFFL);
+    }
+
+    // Ends the hand in a draw on an empty wall
+    public void exhausted(long millis) {
+        simple(OP_EXHAUSTED, 0, millis);
+    }
+
+    // The encoded hand so far: bytes [0, size()) of buffer()
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void simple(int opcode, int seat, long millis) {
+        flushDraw();
+        action(opcode, seat, millis);
+    }
+
+    private void flushDraw() {
+        if (pendingDrawSeat == -1)
+            return;
+        int seat = pendingDrawSeat;
+        pendingDrawSeat = -1;
+        action(OP_DRAW, seat, 0);
+        put(pendingDrawTile);
+    }
+
+    private void action(int opcode, int seat, long millis) {
+        put(opcode << 2 | seat);
+        if (timed) {
+            putVarLong(Math.max(0, millis - lastMillis));
+            lastMillis = millis;
+        }
+    }
+
+    private void put(int b) {
+        if (size == buf.length)
+            buf = Arrays.copyOf(buf, size * 2);
+        buf[size++] = (byte) b;
+    }
+
+    private void putVarLong(long v) {
+        while ((v & ~0x7FL) != 0) {
+            put((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        put((int) v);
+    }
+}
@@ -0,0 +1,302 @@
+package com.allentx.changchunmahjong.record;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random-access reader over a game-record archive (see {@link RecordFormat}).
+ * The archive is memory-mapped, so millions of hands can be scanned without
+ * holding them on the heap.
+ *
+ * Hand offsets live in a sidecar index, {@code <archive>.idx}, which is also
+ * mapped: hand i is found in O(1). The index is built on first open and
+ * extended on later opens to cover hands appended since. A partly written
+ * last hand (a writer still running) is left out until it is complete.
+ *
+ * Index layout: int magic "CCGI", int version, long archive bytes covered,
+ * long hand count, then one long per hand: the file offset of its length
+ * prefix.
+ *
+ * Reads are thread-safe; give every thread its own {@link RecordedHand}.
+ */
+public final class GameRecordReader implements Closeable {
+    static final int INDEX_MAGIC = 0x43434749; // "CCGI"
+    static final int INDEX_VERSION = 1;
+    static final int INDEX_HEADER_SIZE = 24;
+
+    // Archives are mapped in overlapping segments; any hand no longer than the
+    // overlap lies wholly inside one of them. Longer hands get their own map.
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final long SEGMENT_OVERLAP = 1L << 20;
+    private static final long SEGMENT_STRIDE = SEGMENT_SIZE - SEGMENT_OVERLAP;
+
+    private final RandomAccessFile archive;
+    private final FileChannel channel;
+    private final long length; // Archive bytes covered by the index
+    private final LongBuffer offsets;
+    private final int size;
+    private final MappedByteBuffer[] segments;
+
+    private GameRecordReader(RandomAccessFile archive, long length, LongBuffer offsets, int size) {
+        this.archive = archive;
+        this.channel = archive.getChannel();
+        this.length = length;
+        this.offsets = offsets;
+        this.size = size;
+        this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_STRIDE - 1) / SEGMENT_STRIDE)];
+    }
+
+    /**
+     * Opens an archive, creating or extending its index as needed.
+     *
+     * @throws IOException If the file is not a record archive or the index
+     *                     cannot be written
+     */
+    public static GameRecordReader open(File file) throws IOException {
+        RandomAccessFile archive = new RandomAccessFile(file, "r");
+        try {
+            if (archive.length() < RecordFormat.FILE_HEADER_SIZE || archive.readInt() != RecordFormat.MAGIC
+                    || archive.readUnsignedByte() != RecordFormat.VERSION)
+                throw new IOException("Not a game record archive: " + file);
+
+            try (RandomAccessFile index = new RandomAccessFile(indexFile(file), "rw")) {
+                long[] header = readIndexHeader(index, file, archive.length());
+                long covered = header[0];
+                long count = header[1];
+                if (covered < archive.length()) {
+                    long[] extended = extendIndex(file, index, covered, count);
+                    covered = extended[0];
+                    count = extended[1];
+                }
+                if (count > Integer.MAX_VALUE)
+                    throw new IOException("Too many hands in " + file);
+                LongBuffer offsets = index.getChannel()
+                        .map(FileChannel.MapMode.READ_ONLY, INDEX_HEADER_SIZE, count * 8)
+                        .asLongBuffer();
+                return new GameRecordReader(archive, covered, offsets, (int) count);
+            }
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
+    }
+
+    public static File indexFile(File archive) {
+        return new File(archive.getPath() + ".idx");
+    }
+
+    // Number of complete hands in the archive when it was opened
+    public int size() {
+        return size;
+    }
+
+    // Archive offset of hand i's length prefix
+    public long getOffset(int index) {
+        return offsets.get(index);
+    }
+
+    /**
+     * Decodes hand i into the given state object, overwriting it.
+     *
+     * @throws IOException If the hand cannot be mapped or is malformed
+     */
+    public RecordedHand read(int index, RecordedHand into) throws IOException {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Hand " + index + " of " + size);
+        long offset = offsets.get(index);
+        long end = index + 1 < size ? offsets.get(index + 1) : length;
+
+        int segment = (int) (offset / SEGMENT_STRIDE);
+        long base = segment * SEGMENT_STRIDE;
+        ByteBuffer buf;
+        if (end - base <= SEGMENT_SIZE) {
+            buf = segment(segment);
+        } else {
+            base = offset;
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, end - offset);
+        }
+
+        int pos = (int) (offset - base);
+        int limit = (int) (end - base);
+        long bodyLength = 0;
+        for (int shift = 0;; shift += 7) {
+            if (pos >= limit || shift > 28)
+                throw new IOException("Bad length prefix for hand " + index);
+            int b = buf.get(pos++) & 0xFF;
+            bodyLength |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                break;
+        }
+        if (pos + bodyLength != limit)
+            throw new IOException("Hand " + index + " does not match the index");
+        try {
+            into.decode(buf, pos, limit);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Hand " + index + ": " + e.getMessage(), e);
+        }
+        return into;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Mappings stay valid until collected; only the descriptor is released
+        archive.close();
+    }
+
+    private synchronized ByteBuffer segment(int i) throws IOException {
+        if (segments[i] == null) {
+            long start = i * SEGMENT_STRIDE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+        }
+        return segments[i];
+    }
+
+    /**
+     * Returns {covered, count} from a valid index for this archive, or resets
+     * the index to empty.
+     */
+    private static long[] readIndexHeader(RandomAccessFile index, File file, long archiveLength)
+            throws IOException {
+        if (index.length() >= INDEX_HEADER_SIZE) {
+            index.seek(0);
+            int magic = index.readInt();
+            int version = index.readInt();
+            long covered = index.readLong();
+            long count = index.readLong();
+            if (magic == INDEX_MAGIC && version == INDEX_VERSION && count >= 0
+                    && covered >= RecordFormat.FILE_HEADER_SIZE && covered <= archiveLength
+                    && index.length() >= INDEX_HEADER_SIZE + count * 8
+                    && lastHandEndsAt(index, file, count, covered)) {
+                // Drop offsets of an extension that never got its header written
+                index.setLength(INDEX_HEADER_SIZE + count * 8);
+                return new long[] { covered, count };
+            }
+        }
+        index.setLength(0);
+        writeIndexHeader(index, RecordFormat.FILE_HEADER_SIZE, 0);
+        return new long[] { RecordFormat.FILE_HEADER_SIZE, 0 };
+    }
+
+    // Cheap check that the index belongs to this archive: its last hand must end where it claims
+    private static boolean lastHandEndsAt(RandomAccessFile index, File file, long count, long covered)
+            throws IOException {
+        if (count == 0)
+            return covered == RecordFormat.FILE_HEADER_SIZE;
+        index.seek(INDEX_HEADER_SIZE + (count - 1) * 8);
+        long offset = index.readLong();
+        if (offset < RecordFormat.FILE_HEADER_SIZE || offset >= covered)
+            return false;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 16)) {
+            skipFully(in, offset);
+            int[] prefix = new int[1];
+            long bodyLength = readLength(in, prefix);
+            return offset + prefix[0] + bodyLength == covered;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Scans the archive from covered on and appends the offsets of complete
+     * hands to the index, then commits the new header.
+     *
+     * @return {covered, count} after the scan
+     */
+    private static long[] extendIndex(File file, RandomAccessFile index, long covered, long count)
+            throws IOException {
+        long archiveLength = file.length();
+        index.seek(INDEX_HEADER_SIZE + count * 8);
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new RandomAccessOutput(index), 64 * 1024));
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            skipFully(in, covered);
+            int[] prefix = new int[1];
+            while (covered < archiveLength) {
+                long bodyLength;
+                try {
+                    bodyLength = readLength(in, prefix);
+                } catch (EOFException e) {
+                    break; // Length prefix still being written
+                }
+                long end = covered + prefix[0] + bodyLength;
+                if (end > archiveLength)
+                    break; // Body still being written
+                skipFully(in, bodyLength);
+                out.writeLong(covered);
+                covered = end;
+                count++;
+            }
+        }
+        out.flush();
+        writeIndexHeader(index, covered, count);
+        return new long[] { covered, count };
+    }
+
+    private static void writeIndexHeader(RandomAccessFile index, long covered, long count) throws IOException {
+        index.seek(0);
+        index.writeInt(INDEX_MAGIC);
+        index.writeInt(INDEX_VERSION);
+        index.writeLong(covered);
+        index.writeLong(count);
+    }
+
+    // Reads a varint length prefix; prefix[0] receives its size in bytes
+    private static long readLength(InputStream in, int[] prefix) throws IOException {
+        long v = 0;
+        for (int i = 0; i < 5; i++) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException();
+            v |= (long) (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                prefix[0] = i + 1;
+                return v;
+            }
+        }
+        throw new IOException("Bad length prefix in archive");
+    }
+
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0)
+                    throw new EOFException();
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    // Writes through to a RandomAccessFile at its current position
+    private static final class RandomAccessOutput extends OutputStream {
+        private final RandomAccessFile file;
+
+        RandomAccessOutput(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            file.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            file.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.allentx.changchunmahjong.record;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends length-prefixed hand records to an archive file (see
+ * {@link RecordFormat}). Records are collected in a buffer and written in
+ * large chunks; existing data is never rewritten.
+ *
+ * {@link #append} is synchronized so simulator workers can share one writer,
+ * each encoding its hands with its own {@link GameRecordEncoder}.
+ */
+public final class GameRecordWriter implements Closeable, Flushable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    private long handsWritten;
+
+    public GameRecordWriter(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens file for appending, writing the file header if it is new or empty.
+     *
+     * @throws IOException If the file exists but is not a record archive
+     */
+    public GameRecordWriter(File file, int bufferSize) throws IOException {
+        boolean fresh = !file.exists() || file.length() == 0;
+        if (!fresh)
+            checkHeader(file);
+        out = new FileOutputStream(file, true);
+        buffer = new byte[Math.max(bufferSize, 16)];
+        if (fresh) {
+            putInt(RecordFormat.MAGIC);
+            put(RecordFormat.VERSION);
+        }
+    }
+
+    /**
+     * Appends the hand held by the encoder.
+     */
+    public synchronized void append(GameRecordEncoder hand) throws IOException {
+        int length = hand.size();
+        long v = length;
+        while ((v & ~0x7FL) != 0) {
+            put((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        put((int) v);
+
+        if (length > buffer.length - count) {
+            flushBuffer();
+            if (length > buffer.length) {
+                out.write(hand.buffer(), 0, length);
+                handsWritten++;
+                return;
+            }
+        }
+        System.arraycopy(hand.buffer(), 0, buffer, count, length);
+        count += length;
+        handsWritten++;
+    }
+
+    public synchronized long getHandsWritten() {
+        return handsWritten;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void put(int b) throws IOException {
+        if (count == buffer.length)
+            flushBuffer();
+        buffer[count++] = (byte) b;
+    }
+
+    private void putInt(int v) throws IOException {
+        put(v >>> 24);
+        put(v >>> 16);
+        put(v >>> 8);
+        put(v);
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private static void checkHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != RecordFormat.MAGIC || in.readUnsignedByte() != RecordFormat.VERSION)
+                throw new IOException("Not a game record archive: " + file);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.allentx.changchunmahjong.record;
+
+import com.allentx.changchunmahjong.engine.GameEngine;
+import com.allentx.changchunmahjong.engine.GameListener;
+import com.allentx.changchunmahjong.engine.HandResult;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import java.io.IOException;
+
+/**
+ * Records every hand an engine plays and appends it to a
+ * {@link GameRecordWriter} when the hand ends.
+ *
+ * A write failure never interrupts the game: recording stops and the error is
+ * kept for {@link #getError()}.
+ */
+public class GameRecorder implements GameListener {
+    private final GameEngine engine;
+    private final GameRecordWriter writer;
+    private final boolean timed;
+    private final boolean flushEachHand;
+    private final GameRecordEncoder encoder = new GameRecordEncoder();
+    private final int[] deltas = new int[4];
+    private long nextHandId;
+    private IOException error;
+
+    /**
+     * @param timed         Store the time between actions (live play)
+     * @param flushEachHand Push every finished hand to the file (live play);
+     *                      otherwise the writer flushes when its buffer fills
+     */
+    public GameRecorder(GameEngine engine, GameRecordWriter writer, boolean timed, boolean flushEachHand) {
+        this.engine = engine;
+        this.writer = writer;
+        this.timed = timed;
+        this.flushEachHand = flushEachHand;
+    }
+
+    // Id stored with the next hand; increments after every hand
+    public void setNextHandId(long handId) {
+        nextHandId = handId;
+    }
+
+    public IOException getError() {
+        return error;
+    }
+
+    @Override
+    public void onHandStarted(int bankerIndex) {
+        Table table = engine.getTable();
+        encoder.beginHand(nextHandId++, bankerIndex, table.getDice1(), table.getDice2(), timed, now());
+        for (int i = 0; i < 4; i++)
+            encoder.deal(table.getPlayer(i).getHand());
+    }
+
+    @Override
+    public void onTileDrawn(int seat, Tile tile, boolean replacement) {
+        encoder.draw(seat, tile, replacement, now());
+    }
+
+    @Override
+    public void onDiscard(int seat, Tile tile) {
+        encoder.discard(seat, tile, now());
+    }
+
+    @Override
+    public void onMeld(int seat, Meld meld) {
+        switch (meld.getType()) {
+            case CHI:
+                encoder.chi(seat, meld.getFirstTile(), now());
+                break;
+            case PENG:
+                encoder.peng(seat, now());
+                break;
+            case MING_GANG:
+                encoder.mingGang(seat, now());
+                break;
+            case AN_GANG:
+                encoder.anGang(seat, meld.getFirstTile(), now());
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onDaBao(int seat, Tile bao) {
+        encoder.daBao(seat, bao, now());
+    }
+
+    @Override
+    public void onViewBao(int seat) {
+        encoder.viewBao(seat, now());
+    }
+
+    @Override
+    public void onBaoReplaced(int seat, Tile bao) {
+        encoder.baoReplaced(seat, bao, now());
+    }
+
+    @Override
+    public void onHandEnded(HandResult result) {
+        if (result.isDraw()) {
+            encoder.exhausted(now());
+        } else {
+            for (int i = 0; i < 4; i++)
+                deltas[i] = result.getScoreDelta(i);
+            encoder.hu(result.getWinner(), result.isSelfDraw(), result.getDiscarder(), result.getWinningTile(),
+                    deltas, now());
+        }
+        if (error != null)
+            return;
+        try {
+            writer.append(encoder);
+            if (flushEachHand)
+                writer.flush();
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    private long now() {
+        return timed ? System.currentTimeMillis() : 0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.allentx.changchunmahjong.record;
+
+/**
+ * Layout of the binary game-record archive.
+ *
+ * <pre>
+ * file    := magic "CCGR" (4 bytes), version (1 byte), hand*
+ * hand    := varint bodyLength, body
+ * body    := head, deal, action*, end
+ * head    := byte (banker | TIMED flag), byte (dice1 &lt;&lt; 4 | dice2), varint handId
+ * deal    := 53 tile bytes: each seat's sorted hand in seat order, banker 14, others 13
+ * action  := byte (opcode &lt;&lt; 2 | seat), [varint millis since previous action if TIMED], payload
+ * end     := HU or EXHAUSTED action
+ * </pre>
+ *
+ * Tiles are stored as their type id (0-33, see {@link
+ * com.allentx.changchunmahjong.model.Tile#getId()}). A claim always takes the
+ * latest discard, so PENG and MING_GANG carry no payload and CHI only names the
+ * lowest tile of its sequence. A draw followed by the same seat's discard is
+ * folded into one DRAW_DISCARD or DRAW_TSUMOGIRI action. Varints are unsigned
+ * LEB128; score deltas are zigzag encoded.
+ *
+ * Archives are written by {@link GameRecordWriter} and read back, hand by hand
+ * or at random, by {@link GameRecordReader}.
+ */
+public final class RecordFormat {
+    public static final int MAGIC = 0x43434752; // "CCGR"
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_SIZE = 5;
+
+    public static final int DEAL_SIZE = 53; // 14 + 3 * 13
+
+    // Head flags, next to the banker seat
+    public static final int FLAG_TIMED = 4;
+
+    // Opcodes and payloads
+    public static final int OP_DRAW = 1; // tile
+    public static final int OP_DRAW_BACK = 2; // tile: Gang replacement
+    public static final int OP_DISCARD = 3; // tile
+    public static final int OP_DRAW_DISCARD = 4; // drawn tile, discarded tile
+    public static final int OP_DRAW_TSUMOGIRI = 5; // tile: drawn and discarded at once
+    public static final int OP_CHI = 6; // lowest tile of the sequence
+    public static final int OP_PENG = 7;
+    public static final int OP_MING_GANG = 8;
+    public static final int OP_AN_GANG = 9; // tile
+    public static final int OP_DA_BAO = 10; // Bao tile
+    public static final int OP_VIEW_BAO = 11;
+    public static final int OP_BAO_REPLACE = 12; // new Bao tile
+    public static final int OP_HU = 13; // byte (selfDraw | discarder + 1 << 1), tile, 4 zigzag score deltas
+    public static final int OP_EXHAUSTED = 14; // Wall empty, no winner
+
+    private RecordFormat() {
+    }
+
+    public static int opcode(int actionByte) {
+        return (actionByte & 0xFF) >>> 2;
+    }
+
+    public static int seat(int actionByte) {
+        return actionByte & 3;
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
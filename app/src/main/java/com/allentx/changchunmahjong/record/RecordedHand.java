@@ -0,0 +1,244 @@
+package com.allentx.changchunmahjong.record;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.allentx.changchunmahjong.record.RecordFormat.*;
+
+/**
+ * One decoded hand. Reusable: {@link GameRecordReader#read} overwrites it, so a
+ * scan over millions of hands allocates nothing per hand.
+ *
+ * Folded actions are expanded, so every action is one of OP_DRAW,
+ * OP_DRAW_BACK, OP_DISCARD, OP_CHI, OP_PENG, OP_MING_GANG, OP_AN_GANG,
+ * OP_DA_BAO, OP_VIEW_BAO, OP_BAO_REPLACE, OP_HU or OP_EXHAUSTED.
+ */
+public final class RecordedHand {
+    private long handId;
+    private int banker;
+    private int dice1;
+    private int dice2;
+    private boolean timed;
+    private final byte[] deal = new byte[DEAL_SIZE];
+
+    private int actionCount;
+    private byte[] opcodes = new byte[128];
+    private byte[] seats = new byte[128];
+    private byte[] tiles = new byte[128]; // -1 if the action has no tile
+    private long[] delays = new long[128];
+
+    private int winner = -1;
+    private boolean selfDraw;
+    private int discarder = -1;
+    private int winningTile = -1;
+    private final int[] scoreDeltas = new int[4];
+
+    public long getHandId() {
+        return handId;
+    }
+
+    public int getBanker() {
+        return banker;
+    }
+
+    public int getDice1() {
+        return dice1;
+    }
+
+    public int getDice2() {
+        return dice2;
+    }
+
+    public boolean isTimed() {
+        return timed;
+    }
+
+    // Tiles dealt to seat: 14 for the banker, 13 for the others
+    public int getDealSize(int seat) {
+        return seat == banker ? 14 : 13;
+    }
+
+    // Tile id of the i-th (sorted) tile dealt to seat
+    public int getDealtTile(int seat, int i) {
+        int offset = 0;
+        for (int s = 0; s < seat; s++)
+            offset += getDealSize(s);
+        return deal[offset + i];
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public int getOpcode(int action) {
+        return opcodes[action];
+    }
+
+    public int getSeat(int action) {
+        return seats[action];
+    }
+
+    /**
+     * Tile id carried by the action (drawn, discarded, lowest of a Chi, An
+     * Gang, Bao or winning tile), or -1 for Peng, Ming Gang, ViewBao and
+     * Exhausted.
+     */
+    public int getTile(int action) {
+        return tiles[action];
+    }
+
+    // Milliseconds since the previous action; 0 in untimed records
+    public long getDelay(int action) {
+        return delays[action];
+    }
+
+    public boolean isDraw() {
+        return winner == -1;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public boolean isSelfDraw() {
+        return selfDraw;
+    }
+
+    public int getDiscarder() {
+        return discarder;
+    }
+
+    public int getWinningTile() {
+        return winningTile;
+    }
+
+    public int getScoreDelta(int seat) {
+        return scoreDeltas[seat];
+    }
+
+    /**
+     * Decodes the record body in buf[pos, end) with absolute reads, so several
+     * threads can decode from one shared buffer.
+     *
+     * @throws IllegalArgumentException If the body is malformed
+     */
+    void decode(ByteBuffer buf, int pos, int end) {
+        Decoder in = new Decoder(buf, pos, end);
+        int head = in.u8();
+        banker = head & 3;
+        timed = (head & FLAG_TIMED) != 0;
+        int dice = in.u8();
+        dice1 = dice >>> 4;
+        dice2 = dice & 0xF;
+        handId = in.varLong();
+        for (int i = 0; i < DEAL_SIZE; i++)
+            deal[i] = (byte) in.tile();
+
+        actionCount = 0;
+        winner = -1;
+        selfDraw = false;
+        discarder = -1;
+        winningTile = -1;
+        Arrays.fill(scoreDeltas, 0);
+        while (true) {
+            int b = in.u8();
+            int op = opcode(b);
+            int seat = seat(b);
+            long delay = timed ? in.varLong() : 0;
+            switch (op) {
+                case OP_DRAW:
+                case OP_DRAW_BACK:
+                case OP_DISCARD:
+                case OP_CHI:
+                case OP_AN_GANG:
+                case OP_DA_BAO:
+                case OP_BAO_REPLACE:
+                    add(op, seat, in.tile(), delay);
+                    break;
+                case OP_DRAW_DISCARD:
+                    add(OP_DRAW, seat, in.tile(), delay);
+                    add(OP_DISCARD, seat, in.tile(), 0);
+                    break;
+                case OP_DRAW_TSUMOGIRI: {
+                    int t = in.tile();
+                    add(OP_DRAW, seat, t, delay);
+                    add(OP_DISCARD, seat, t, 0);
+                    break;
+                }
+                case OP_PENG:
+                case OP_MING_GANG:
+                case OP_VIEW_BAO:
+                    add(op, seat, -1, delay);
+                    break;
+                case OP_HU: {
+                    int flags = in.u8();
+                    winner = seat;
+                    selfDraw = (flags & 1) != 0;
+                    discarder = (flags >>> 1) - 1;
+                    winningTile = in.tile();
+                    for (int i = 0; i < 4; i++)
+                        scoreDeltas[i] = unzigzag((int) in.varLong());
+                    add(op, seat, winningTile, delay);
+                    return;
+                }
+                case OP_EXHAUSTED:
+                    add(op, seat, -1, delay);
+                    return;
+                default:
+                    throw new IllegalArgumentException("Unknown opcode " + op + " in hand record");
+            }
+        }
+    }
+
+    private void add(int op, int seat, int tile, long delay) {
+        if (actionCount == opcodes.length) {
+            int n = actionCount * 2;
+            opcodes = Arrays.copyOf(opcodes, n);
+            seats = Arrays.copyOf(seats, n);
+            tiles = Arrays.copyOf(tiles, n);
+            delays = Arrays.copyOf(delays, n);
+        }
+        opcodes[actionCount] = (byte) op;
+        seats[actionCount] = (byte) seat;
+        tiles[actionCount] = (byte) tile;
+        delays[actionCount] = delay;
+        actionCount++;
+    }
+
+    // Bounds-checked absolute reads over one record body
+    private static final class Decoder {
+        private final ByteBuffer buf;
+        private int pos;
+        private final int end;
+
+        Decoder(ByteBuffer buf, int pos, int end) {
+            this.buf = buf;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        int u8() {
+            if (pos >= end)
+                throw new IllegalArgumentException("Truncated hand record");
+            return buf.get(pos++) & 0xFF;
+        }
+
+        int tile() {
+            int t = u8();
+            if (t >= 34)
+                throw new IllegalArgumentException("Bad tile id " + t + " in hand record");
+            return t;
+        }
+
+        long varLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u8();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return v;
+            }
+            throw new IllegalArgumentException("Bad varint in hand record");
+        }
+    }
+}
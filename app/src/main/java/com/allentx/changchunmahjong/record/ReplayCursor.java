@@ -0,0 +1,292 @@
+package com.allentx.changchunmahjong.record;
+
+import com.allentx.changchunmahjong.engine.GameState;
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.allentx.changchunmahjong.record.RecordFormat.*;
+
+/**
+ * Rebuilds the {@link Table} and {@link Player} state of a {@link RecordedHand}
+ * at any action index, through the same {@link GameManager} operations the
+ * engine uses.
+ *
+ * Records hold the deal and every drawn tile but not the shuffle, so the
+ * cursor lays out a wall that yields exactly those tiles: dealt and front-drawn
+ * tiles from the cut forwards, Gang replacements and Bao tiles from the back,
+ * and the tiles nobody saw in between. Scores start at
+ * {@link Player#STARTING_SCORE} for every hand.
+ *
+ * Every keyframe-interval actions the cursor snapshots the whole table as a
+ * {@link GameState} the first time it passes, so a seek restores the nearest
+ * keyframe at or before the target and replays only the tail.
+ *
+ * The loaded hand is read as the cursor moves; do not reuse it for another
+ * hand while the cursor is on it.
+ */
+public final class ReplayCursor {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 16;
+
+    private final GameManager gameManager = new GameManager();
+    private final int keyframeInterval;
+    private final List<GameState> keyframes = new ArrayList<>(); // i-th is at action (i + 1) * interval
+    private int keyframeCount; // Taken for the loaded hand
+    private final byte[] deck = new byte[Table.WALL_SIZE];
+    private final byte[] ring = new byte[Table.WALL_SIZE]; // Tile ids in draw order from the cut
+    private final int[] used = new int[Tile.TYPE_COUNT];
+    private RecordedHand hand;
+    private int position;
+    private int lastDiscarder;
+
+    public ReplayCursor() {
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param keyframeInterval Actions between keyframes; smaller seeks faster
+     *                         and takes more memory
+     */
+    public ReplayCursor(int keyframeInterval) {
+        if (keyframeInterval < 1)
+            throw new IllegalArgumentException("Keyframe interval must be positive");
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Loads a hand and moves to its start: tiles dealt, nothing played.
+     *
+     * @throws IllegalArgumentException If the hand uses a tile more than four
+     *                                  times or draws more than the wall holds
+     */
+    public void load(RecordedHand hand) {
+        this.hand = hand;
+        keyframeCount = 0;
+        buildDeck();
+        restart();
+    }
+
+    public RecordedHand getHand() {
+        return hand;
+    }
+
+    public GameManager getGameManager() {
+        return gameManager;
+    }
+
+    public Table getTable() {
+        return gameManager.getTable();
+    }
+
+    // Number of actions applied so far
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean isAtEnd() {
+        return position == hand.getActionCount();
+    }
+
+    /**
+     * Moves to the state after the first actionIndex actions, from the current
+     * position or the nearest keyframe, whichever is closer behind it.
+     *
+     * @throws IllegalArgumentException If the record contradicts itself
+     */
+    public void seek(int actionIndex) {
+        if (actionIndex < 0 || actionIndex > hand.getActionCount())
+            throw new IndexOutOfBoundsException("Action " + actionIndex + " of " + hand.getActionCount());
+        int k = Math.min(actionIndex / keyframeInterval, keyframeCount);
+        if (position > actionIndex || position < k * keyframeInterval) {
+            if (k == 0)
+                restart();
+            else
+                restore(keyframes.get(k - 1), k * keyframeInterval);
+        }
+        while (position < actionIndex)
+            step();
+    }
+
+    // Applies the next action
+    public void step() {
+        if (isAtEnd())
+            throw new IllegalStateException("Replay is at the end of the hand");
+        apply(position);
+        position++;
+        if (position == (keyframeCount + 1) * keyframeInterval) {
+            GameState keyframe = GameState.of(gameManager, lastDiscarder, null);
+            if (keyframes.size() == keyframeCount)
+                keyframes.add(keyframe);
+            else
+                keyframes.set(keyframeCount, keyframe);
+            keyframeCount++;
+        }
+    }
+
+    private void restart() {
+        Table table = getTable();
+        for (int i = 0; i < 4; i++)
+            table.getPlayer(i).setScore(Player.STARTING_SCORE);
+        gameManager.startGame(hand.getBanker(), deck, hand.getDice1(), hand.getDice2());
+        position = 0;
+        lastDiscarder = -1;
+    }
+
+    private void restore(GameState keyframe, int keyframePosition) {
+        keyframe.restore(gameManager);
+        position = keyframePosition;
+        lastDiscarder = keyframe.getLastDiscarder();
+    }
+
+    private void apply(int i) {
+        int seat = hand.getSeat(i);
+        int id = hand.getTile(i);
+        Player p = getTable().getPlayer(seat);
+        switch (hand.getOpcode(i)) {
+            case OP_DRAW:
+                gameManager.setCurrentPlayerIndex(seat);
+                check(gameManager.drawTile(), id, i);
+                break;
+            case OP_DRAW_BACK:
+                gameManager.setCurrentPlayerIndex(seat);
+                check(gameManager.drawReplacementTile(), id, i);
+                break;
+            case OP_DISCARD:
+                require(p, id, 1, i);
+                gameManager.setCurrentPlayerIndex(seat);
+                gameManager.discardTile(seat, Tile.byId(id));
+                lastDiscarder = seat;
+                break;
+            case OP_CHI: {
+                int claimed = lastDiscard(i).getId();
+                for (int t = id; t < id + 3; t++) {
+                    if (t != claimed)
+                        require(p, t, 1, i);
+                }
+                gameManager.executeChi(seat, lastDiscarder, Tile.byId(id));
+                break;
+            }
+            case OP_PENG:
+                require(p, lastDiscard(i).getId(), 2, i);
+                gameManager.executeClaim(seat, Meld.Type.PENG, lastDiscarder);
+                break;
+            case OP_MING_GANG:
+                require(p, lastDiscard(i).getId(), 3, i);
+                gameManager.executeClaim(seat, Meld.Type.MING_GANG, lastDiscarder);
+                break;
+            case OP_AN_GANG:
+                require(p, id, 4, i);
+                gameManager.executeAnGang(seat, Tile.byId(id));
+                break;
+            case OP_DA_BAO:
+                gameManager.setCurrentPlayerIndex(seat); // Bao is taken at the start of the turn
+                check(gameManager.executeDaBao(seat), id, i);
+                break;
+            case OP_VIEW_BAO:
+                gameManager.setCurrentPlayerIndex(seat);
+                gameManager.executeViewBao(seat);
+                break;
+            case OP_BAO_REPLACE:
+                check(gameManager.replaceBao(seat), id, i);
+                break;
+            case OP_HU:
+                for (int s = 0; s < 4; s++)
+                    getTable().getPlayer(s).changeScore(hand.getScoreDelta(s));
+                break;
+            default: // OP_EXHAUSTED
+                break;
+        }
+    }
+
+    private Tile lastDiscard(int action) {
+        if (getTable().getDiscards().isEmpty())
+            throw mismatch(action);
+        return getTable().getDiscards().get(getTable().getDiscards().size() - 1);
+    }
+
+    private void require(Player p, int id, int count, int action) {
+        if (id < 0 || id >= Tile.TYPE_COUNT || p.getSummary().getCount(id) < count)
+            throw mismatch(action);
+    }
+
+    private void check(Tile t, int id, int action) {
+        if (t == null || t.getId() != id)
+            throw mismatch(action);
+    }
+
+    private IllegalArgumentException mismatch(int action) {
+        return new IllegalArgumentException("Hand " + hand.getHandId() + ": action " + action
+                + " does not fit the table");
+    }
+
+    /**
+     * Lays the recorded tiles out as a deck that {@link GameManager#startGame}
+     * deals and draws in the recorded order.
+     */
+    private void buildDeck() {
+        int banker = hand.getBanker();
+        int[] next = new int[4];
+        int front = 0;
+
+        // The deal, in GameManager's order: three rounds of four, one each, then the banker's 14th
+        for (int k = 0; k < RecordFormat.DEAL_SIZE; k++) {
+            int seat;
+            if (k < 48)
+                seat = (banker + k % 16 / 4) % 4;
+            else if (k < 52)
+                seat = (banker + k - 48) % 4;
+            else
+                seat = banker;
+            ring[front++] = (byte) hand.getDealtTile(seat, next[seat]++);
+        }
+
+        int back = Table.WALL_SIZE;
+        for (int i = 0; i < hand.getActionCount(); i++) {
+            switch (hand.getOpcode(i)) {
+                case OP_DRAW:
+                    if (front == back)
+                        throw new IllegalArgumentException("Hand " + hand.getHandId() + " draws past the wall");
+                    ring[front++] = (byte) hand.getTile(i);
+                    break;
+                case OP_DRAW_BACK:
+                case OP_DA_BAO:
+                case OP_BAO_REPLACE:
+                    if (front == back)
+                        throw new IllegalArgumentException("Hand " + hand.getHandId() + " draws past the wall");
+                    ring[--back] = (byte) hand.getTile(i);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // Unseen tiles fill the middle
+        Arrays.fill(used, 0);
+        for (int k = 0; k < front; k++)
+            used[ring[k]]++;
+        for (int k = back; k < Table.WALL_SIZE; k++)
+            used[ring[k]]++;
+        int k = front;
+        for (int id = 0; id < Tile.TYPE_COUNT; id++) {
+            if (used[id] > Tile.COPIES)
+                throw new IllegalArgumentException("Hand " + hand.getHandId() + " has " + used[id]
+                        + " copies of tile " + id);
+            for (int c = used[id]; c < Tile.COPIES; c++)
+                ring[k++] = (byte) id;
+        }
+
+        // Give every tile a distinct copy and rotate the ring to the cut
+        Arrays.fill(used, 0);
+        int cut = Table.getCutPosition(hand.getDice2(),
+                GameManager.getWallOwnerIndex(banker, hand.getDice1()));
+        for (k = 0; k < Table.WALL_SIZE; k++) {
+            int id = ring[k];
+            deck[(cut + k) % Table.WALL_SIZE] = (byte) (id * Tile.COPIES + used[id]++);
+        }
+    }
+}
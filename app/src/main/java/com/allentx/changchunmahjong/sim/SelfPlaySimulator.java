@@ -0,0 +1,297 @@
+package com.allentx.changchunmahjong.sim;
+
+import com.allentx.changchunmahjong.engine.AiController;
+import com.allentx.changchunmahjong.engine.ExpectimaxAiController;
+import com.allentx.changchunmahjong.engine.GameEngine;
+import com.allentx.changchunmahjong.engine.GameListener;
+import com.allentx.changchunmahjong.engine.HandResult;
+import com.allentx.changchunmahjong.engine.MonteCarloAiController;
+import com.allentx.changchunmahjong.engine.SeatController;
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.record.GameRecordWriter;
+import com.allentx.changchunmahjong.record.GameRecorder;
+import com.allentx.changchunmahjong.util.RandomSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays complete hands between four {@link AiController} seats on a plain JVM
+ * and reports win, draw, deal-in and Bao statistics.
+ *
+ * Hands are split across a {@link ForkJoinPool}; each task keeps its own
+ * {@link SelfPlayStats} and they are merged when the tasks join. Hand i is
+ * seeded from (seed, i) alone, so the totals do not depend on the thread count.
+ * Each worker thread gets its own {@link com.allentx.changchunmahjong.logic.HandCache},
+ * so workers share no mutable state.
+ *
+ * With --record, every hand is appended to a game-record archive (see
+ * {@link com.allentx.changchunmahjong.record.RecordFormat}) under its index.
+ *
+ * With --ai, seat 0 picks its discards with another strategy while the other
+ * seats keep the default AI, so the per-seat rates compare the two: mc
+ * ({@link MonteCarloAiController}, playouts on the common pool) or expectimax
+ * ({@link ExpectimaxAiController}), each with --budget-ms per discard. These
+ * are time-limited, so their results depend on the machine's speed.
+ *
+ * Usage: SelfPlaySimulator [--hands N] [--threads T] [--seed S] [--record FILE]
+ *                          [--ai default|mc|expectimax] [--budget-ms N] [--samples N]
+ */
+public class SelfPlaySimulator {
+    private static final int SPLITS_PER_THREAD = 8; // Leaf tasks per thread, for load balancing
+    private static final String USAGE = "Usage: SelfPlaySimulator [--hands N] [--threads T] [--seed S] [--record FILE]"
+            + " [--ai default|mc|expectimax] [--budget-ms N] [--samples N]";
+    private static final long DEFAULT_BUDGET_MILLIS = 200;
+    private static final int DEFAULT_SAMPLES = 2000; // Monte Carlo deals per discard at most
+
+    /**
+     * Creates seat 0's controller for one hand.
+     */
+    public interface SeatFactory {
+        SeatController create(RandomSource random);
+    }
+
+    public static void main(String[] args) {
+        long hands = 10000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        File recordFile = null;
+        String ai = "default";
+        long budgetMillis = DEFAULT_BUDGET_MILLIS;
+        int samples = DEFAULT_SAMPLES;
+        SeatFactory seat0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--hands":
+                        hands = Long.parseLong(value);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "--record":
+                        if (value == null)
+                            throw new IllegalArgumentException("--record needs a file");
+                        recordFile = new File(value);
+                        break;
+                    case "--ai":
+                        if (value == null)
+                            throw new IllegalArgumentException("--ai needs a strategy");
+                        ai = value;
+                        break;
+                    case "--budget-ms":
+                        budgetMillis = Long.parseLong(value);
+                        break;
+                    case "--samples":
+                        samples = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+                i++;
+            }
+            if (hands < 1 || threads < 1 || budgetMillis < 1 || samples < 1)
+                throw new IllegalArgumentException("hands, threads, budget and samples must be positive");
+            seat0 = seatFactory(ai, budgetMillis, samples);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        long start = System.nanoTime();
+        SelfPlayStats stats;
+        if (recordFile != null) {
+            try (GameRecordWriter writer = new GameRecordWriter(recordFile)) {
+                stats = run(hands, threads, seed, seat0, writer);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Recording failed: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        } else {
+            stats = run(hands, threads, seed, seat0, null);
+        }
+        if (seat0 != null)
+            System.out.printf("Seat 0: %s, %d ms per discard%n", ai, budgetMillis);
+        System.out.print(stats.format(System.nanoTime() - start, threads));
+        if (recordFile != null)
+            System.out.printf("Recorded to %s (%.1f bytes/hand)%n", recordFile, (double) recordFile.length() / hands);
+    }
+
+    /**
+     * Seat 0's controller for an --ai option, or null for the default AI.
+     */
+    static SeatFactory seatFactory(String ai, long budgetMillis, int samples) {
+        switch (ai) {
+            case "default":
+                return null;
+            case "mc":
+                return random -> new MonteCarloAiController(random, samples, budgetMillis);
+            case "expectimax":
+                return random -> new ExpectimaxAiController(random, budgetMillis);
+            default:
+                throw new IllegalArgumentException("Unknown AI " + ai);
+        }
+    }
+
+    public static SelfPlayStats run(long hands, int threads, long seed) {
+        return run(hands, threads, seed, null, null);
+    }
+
+    /**
+     * Plays hands 0 .. hands-1 on a pool of the given size.
+     *
+     * @param seat0  Seat 0's controller, or null for the default AI
+     * @param writer Archive to record the hands to, or null
+     */
+    public static SelfPlayStats run(long hands, int threads, long seed, SeatFactory seat0,
+            GameRecordWriter writer) {
+        long leafSize = Math.max(1, hands / ((long) threads * SPLITS_PER_THREAD));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new Batch(seed, 0, hands, leafSize, seat0, writer));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays one seeded hand, with the banker rotating by hand index, into stats.
+     */
+    public static void playHand(long seed, long handIndex, SelfPlayStats stats) {
+        playHand(seed, handIndex, stats, null, null);
+    }
+
+    private static void playHand(long seed, long handIndex, SelfPlayStats stats, SeatFactory seat0,
+            GameRecordWriter writer) {
+        RandomSource random = RandomSource.seeded(handSeed(seed, handIndex));
+        GameManager gameManager = new GameManager(random.split());
+        // One controller per seat: a controller's random stream and buffers are its own
+        SeatController[] seats = new SeatController[4];
+        for (int seat = 0; seat < 4; seat++) {
+            RandomSource seatRandom = random.split();
+            seats[seat] = seat == 0 && seat0 != null ? seat0.create(seatRandom) : new AiController(seatRandom);
+        }
+        GameEngine engine = new GameEngine(gameManager, seats);
+        HandRecorder recorder = new HandRecorder(stats);
+        engine.addListener(recorder);
+        GameRecorder gameRecorder = null;
+        if (writer != null) {
+            gameRecorder = new GameRecorder(engine, writer, false, false);
+            gameRecorder.setNextHandId(handIndex);
+            engine.addListener(gameRecorder);
+        }
+
+        engine.startHand((int) (handIndex & 3));
+        engine.run();
+        recorder.finish(engine.getResult(), gameManager.getTable(), engine.getBankerIndex());
+        if (gameRecorder != null && gameRecorder.getError() != null)
+            throw new UncheckedIOException(gameRecorder.getError());
+    }
+
+    // SplitMix64 finalizer over (seed, index): neighbouring hands get unrelated decks
+    static long handSeed(long seed, long handIndex) {
+        long z = seed + (handIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Batch extends RecursiveTask<SelfPlayStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final long from;
+        private final long to;
+        private final long leafSize;
+        private final SeatFactory seat0;
+        private final GameRecordWriter writer;
+
+        Batch(long seed, long from, long to, long leafSize, SeatFactory seat0, GameRecordWriter writer) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.seat0 = seat0;
+            this.writer = writer;
+        }
+
+        @Override
+        protected SelfPlayStats compute() {
+            if (to - from <= leafSize) {
+                SelfPlayStats stats = new SelfPlayStats();
+                for (long i = from; i < to; i++)
+                    playHand(seed, i, stats, seat0, writer);
+                return stats;
+            }
+            long mid = (from + to) >>> 1;
+            Batch left = new Batch(seed, from, mid, leafSize, seat0, writer);
+            left.fork();
+            SelfPlayStats stats = new Batch(seed, mid, to, leafSize, seat0, writer).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    // Collects the per-hand events the final Table state no longer shows
+    private static final class HandRecorder implements GameListener {
+        private final SelfPlayStats stats;
+        private boolean daBao;
+
+        HandRecorder(SelfPlayStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void onMeld(int seat, Meld meld) {
+            stats.melds++;
+        }
+
+        @Override
+        public void onDaBao(int seat, Tile bao) {
+            daBao = true;
+        }
+
+        @Override
+        public void onViewBao(int seat) {
+            stats.viewBaos++;
+        }
+
+        @Override
+        public void onBaoReplaced(int seat, Tile bao) {
+            stats.baoReplacements++;
+        }
+
+        void finish(HandResult result, Table table, int bankerIndex) {
+            stats.hands++;
+            if (daBao)
+                stats.daBaoHands++;
+            if (result.isDraw()) {
+                stats.draws++;
+                return;
+            }
+            int winner = result.getWinner();
+            stats.wins[winner]++;
+            if (winner == bankerIndex)
+                stats.bankerWins++;
+            if (result.isSelfDraw()) {
+                stats.selfDraws[winner]++;
+                if (result.getWinningTile().equals(table.getBaoTile()))
+                    stats.baoWins++;
+            } else {
+                stats.dealIns[result.getDiscarder()]++;
+            }
+        }
+    }
+}
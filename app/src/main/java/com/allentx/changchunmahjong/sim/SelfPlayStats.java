@@ -0,0 +1,79 @@
+package com.allentx.changchunmahjong.sim;
+
+/**
+ * Counters for a batch of self-play hands. Each worker fills its own instance;
+ * batches are combined with {@link #merge} once they finish.
+ */
+public final class SelfPlayStats {
+    long hands;
+    long draws;
+    final long[] wins = new long[4];
+    final long[] selfDraws = new long[4];
+    final long[] dealIns = new long[4];
+    long bankerWins;
+    long daBaoHands; // Hands in which someone took the Bao
+    long viewBaos;
+    long baoReplacements;
+    long baoWins; // Electronic Hu: the drawn tile was the Bao
+    long melds;
+
+    public void merge(SelfPlayStats other) {
+        hands += other.hands;
+        draws += other.draws;
+        for (int i = 0; i < 4; i++) {
+            wins[i] += other.wins[i];
+            selfDraws[i] += other.selfDraws[i];
+            dealIns[i] += other.dealIns[i];
+        }
+        bankerWins += other.bankerWins;
+        daBaoHands += other.daBaoHands;
+        viewBaos += other.viewBaos;
+        baoReplacements += other.baoReplacements;
+        baoWins += other.baoWins;
+        melds += other.melds;
+    }
+
+    public long getHands() {
+        return hands;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getWins(int seat) {
+        return wins[seat];
+    }
+
+    public long getDealIns(int seat) {
+        return dealIns[seat];
+    }
+
+    /**
+     * Human-readable report; elapsedNanos is the wall-clock time of the run.
+     */
+    public String format(long elapsedNanos, int threads) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Hands: %d in %.2f s (%.0f hands/s, %d threads)%n", hands, seconds,
+                hands / Math.max(seconds, 1e-9), threads));
+        sb.append(String.format("Draws: %d (%.2f%%)%n", draws, pct(draws, hands)));
+        sb.append(String.format("Banker wins: %.2f%%   Melds per hand: %.2f%n", pct(bankerWins, hands),
+                hands == 0 ? 0 : (double) melds / hands));
+        sb.append("Seat  Win%    SelfDraw%  DealIn%\n");
+        long totalDealIns = 0;
+        for (int i = 0; i < 4; i++) {
+            totalDealIns += dealIns[i];
+            sb.append(String.format("%-5d %6.2f  %9.2f  %7.2f%n", i, pct(wins[i], hands),
+                    pct(selfDraws[i], hands), pct(dealIns[i], hands)));
+        }
+        sb.append(String.format("Deal-in rate: %.2f%% of hands%n", pct(totalDealIns, hands)));
+        sb.append(String.format("Bao: DaBao in %.2f%% of hands, %d ViewBao, %d replacements, %d Bao wins%n",
+                pct(daBaoHands, hands), viewBaos, baoReplacements, baoWins));
+        return sb.toString();
+    }
+
+    private static double pct(long count, long total) {
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+}
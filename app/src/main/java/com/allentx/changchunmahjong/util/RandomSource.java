@@ -0,0 +1,56 @@
+package com.allentx.changchunmahjong.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source of random numbers for shuffling, dice and AI tie-breaks.
+ *
+ * Kept to what the game needs so a fast or deterministic generator can be
+ * plugged in. Instances are not thread-safe; give each thread (or simulated
+ * hand) its own, e.g. via {@link #split()}.
+ */
+public interface RandomSource {
+
+    /**
+     * Uniform int in [0, bound).
+     */
+    int nextInt(int bound);
+
+    /**
+     * An independent source derived from this one, for handing to another
+     * thread or sub-task.
+     */
+    RandomSource split();
+
+    /**
+     * Unseeded source backed by {@link SplittableRandom}.
+     */
+    static RandomSource create() {
+        return new Splittable(new SplittableRandom());
+    }
+
+    /**
+     * Deterministic source: the same seed always yields the same sequence.
+     */
+    static RandomSource seeded(long seed) {
+        return new Splittable(new SplittableRandom(seed));
+    }
+
+    final class Splittable implements RandomSource {
+        private final SplittableRandom random;
+
+        Splittable(SplittableRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return random.nextInt(bound);
+        }
+
+        @Override
+        public RandomSource split() {
+            return new Splittable(random.split());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.allentx.changchunmahjong.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
+import org.junit.Test;
+
+public class GameStateTest {
+    private static final int ID_1M = 0;
+    private static final int ID_2M = 1;
+    private static final int ID_3M = 2;
+    private static final int ID_4M = 3;
+    private static final int ID_5M = 4;
+    private static final int ID_9M = 8;
+    private static final int ID_1S = 9;
+    private static final int ID_7P = 24;
+    private static final int ID_1Z = 27;
+    private static final int ID_7Z = 33;
+
+    // A dealt hand with seat 0 (banker) to discard
+    private static GameManager deal(int seed) {
+        GameManager gm = new GameManager(RandomSource.seeded(seed));
+        gm.startGame(0);
+        return gm;
+    }
+
+    // Replaces a seat's hand with the given tile ids
+    private static void hold(GameManager gm, int seat, int... ids) {
+        Player p = gm.getTable().getPlayer(seat);
+        while (!p.getHand().isEmpty())
+            p.removeTile(p.getHand().get(0));
+        int[] copies = new int[Tile.TYPE_COUNT];
+        for (int id : ids)
+            p.addTile(Tile.physical(id, copies[id]++));
+    }
+
+    private static void assertSameTable(GameState expected, GameState actual) {
+        for (int seat = 0; seat < 4; seat++) {
+            assertArrayEquals(expected.copyCounts(seat), actual.copyCounts(seat));
+            assertEquals(expected.getMeldCount(seat), actual.getMeldCount(seat));
+            for (int i = 0; i < expected.getMeldCount(seat); i++) {
+                Meld e = expected.getMeld(seat, i);
+                Meld a = actual.getMeld(seat, i);
+                assertEquals(e.getType(), a.getType());
+                assertEquals(e.getFirstTile().getId(), a.getFirstTile().getId());
+                assertEquals(e.getFromPlayer(), a.getFromPlayer());
+            }
+            assertArrayEquals(expected.getDiscards(seat), actual.getDiscards(seat));
+            assertEquals(expected.getScore(seat), actual.getScore(seat));
+        }
+        assertArrayEquals(expected.getTableDiscards(), actual.getTableDiscards());
+        assertEquals(expected.getCurrentPlayer(), actual.getCurrentPlayer());
+        assertEquals(expected.getWallRemaining(), actual.getWallRemaining());
+        for (int k = 0; k < expected.getWallRemaining(); k++)
+            assertEquals(expected.peekWall(k), actual.peekWall(k));
+    }
+
+    private static void assertIllegal(GameState state, int seat, Action action) {
+        try {
+            state.apply(seat, action);
+            fail(action.getType() + " by seat " + seat + " should be rejected");
+        } catch (IllegalStateException expected) {
+            // Rejected
+        }
+    }
+
+    @Test
+    public void restoreRebuildsTheCapturedTable() {
+        for (int seed = 0; seed < 8; seed++) {
+            GameManager gm = deal(seed);
+            gm.discardTile(0, gm.getTable().getPlayer(0).getHand().get(0));
+            gm.setCurrentPlayerIndex(1);
+            Tile drawn = gm.drawTile();
+            GameState state = GameState.of(gm, 0, drawn);
+
+            GameManager copy = new GameManager(RandomSource.seeded(seed + 100));
+            state.restore(copy);
+            assertSameTable(state, GameState.of(copy, 0, drawn));
+            // The restored table keeps drawing the same wall
+            assertEquals(gm.drawTile().getId(), copy.drawTile().getId());
+        }
+    }
+
+    @Test
+    public void drawAndDiscardMatchTheGameManager() {
+        GameManager gm = deal(3);
+        GameState state = GameState.of(gm, -1, null);
+        int wall = state.getWallRemaining();
+
+        Tile discard = gm.getTable().getPlayer(0).getHand().get(5);
+        GameState afterDiscard = state.apply(Action.discard(discard));
+        gm.discardTile(0, discard);
+        assertEquals(discard.getId(), afterDiscard.getLastDiscard());
+        assertEquals(0, afterDiscard.getLastDiscarder());
+        assertEquals(-1, afterDiscard.getLastDrawn());
+        assertArrayEquals(new int[] { discard.getId() }, afterDiscard.getDiscards(0));
+        assertSameTable(GameState.of(gm, 0, null), afterDiscard);
+
+        GameState afterDraw = afterDiscard.advanceTurn().draw();
+        gm.advanceTurn();
+        Tile drawn = gm.drawTile();
+        assertEquals(1, afterDraw.getCurrentPlayer());
+        assertEquals(drawn.getId(), afterDraw.getLastDrawn());
+        assertEquals(wall - 1, afterDraw.getWallRemaining());
+        assertSameTable(GameState.of(gm, 0, drawn), afterDraw);
+
+        // Forks leave their parent untouched
+        assertSameTable(GameState.of(deal(3), -1, null), state);
+    }
+
+    @Test
+    public void chiTakesTheSameNeighboursAsTheGameManager() {
+        // Discard 3m against: 1m2m (lowest 1m), 2m4m (lowest 2m), 4m5m (lowest 3m)
+        int[][] hands = { { ID_1M, ID_2M, ID_9M }, { ID_2M, ID_4M, ID_9M }, { ID_4M, ID_5M, ID_9M },
+                { ID_1M, ID_2M, ID_4M, ID_5M } };
+        int[] lowest = { ID_1M, ID_2M, ID_3M, ID_1M };
+        for (int i = 0; i < hands.length; i++) {
+            GameManager gm = deal(i);
+            hold(gm, 0, ID_3M, ID_1S);
+            hold(gm, 1, hands[i]);
+            GameState state = GameState.of(gm, -1, null).apply(Action.discard(Tile.byId(ID_3M)));
+            GameState chi = state.apply(1, Action.of(Action.Type.CHI));
+
+            gm.discardTile(0, Tile.byId(ID_3M));
+            gm.executeChi(1, 0);
+            assertSameTable(GameState.of(gm, 0, null), chi);
+            assertEquals(lowest[i], chi.getMeld(1, 0).getFirstTile().getId());
+            assertEquals(Meld.Type.CHI, chi.getMeld(1, 0).getType());
+            assertEquals(1, chi.getCurrentPlayer());
+            assertEquals(-1, chi.getLastDiscard());
+            // The claimed tile stays in the discarder's own pile
+            assertArrayEquals(new int[] { ID_3M }, chi.getDiscards(0));
+        }
+    }
+
+    @Test
+    public void pengAndMingGangClaimTheDiscard() {
+        GameManager gm = deal(5);
+        hold(gm, 0, ID_7P, ID_1S);
+        hold(gm, 2, ID_7P, ID_7P, ID_1Z);
+        hold(gm, 3, ID_7P, ID_1Z);
+        GameState state = GameState.of(gm, -1, null).apply(Action.discard(Tile.byId(ID_7P)));
+
+        GameState peng = state.apply(2, Action.of(Action.Type.PENG));
+        assertEquals(Meld.Type.PENG, peng.getMeld(2, 0).getType());
+        assertEquals(ID_7P, peng.getMeld(2, 0).getFirstTile().getId());
+        assertEquals(0, peng.getMeld(2, 0).getFromPlayer());
+        assertEquals(0, peng.getCount(2, ID_7P));
+        assertEquals(1, peng.getCount(2, ID_1Z));
+        assertEquals(2, peng.getCurrentPlayer());
+        assertEquals(0, peng.getTableDiscards().length);
+
+        // Seat 3 holds one 7p: no Peng
+        assertIllegal(state, 3, Action.of(Action.Type.PENG));
+
+        hold(gm, 2, ID_7P, ID_7P, ID_7P, ID_1Z);
+        state = GameState.of(gm, -1, null).apply(Action.discard(Tile.byId(ID_7P)));
+        GameState gang = state.apply(2, Action.of(Action.Type.MING_GANG));
+        assertEquals(Meld.Type.MING_GANG, gang.getMeld(2, 0).getType());
+        assertEquals(0, gang.getCount(2, ID_7P));
+
+        // The replacement comes off the back of the wall
+        int back = gang.peekWall(gang.getWallRemaining() - 1);
+        GameState replaced = gang.drawReplacement();
+        assertEquals(back, replaced.getLastDrawn());
+        assertEquals(1, replaced.getCount(2, back) - gang.getCount(2, back));
+        assertEquals(gang.getWallRemaining() - 1, replaced.getWallRemaining());
+        assertEquals(gang.peekWall(0), replaced.peekWall(0));
+    }
+
+    @Test
+    public void anGangMatchesTheGameManager() {
+        GameManager gm = deal(6);
+        hold(gm, 0, ID_9M, ID_9M, ID_9M, ID_9M, ID_1S);
+        GameState gang = GameState.of(gm, -1, null).apply(Action.of(Action.Type.AN_GANG)).drawReplacement();
+
+        gm.executeAnGang(0, Tile.byId(ID_9M));
+        Tile replacement = gm.drawReplacementTile();
+        assertEquals(replacement.getId(), gang.getLastDrawn());
+        assertEquals(-1, gang.getMeld(0, 0).getFromPlayer());
+        assertSameTable(GameState.of(gm, -1, replacement), gang);
+    }
+
+    @Test
+    public void rejectsIllegalMoves() {
+        GameManager gm = deal(7);
+        hold(gm, 0, ID_1Z, ID_7Z, ID_5M, ID_1S);
+        hold(gm, 1, ID_1Z, ID_2M, ID_5M, ID_7Z, ID_7Z);
+        GameState state = GameState.of(gm, -1, null);
+
+        // Nothing on the table to claim
+        assertIllegal(state, 1, Action.of(Action.Type.CHI));
+        assertIllegal(state, 1, Action.of(Action.Type.PENG));
+        assertIllegal(state, 1, Action.of(Action.Type.MING_GANG));
+        // Tiles the seat does not hold
+        assertIllegal(state, 0, Action.discard(Tile.byId(ID_9M)));
+        assertIllegal(state, 0, Action.of(Action.Type.AN_GANG));
+
+        // Honors never form a Chi, whatever the neighbours
+        for (int honor : new int[] { ID_1Z, ID_7Z }) {
+            GameState discarded = state.apply(Action.discard(Tile.byId(honor)));
+            assertIllegal(discarded, 1, Action.of(Action.Type.CHI));
+        }
+        // 5m with neither 3m4m, 4m6m nor 6m7m in hand
+        assertIllegal(state.apply(Action.discard(Tile.byId(ID_5M))), 1, Action.of(Action.Type.CHI));
+        // Three 7z are needed for a Ming Gang
+        assertIllegal(state.apply(Action.discard(Tile.byId(ID_7Z))), 1, Action.of(Action.Type.MING_GANG));
+
+        // A rejected move leaves the state as it was
+        assertSameTable(GameState.of(gm, -1, null), state);
+
+        gm.getTable().setWallPosition(gm.getTable().getWallTail(), gm.getTable().getWallTail());
+        GameState empty = GameState.of(gm, -1, null);
+        assertTrue(empty.isWallEmpty());
+        for (int i = 0; i < 2; i++) {
+            try {
+                if (i == 0)
+                    empty.draw();
+                else
+                    empty.drawReplacement();
+                fail("Drew from an empty wall");
+            } catch (IllegalStateException expected) {
+                // Rejected
+            }
+        }
+    }
+}
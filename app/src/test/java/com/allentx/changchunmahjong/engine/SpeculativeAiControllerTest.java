@@ -0,0 +1,141 @@
+package com.allentx.changchunmahjong.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class SpeculativeAiControllerTest {
+
+    // Discards the highest tile id, optionally holding the worker until the gate opens
+    private static final class HighestTileAi extends AiController {
+        private final CountDownLatch gate;
+        final AtomicInteger searches = new AtomicInteger();
+
+        HighestTileAi(CountDownLatch gate) {
+            super(RandomSource.seeded(0));
+            this.gate = gate;
+        }
+
+        @Override
+        protected Tile chooseDiscard(Table table, Decision decision) {
+            searches.incrementAndGet();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (decision.getRequiredDiscard() != null)
+                return decision.getRequiredDiscard();
+            Tile best = null;
+            for (Tile t : table.getPlayer(decision.getSeat()).getHand()) {
+                if (best == null || t.getId() > best.getId())
+                    best = t;
+            }
+            return best;
+        }
+    }
+
+    private static final class DiscardLog implements GameListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onDiscard(int seat, Tile tile) {
+            events.add(seat + ":" + tile.getId());
+        }
+
+        @Override
+        public void onHandEnded(HandResult result) {
+            events.add(result.isDraw() ? "draw" : "hu " + result.getWinner());
+        }
+    }
+
+    @Test
+    public void playsTheSameHandAsTheDelegate() throws InterruptedException {
+        for (int seed = 0; seed < 4; seed++) {
+            // Reference: the delegate on the engine's thread
+            AiController plain = new HighestTileAi(new CountDownLatch(0));
+            GameEngine reference = new GameEngine(new GameManager(RandomSource.seeded(seed)),
+                    new SeatController[] { plain, plain, plain, plain });
+            DiscardLog expected = new DiscardLog();
+            reference.addListener(expected);
+            reference.startHand(seed % 4);
+            reference.run();
+
+            BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+            final GameEngine[] engine = new GameEngine[1];
+            SpeculativeAiController ai = new SpeculativeAiController(new HighestTileAi(new CountDownLatch(0)),
+                    callbacks::add, (decision, action) -> {
+                        if (engine[0].getPendingDecision() == decision)
+                            engine[0].submit(action);
+                    });
+            engine[0] = new GameEngine(new GameManager(RandomSource.seeded(seed)),
+                    new SeatController[] { ai, ai, ai, ai });
+            ai.attach(engine[0], 0b1111);
+            DiscardLog actual = new DiscardLog();
+            engine[0].addListener(actual);
+            try {
+                engine[0].startHand(seed % 4);
+                engine[0].run();
+                while (!engine[0].isHandOver()) {
+                    // Paused on a search; its callback answers the decision
+                    Runnable callback = callbacks.poll(10, TimeUnit.SECONDS);
+                    assertNotNull("no answer for a paused decision", callback);
+                    callback.run();
+                    engine[0].run();
+                }
+            } finally {
+                ai.shutdown();
+            }
+            assertEquals(expected.events, actual.events);
+        }
+    }
+
+    @Test
+    public void discardDropsGuessesForOtherStates() throws InterruptedException {
+        CountDownLatch gate = new CountDownLatch(1);
+        HighestTileAi delegate = new HighestTileAi(gate);
+        BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+        final GameEngine[] engine = new GameEngine[1];
+        SpeculativeAiController ai = new SpeculativeAiController(delegate, callbacks::add, (decision, action) -> {
+            if (engine[0].getPendingDecision() == decision)
+                engine[0].submit(action);
+        });
+        AiController others = new HighestTileAi(new CountDownLatch(0));
+        // Seat 0 is a human banker; seat 1 replies to its discard
+        engine[0] = new GameEngine(new GameManager(RandomSource.seeded(7)),
+                new SeatController[] { null, ai, others, others });
+        ai.attach(engine[0], 0b0010);
+        try {
+            engine[0].startHand(0);
+            engine[0].run();
+            Decision human = engine[0].getPendingDecision();
+            assertEquals(0, human.getSeat());
+            assertEquals(Decision.Kind.TURN, human.getKind());
+            // Seat 1's reply to each likely discard is guessed while the human thinks
+            assertTrue(ai.getSpeculationCount() > 1);
+
+            Player p = engine[0].getTable().getPlayer(0);
+            Tile discard = human.getRequiredDiscard() != null ? human.getRequiredDiscard() : p.getHand().get(0);
+            assertTrue(engine[0].submit(Action.discard(discard)));
+            // Only the reply to the actual discard is left
+            assertEquals(1, ai.getSpeculationCount());
+        } finally {
+            gate.countDown();
+            ai.shutdown();
+        }
+    }
+}
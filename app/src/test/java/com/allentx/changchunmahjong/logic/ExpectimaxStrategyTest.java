@@ -0,0 +1,70 @@
+package com.allentx.changchunmahjong.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ExpectimaxStrategyTest {
+    private static final long BUDGET_NANOS = 30_000_000_000L; // Every pass finishes
+    private static final int ID_9M = 8;
+    private static final int ID_9S = 17;
+    private static final int ID_3Z = 29;
+    private static final int ID_5Z = 31;
+
+    @Test
+    public void tenpaiKeepsTheLiveWait() {
+        // Dropping 9s waits on 5z, dropping 5z waits on 9s; three 5z are already out
+        int[] hand = TestHands.parse("123m4569s789p1115z");
+        int[] seen = TestHands.parse("555z");
+        for (int depth = 0; depth <= 2; depth++) {
+            ExpectimaxStrategy.Result result = new ExpectimaxStrategy(14).search(hand, 0, 0, seen, depth,
+                    BUDGET_NANOS);
+            assertEquals(depth, result.getDepth());
+            assertEquals(ID_5Z, result.getDiscard());
+        }
+    }
+
+    @Test
+    public void tenpaiValueIsTheWinningShare() {
+        int[] hand = TestHands.parse("123m4569s789p1115z");
+        int[] seen = TestHands.parse("555z");
+        ExpectimaxStrategy.Result result = new ExpectimaxStrategy(14).search(hand, 0, 0, seen, 0, BUDGET_NANOS);
+        // Three 9s among the tiles neither seen nor left in the 13-tile hand
+        assertEquals(3.0 / (34 * 4 - 13 - 3), result.getValue(), 1e-9);
+    }
+
+    @Test
+    public void oneShantenDropsAnIsolatedTile() {
+        // Everything but 9m and 3z is a set, pair or partial sequence
+        int[] hand = TestHands.parse("129m456s789p113z55z");
+        int[] seen = new int[HuEvaluator.TILE_TYPES];
+        assertEquals(1, ShantenCalculator.shanten(hand, 0, 0));
+        ExpectimaxStrategy strategy = new ExpectimaxStrategy(14);
+        for (int depth = 0; depth <= 2; depth++) {
+            int discard = strategy.search(hand, 0, 0, seen, depth, BUDGET_NANOS).getDiscard();
+            assertTrue("depth " + depth + " discarded " + discard, discard == ID_9M || discard == ID_3Z);
+        }
+    }
+
+    @Test
+    public void searchKeepsTheBestShanten() {
+        Random random = new Random(13);
+        ExpectimaxStrategy strategy = new ExpectimaxStrategy(14);
+        HandAnalyzer.Result analysis = new HandAnalyzer.Result();
+        int[] seen = new int[HuEvaluator.TILE_TYPES];
+        for (int i = 0; i < 20; i++) {
+            int[] hand = TestHands.nearWinningHand(random);
+            int t;
+            do {
+                t = random.nextInt(HuEvaluator.TILE_TYPES);
+            } while (hand[t] == 4);
+            hand[t]++;
+            HandAnalyzer.analyze(hand, 0, 0, seen, analysis);
+            int discard = strategy.search(hand, 0, 0, seen, 1, BUDGET_NANOS).getDiscard();
+            assertTrue(TestHands.toString(hand), hand[discard] > 0);
+            assertEquals(TestHands.toString(hand), analysis.getBestShanten(), analysis.getShanten(discard));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.allentx.changchunmahjong.logic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class HandAnalyzerTest {
+
+    @Test
+    public void discardsMatchDirectCalculation() {
+        Random random = new Random(7);
+        HandAnalyzer.Result result = new HandAnalyzer.Result();
+        for (int i = 0; i < 500; i++) {
+            int[] counts = TestHands.nearWinningHand(random);
+            int t;
+            do {
+                t = random.nextInt(HuEvaluator.TILE_TYPES);
+            } while (counts[t] == 4);
+            counts[t]++;
+            int meldCount = 0;
+            int meldFlags = 0;
+            if (i % 2 == 1) {
+                // Expose one of the hand's triplets as a Peng
+                int peng = TestHands.removeSet(random, counts);
+                if (peng >= 0) {
+                    meldCount = 1;
+                    meldFlags = HuEvaluator.tileFlags(peng) | HuEvaluator.MELD_PENG_GANG;
+                }
+            }
+            String hand = TestHands.toString(counts);
+
+            HandAnalyzer.analyze(counts, meldCount, meldFlags, null, result);
+            int best = Integer.MAX_VALUE;
+            for (int d = 0; d < HuEvaluator.TILE_TYPES; d++) {
+                assertEquals(hand, counts[d] > 0, result.canDiscard(d));
+                if (counts[d] == 0)
+                    continue;
+                counts[d]--;
+                int shanten = ShantenCalculator.shanten(counts, meldCount, meldFlags);
+                long waits = HuEvaluator.waitMask(counts, meldCount, meldFlags);
+                counts[d]++;
+                assertEquals(hand, shanten, result.getShanten(d));
+                assertEquals(hand, waits, result.getWaitMask(d));
+                assertEquals(hand, shanten == ShantenCalculator.TENPAI, result.getWaitMask(d) != 0);
+                best = Math.min(best, shanten);
+            }
+            assertEquals(hand, best, result.getBestShanten());
+            if (!HuEvaluator.isHu(counts, meldCount, meldFlags))
+                assertEquals(hand, best, ShantenCalculator.shanten(counts, meldCount, meldFlags));
+        }
+    }
+
+    @Test
+    public void liveCountsExcludeSeenAndHeldCopies() {
+        int[] counts = TestHands.parse("123m456s789p11123z");
+        int[] seen = TestHands.parse("33z");
+        HandAnalyzer.Result result = HandAnalyzer.analyze(counts, 0, 0, seen, new HandAnalyzer.Result());
+        int twoZ = 27 + 1;
+        int threeZ = 27 + 2;
+        // Dropping 2z waits on the 3z held once and seen twice
+        assertEquals(1L << threeZ, result.getWaitMask(twoZ));
+        assertEquals(1, result.getLiveCount(twoZ));
+        assertEquals(1L << twoZ, result.getWaitMask(threeZ));
+        assertEquals(3, result.getLiveCount(threeZ));
+        assertEquals(1L << twoZ | 1L << threeZ, result.getTenpaiDiscardMask());
+    }
+}
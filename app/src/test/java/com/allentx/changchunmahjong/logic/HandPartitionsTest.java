@@ -0,0 +1,40 @@
+package com.allentx.changchunmahjong.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HandPartitionsTest {
+    private static final int ID_3M = 2;
+    private static final int ID_5M = 4;
+
+    @Test
+    public void winningTileInTheMiddleOfASequence() {
+        // Read as 234 + 33: the 3 closes 2-4
+        int[] counts = TestHands.parse("23334m456s789p111z");
+        assertTrue(HandPartitions.isKanchan(counts, 0, 0, ID_3M));
+    }
+
+    @Test
+    public void kanchanWhenAnotherReadingIsNot() {
+        // 333 + 456 + 66 closes 4-6 on the 5; 33 + 345 + 666 has it on the edge
+        int[] counts = TestHands.parse("33345666m111s789p");
+        assertEquals(3, HandPartitions.enumerate(counts, 0, 0, (blocks, blockCount) -> true));
+        assertTrue(HandPartitions.isKanchan(counts, 0, 0, ID_5M));
+    }
+
+    @Test
+    public void edgeWaitIsNotKanchan() {
+        // 12 waiting on 3
+        int[] counts = TestHands.parse("12399m456s789p111z");
+        assertFalse(HandPartitions.isKanchan(counts, 0, 0, ID_3M));
+    }
+
+    @Test
+    public void notAWinningHand() {
+        int[] counts = TestHands.parse("2334m456s789p1112z");
+        assertFalse(HandPartitions.isKanchan(counts, 0, 0, ID_3M));
+    }
+}
@@ -0,0 +1,128 @@
+package com.allentx.changchunmahjong.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class KeepValueEvaluatorTest {
+    private static final double DELTA = 1e-9;
+
+    // Tile ids by name, e.g. id("5p")
+    private static int id(String tile) {
+        int rank = tile.charAt(0) - '1';
+        switch (tile.charAt(1)) {
+            case 'm':
+                return rank;
+            case 's':
+                return 9 + rank;
+            case 'p':
+                return 18 + rank;
+            default:
+                return 27 + rank;
+        }
+    }
+
+    // Shanten steps lost by discarding id, against the best discard
+    private static double shantenTerm(int[] hand, int meldCount, int meldFlags, int id) {
+        int best = Integer.MAX_VALUE;
+        int after = 0;
+        for (int d = 0; d < HuEvaluator.TILE_TYPES; d++) {
+            if (hand[d] == 0)
+                continue;
+            hand[d]--;
+            int shanten = ShantenCalculator.shanten(hand, meldCount, meldFlags);
+            hand[d]++;
+            assertTrue("Hand must be far from ready, so no discard has outs", shanten > 0);
+            best = Math.min(best, shanten);
+            if (d == id)
+                after = shanten;
+        }
+        return (after - best) * KeepValueEvaluator.SHANTEN_STEP_VALUE;
+    }
+
+    @Test
+    public void tenpaiHandScoresEveryTerm() {
+        int[] hand = TestHands.parse("123m456s789p11125z");
+        double[] scores = new KeepValueEvaluator().evaluate(hand, 0, 0, new int[HuEvaluator.TILE_TYPES]);
+
+        // Columns: triplet/pair, Yao Jiu, suit (3 in hand), sequence, side wait,
+        // gap wait, lone honor, visible copies, outs, shanten step. Every
+        // number tile has two neighbours in hand: side waits see 1 or 5 copies
+        // of 8 (a wait off the suit counts as 4), gap waits 1 of 4.
+        Object[][] rows = {
+                { "1m", 0, 20, 150, 80, 9.375, 9, 0, -5, 0, 120 },
+                { "2m", 0, 0, 150, 80, 9.375, 0, 0, -5, 0, 120 },
+                { "3m", 0, 0, 150, 80, 21.875, 9, 0, -5, 0, 120 },
+                { "4s", 0, 0, 150, 80, 21.875, 9, 0, -5, 0, 120 },
+                { "5s", 0, 0, 150, 80, 21.875, 0, 0, -5, 0, 120 },
+                { "6s", 0, 0, 150, 80, 21.875, 9, 0, -5, 0, 120 },
+                { "7p", 0, 0, 150, 80, 21.875, 9, 0, -5, 0, 120 },
+                { "8p", 0, 0, 150, 80, 21.875, 0, 0, -5, 0, 120 },
+                { "9p", 0, 20, 150, 80, 9.375, 9, 0, -5, 0, 120 },
+                { "1z", 100, 20, 0, 0, 0, 0, 0, -15, 0, 120 },
+                // Either single wait leaves three live copies of the other
+                { "2z", 0, 20, 0, 0, 0, 0, -20, -5, -650, 0 },
+                { "5z", 0, 20, 0, 0, 0, 0, -20, -5, -650, 0 },
+        };
+        for (Object[] row : rows) {
+            double expected = 0;
+            for (int i = 1; i < row.length; i++)
+                expected += ((Number) row[i]).doubleValue();
+            assertEquals((String) row[0], expected, scores[id((String) row[0])], DELTA);
+        }
+    }
+
+    @Test
+    public void meldsChangeThePairSuitAndYaoJiuTerms() {
+        // A Peng of 9m: a triplet, Yao Jiu and Wan are already on the table
+        int meldFlags = HuEvaluator.tileFlags(id("9m")) | HuEvaluator.MELD_PENG_GANG;
+        int[] hand = TestHands.parse("34m15s59p22667z");
+        int[] seen = new int[HuEvaluator.TILE_TYPES];
+        seen[id("9m")] = 3; // The meld
+        seen[id("2m")] = 1;
+        seen[id("5p")] = 2;
+        double[] scores = new KeepValueEvaluator().evaluate(hand, 1, meldFlags, seen);
+
+        // Columns: triplet/pair, Yao Jiu, suit, side wait, lone honor, visible copies
+        Object[][] rows = {
+                // Wan is melded, so no suit protection; 2m and 5m show 1 of 8
+                { "3m", 0, 0, 0, 21.875, 0, -5 },
+                { "4m", 0, 0, 0, 21.875, 0, -5 },
+                // Two tiles each of Tiao and Tong
+                { "1s", 0, 20, 300, 0, 0, -5 },
+                { "5s", 0, 0, 300, 0, 0, -5 },
+                { "5p", 0, 0, 300, 0, 0, -15 },
+                { "9p", 0, 20, 300, 0, 0, -5 },
+                // With a triplet melded only a dragon pair stays valuable
+                { "2z", 40, 20, 0, 0, 0, -10 },
+                { "6z", 150, 20, 0, 0, 0, -10 },
+                { "7z", 0, 20, 0, 0, -20, -5 },
+        };
+        for (Object[] row : rows) {
+            int id = id((String) row[0]);
+            double expected = shantenTerm(hand, 1, meldFlags, id);
+            for (int i = 1; i < row.length; i++)
+                expected += ((Number) row[i]).doubleValue();
+            assertEquals((String) row[0], expected, scores[id], DELTA);
+        }
+    }
+
+    @Test
+    public void protectsTheOnlyYaoJiuTile() {
+        // 9p is the only Yao Jiu tile and completes 789p; Tong has five tiles in hand
+        int[] hand = TestHands.parse("234556m456s36789p");
+        int[] seen = new int[HuEvaluator.TILE_TYPES];
+        KeepValueEvaluator evaluator = new KeepValueEvaluator();
+        // Yao Jiu, sequence, side wait (8p and off-suit seen: 5 of 8), gap wait (1 of 4), visible
+        double terms = 80 + 9.375 + 9 - 5;
+        assertEquals(100 + terms + shantenTerm(hand, 0, 0, id("9p")),
+                evaluator.evaluate(hand, 0, 0, seen)[id("9p")], DELTA);
+
+        // A Yao Jiu meld makes it one of several
+        int meldFlags = HuEvaluator.tileFlags(id("1z")) | HuEvaluator.MELD_PENG_GANG;
+        hand = TestHands.parse("2358m456s6789p");
+        assertEquals(20 + terms + shantenTerm(hand, 1, meldFlags, id("9p")),
+                evaluator.evaluate(hand, 1, meldFlags, seen)[id("9p")], DELTA);
+    }
+}
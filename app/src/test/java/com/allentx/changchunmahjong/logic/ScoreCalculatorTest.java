@@ -0,0 +1,76 @@
+package com.allentx.changchunmahjong.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Tile;
+import org.junit.Test;
+
+public class ScoreCalculatorTest {
+    private static final int ID_3M = 2;
+    private static final int ID_5M = 4;
+    private static final int ID_7S = 15;
+    private static final int ID_5Z = 31;
+
+    @Test
+    public void discardIntoKanchanDoublesThePayment() {
+        Player winner = player(1, "2334m456s789p111z");
+        int[] deltas = new int[4];
+        int breakdown = ScoreCalculator.score(winner, Tile.byId(ID_3M), false, 0, 2, deltas);
+        assertTrue((breakdown & ScoreCalculator.KANCHAN) != 0);
+        assertEquals(4, ScoreCalculator.getMultiplier(breakdown)); // Standup too
+        assertEquals(0, deltas[0] + deltas[1] + deltas[2] + deltas[3]);
+    }
+
+    @Test
+    public void kanchanWhenAnotherReadingIsNot() {
+        Player winner = player(1, "3334666m111s789p");
+        int breakdown = ScoreCalculator.score(winner, Tile.byId(ID_5M), false, 0, 2, new int[4]);
+        assertTrue((breakdown & ScoreCalculator.KANCHAN) != 0);
+    }
+
+    @Test
+    public void selfDrawnKanchan() {
+        // The drawn tile is already in hand
+        Player winner = player(1, "23334m456s789p111z");
+        int breakdown = ScoreCalculator.score(winner, Tile.byId(ID_3M), true, 0, -1, new int[4]);
+        assertTrue((breakdown & ScoreCalculator.KANCHAN) != 0);
+    }
+
+    @Test
+    public void edgeWaitIsNotKanchan() {
+        Player winner = player(1, "1299m456s789p111z");
+        int breakdown = ScoreCalculator.score(winner, Tile.byId(ID_3M), false, 0, 2, new int[4]);
+        assertFalse((breakdown & ScoreCalculator.KANCHAN) != 0);
+    }
+
+    @Test
+    public void baoStandsInForAKanchanWait() {
+        // A drawn Bao 7s completes the hand in place of the 3m
+        Player winner = player(1, "2499m456s789p111z7s");
+        int breakdown = ScoreCalculator.score(winner, Tile.byId(ID_7S), true, 0, -1, new int[4]);
+        assertTrue((breakdown & ScoreCalculator.KANCHAN) != 0);
+
+        // An honor Bao works the same way
+        winner = player(1, "2499m456s789p111z5z");
+        breakdown = ScoreCalculator.score(winner, Tile.byId(ID_5Z), true, 0, -1, new int[4]);
+        assertTrue((breakdown & ScoreCalculator.KANCHAN) != 0);
+
+        // The same Bao standing in for an open wait on 1m or 4m
+        winner = player(1, "2399m456s789p111z7s");
+        breakdown = ScoreCalculator.score(winner, Tile.byId(ID_7S), true, 0, -1, new int[4]);
+        assertFalse((breakdown & ScoreCalculator.KANCHAN) != 0);
+    }
+
+    private static Player player(int seat, String hand) {
+        Player p = new Player(seat);
+        int[] counts = TestHands.parse(hand);
+        for (int id = 0; id < HuEvaluator.TILE_TYPES; id++) {
+            for (int copy = 0; copy < counts[id]; copy++)
+                p.addTile(Tile.physical(id, copy));
+        }
+        return p;
+    }
+}
@@ -0,0 +1,122 @@
+package com.allentx.changchunmahjong.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class ShantenCalculatorTest {
+
+    @Test
+    public void knownHands() {
+        assertEquals(ShantenCalculator.HU, ShantenCalculator.shanten(TestHands.parse("123m456s789p11122z"), 0, 0));
+        assertEquals(ShantenCalculator.TENPAI, ShantenCalculator.shanten(TestHands.parse("123m456s789p1112z"), 0, 0));
+        // Seven Pairs across all suits with a Yao Jiu
+        assertEquals(ShantenCalculator.TENPAI, ShantenCalculator.shanten(TestHands.parse("1133m5577s2299p1z"), 0, 0));
+        // Sequences only: the pair still has to grow into the triplet
+        assertEquals(1, ShantenCalculator.shanten(TestHands.parse("123m456s789p23m11z"), 0, 0));
+        // A dragon pair satisfies the triplet rule
+        assertEquals(ShantenCalculator.TENPAI, ShantenCalculator.shanten(TestHands.parse("123m456s789p2255z"), 0, 0));
+    }
+
+    @Test
+    public void tripletRuleCostsAStepOnlyWhenNothingCanBecomeTheTriplet() {
+        // An isolated tile can still grow into the triplet, so no extra step
+        assertEquals(3, ShantenCalculator.shanten(TestHands.parse("39m1356778s788p6z"), 0, 0));
+        assertEquals(2, ShantenCalculator.shanten(TestHands.parse("33m1356778s788p6z"), 0, 0));
+    }
+
+    @Test
+    public void matchesExchangeSearch() {
+        Random random = new Random(11);
+        for (int i = 0; i < 80; i++) {
+            int[] counts = TestHands.nearWinningHand(random);
+            int expected = exchanges(counts, 2);
+            assertEquals(TestHands.toString(counts), expected,
+                    Math.min(ShantenCalculator.shanten(counts, 0, 0), 2));
+        }
+    }
+
+    @Test
+    public void oneDrawChangesShantenByAtMostOne() {
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            int[] counts = TestHands.nearWinningHand(random);
+            int shanten = ShantenCalculator.shanten(counts, 0, 0);
+            for (int t = 0; t < HuEvaluator.TILE_TYPES; t++) {
+                if (counts[t] == 4)
+                    continue;
+                counts[t]++;
+                assertEquals(HuEvaluator.isHu(counts, 0, 0),
+                        ShantenCalculator.shanten(counts, 0, 0) == ShantenCalculator.HU);
+                for (int d = 0; d < HuEvaluator.TILE_TYPES; d++) {
+                    if (counts[d] == 0)
+                        continue;
+                    counts[d]--;
+                    int after = ShantenCalculator.shanten(counts, 0, 0);
+                    counts[d]++;
+                    assertTrue(TestHands.toString(counts), Math.abs(after - shanten) <= 1);
+                }
+                counts[t]--;
+            }
+        }
+    }
+
+    @Test
+    public void fourteenTilesIsBestDiscard() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            int[] counts = TestHands.nearWinningHand(random);
+            int t = random.nextInt(HuEvaluator.TILE_TYPES);
+            if (counts[t] == 4)
+                continue;
+            counts[t]++;
+            int expected = Integer.MAX_VALUE;
+            if (HuEvaluator.isHu(counts, 0, 0)) {
+                expected = ShantenCalculator.HU;
+            } else {
+                for (int d = 0; d < HuEvaluator.TILE_TYPES; d++) {
+                    if (counts[d] == 0)
+                        continue;
+                    counts[d]--;
+                    expected = Math.min(expected, ShantenCalculator.shanten(counts, 0, 0));
+                    counts[d]++;
+                }
+            }
+            assertEquals(TestHands.toString(counts), expected, ShantenCalculator.shanten(counts, 0, 0));
+        }
+    }
+
+    // Brute force: fewest draw-and-discard exchanges to Tenpai, capped
+    private static int exchanges(int[] counts, int cap) {
+        for (int n = 0; n < cap; n++) {
+            if (reachesTenpai(counts, n))
+                return n;
+        }
+        return cap;
+    }
+
+    private static boolean reachesTenpai(int[] counts, int exchanges) {
+        if (exchanges == 0)
+            return HuEvaluator.waitMask(counts, 0, 0) != 0;
+        for (int t = 0; t < HuEvaluator.TILE_TYPES; t++) {
+            if (counts[t] == 4)
+                continue;
+            counts[t]++;
+            for (int d = 0; d < HuEvaluator.TILE_TYPES; d++) {
+                if (counts[d] == 0 || d == t)
+                    continue;
+                counts[d]--;
+                boolean reached = reachesTenpai(counts, exchanges - 1);
+                counts[d]++;
+                if (reached) {
+                    counts[t]--;
+                    return true;
+                }
+            }
+            counts[t]--;
+        }
+        return false;
+    }
+}
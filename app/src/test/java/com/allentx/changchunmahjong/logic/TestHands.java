@@ -0,0 +1,98 @@
+package com.allentx.changchunmahjong.logic;
+
+import java.util.Random;
+
+// Count vectors for tests
+final class TestHands {
+
+    private TestHands() {
+    }
+
+    // "123m456s" style: digits followed by m (Wan), s (Tiao), p (Tong) or z (honors)
+    static int[] parse(String hand) {
+        int[] counts = new int[HuEvaluator.TILE_TYPES];
+        int start = 0;
+        for (int i = 0; i < hand.length(); i++) {
+            char c = hand.charAt(i);
+            if (Character.isDigit(c))
+                continue;
+            int base = c == 'm' ? 0 : c == 's' ? 9 : c == 'p' ? 18 : 27;
+            for (int j = start; j < i; j++)
+                counts[base + hand.charAt(j) - '1']++;
+            start = i + 1;
+        }
+        return counts;
+    }
+
+    // Four random sets and a pair, one tile dropped and up to three replaced at random
+    static int[] nearWinningHand(Random random) {
+        int[] counts = new int[HuEvaluator.TILE_TYPES];
+        int tiles = 0;
+        while (tiles < 14) {
+            int id = random.nextInt(HuEvaluator.TILE_TYPES);
+            int size = tiles == 12 ? 2 : 3;
+            boolean sequence = size == 3 && id < 27 && id % 9 <= 6 && random.nextBoolean();
+            if (sequence) {
+                if (counts[id] == 4 || counts[id + 1] == 4 || counts[id + 2] == 4)
+                    continue;
+                counts[id]++;
+                counts[id + 1]++;
+                counts[id + 2]++;
+            } else {
+                if (counts[id] + size > 4)
+                    continue;
+                counts[id] += size;
+            }
+            tiles += size;
+        }
+        removeRandom(random, counts);
+        for (int i = random.nextInt(4); i > 0; i--) {
+            removeRandom(random, counts);
+            int id;
+            do {
+                id = random.nextInt(HuEvaluator.TILE_TYPES);
+            } while (counts[id] == 4);
+            counts[id]++;
+        }
+        return counts;
+    }
+
+    static void removeRandom(Random random, int[] counts) {
+        int id;
+        do {
+            id = random.nextInt(HuEvaluator.TILE_TYPES);
+        } while (counts[id] == 0);
+        counts[id]--;
+    }
+
+    // Removes three copies of a random tile held at least three times; -1 if there is none
+    static int removeSet(Random random, int[] counts) {
+        int start = random.nextInt(HuEvaluator.TILE_TYPES);
+        for (int i = 0; i < HuEvaluator.TILE_TYPES; i++) {
+            int id = (start + i) % HuEvaluator.TILE_TYPES;
+            if (counts[id] >= 3) {
+                counts[id] -= 3;
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    static String toString(int[] counts) {
+        StringBuilder sb = new StringBuilder();
+        String suits = "mspz";
+        for (int suit = 0; suit < 4; suit++) {
+            int ranks = suit == 3 ? 7 : 9;
+            boolean any = false;
+            for (int r = 0; r < ranks; r++) {
+                for (int c = 0; c < counts[suit * 9 + r]; c++) {
+                    sb.append(r + 1);
+                    any = true;
+                }
+            }
+            if (any)
+                sb.append(suits.charAt(suit));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package com.allentx.changchunmahjong.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class GameRecordReaderTest {
+
+    @Test
+    public void decodesWhatTheEncoderWrote() throws IOException {
+        File file = TestRecords.tempArchive();
+        try {
+            try (GameRecordWriter writer = new GameRecordWriter(file)) {
+                writer.append(TestRecords.sampleHand());
+            }
+            byte[] deal = TestRecords.sampleDeal();
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                assertEquals(1, reader.size());
+                assertEquals(RecordFormat.FILE_HEADER_SIZE, reader.getOffset(0));
+                RecordedHand hand = reader.read(0, new RecordedHand());
+                assertEquals(300, hand.getHandId());
+                assertEquals(1, hand.getBanker());
+                assertEquals(3, hand.getDice1());
+                assertEquals(4, hand.getDice2());
+                assertEquals(14, hand.getDealSize(1));
+                assertEquals(deal[13], hand.getDealtTile(1, 0)); // After seat 0's 13
+                // Folded actions come back as separate draws and discards
+                int[] opcodes = { RecordFormat.OP_DISCARD, RecordFormat.OP_DRAW, RecordFormat.OP_DISCARD,
+                        RecordFormat.OP_DRAW, RecordFormat.OP_DISCARD, RecordFormat.OP_PENG,
+                        RecordFormat.OP_DISCARD, RecordFormat.OP_HU };
+                int[] tiles = { 0, 5, 5, 6, 7, -1, 9, 9 };
+                assertEquals(opcodes.length, hand.getActionCount());
+                for (int i = 0; i < opcodes.length; i++) {
+                    assertEquals(opcodes[i], hand.getOpcode(i));
+                    assertEquals(tiles[i], hand.getTile(i));
+                }
+                assertEquals(1, hand.getWinner());
+                assertEquals(0, hand.getDiscarder());
+                assertEquals(-3, hand.getScoreDelta(0));
+                assertEquals(6, hand.getScoreDelta(1));
+            }
+        } finally {
+            TestRecords.delete(file);
+        }
+    }
+
+    @Test
+    public void indexCoversAppendedHandsOnly() throws IOException {
+        File file = TestRecords.tempArchive();
+        try {
+            List<TestRecords.PlayedHand> played = new ArrayList<>();
+            TestRecords.record(file, 0, 5, played);
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                assertEquals(5, reader.size());
+            }
+            assertTrue(GameRecordReader.indexFile(file).exists());
+
+            // A second writer appends; a half-written hand at the end is left out
+            TestRecords.record(file, 5, 8, played);
+            try (FileOutputStream out = new FileOutputStream(file, true)) {
+                out.write(new byte[] { (byte) 200, 1, 5 });
+            }
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                assertEquals(8, reader.size());
+                RecordedHand hand = new RecordedHand();
+                for (int i = reader.size() - 1; i >= 0; i--) {
+                    assertEquals(i, reader.read(i, hand).getHandId());
+                    assertTrue(reader.getOffset(i) >= RecordFormat.FILE_HEADER_SIZE);
+                }
+            }
+        } finally {
+            TestRecords.delete(file);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.allentx.changchunmahjong.record;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class GameRecordTest {
+
+    @Test
+    public void encodesTheDocumentedLayout() throws IOException {
+        GameRecordEncoder encoder = TestRecords.sampleHand();
+
+        ByteArrayBuilder expected = new ByteArrayBuilder();
+        expected.add(1, 3 << 4 | 4, 0xAC, 0x02); // Banker, dice, handId 300
+        expected.add(TestRecords.sampleDeal());
+        expected.add(RecordFormat.OP_DISCARD << 2 | 1, 0);
+        expected.add(RecordFormat.OP_DRAW_TSUMOGIRI << 2 | 2, 5);
+        expected.add(RecordFormat.OP_DRAW_DISCARD << 2 | 3, 6, 7);
+        expected.add(RecordFormat.OP_PENG << 2);
+        expected.add(RecordFormat.OP_DISCARD << 2, 9);
+        expected.add(RecordFormat.OP_HU << 2 | 1, 1 << 1, 9, 5, 12, 1, 3); // Zigzag deltas
+        assertArrayEquals(expected.toArray(), Arrays.copyOf(encoder.buffer(), encoder.size()));
+
+        File file = TestRecords.tempArchive();
+        try {
+            try (GameRecordWriter writer = new GameRecordWriter(file)) {
+                writer.append(encoder);
+            }
+            ByteArrayBuilder archive = new ByteArrayBuilder();
+            archive.add('C', 'C', 'G', 'R', RecordFormat.VERSION, encoder.size());
+            archive.add(expected.toArray());
+            assertArrayEquals(archive.toArray(), Files.readAllBytes(file.toPath()));
+        } finally {
+            TestRecords.delete(file);
+        }
+    }
+
+    private static final class ByteArrayBuilder {
+        private byte[] bytes = new byte[0];
+
+        void add(int... values) {
+            int n = bytes.length;
+            bytes = Arrays.copyOf(bytes, n + values.length);
+            for (int i = 0; i < values.length; i++)
+                bytes[n + i] = (byte) values[i];
+        }
+
+        void add(byte[] values) {
+            int n = bytes.length;
+            bytes = Arrays.copyOf(bytes, n + values.length);
+            System.arraycopy(values, 0, bytes, n, values.length);
+        }
+
+        byte[] toArray() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.allentx.changchunmahjong.record;
+
+import static org.junit.Assert.assertEquals;
+
+import com.allentx.changchunmahjong.model.Player;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class ReplayCursorTest {
+
+    @Test
+    public void replayMatchesTheRecordedGame() throws IOException {
+        File file = TestRecords.tempArchive();
+        try {
+            List<TestRecords.PlayedHand> played = new ArrayList<>();
+            TestRecords.record(file, 0, 24, played);
+            Random random = new Random(17);
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                RecordedHand hand = new RecordedHand();
+                for (int i = 0; i < reader.size(); i++) {
+                    reader.read(i, hand);
+                    List<String> states = played.get(i).states;
+                    assertEquals(states.size(), hand.getActionCount() + 1);
+
+                    // Sequential replay
+                    ReplayCursor cursor = new ReplayCursor(1 + i % 8);
+                    cursor.load(hand);
+                    assertEquals(states.get(0), TestRecords.describe(cursor.getGameManager()));
+                    while (!cursor.isAtEnd()) {
+                        cursor.step();
+                        assertEquals("hand " + i + " action " + cursor.getPosition(),
+                                states.get(cursor.getPosition()), TestRecords.describe(cursor.getGameManager()));
+                    }
+
+                    // Random seeks land on the same states, through keyframes or not
+                    for (int k = 0; k < 20; k++) {
+                        int target = random.nextInt(hand.getActionCount() + 1);
+                        cursor.seek(target);
+                        assertEquals("hand " + i + " seek " + target, states.get(target),
+                                TestRecords.describe(cursor.getGameManager()));
+                    }
+                }
+            }
+        } finally {
+            TestRecords.delete(file);
+        }
+    }
+
+    @Test
+    public void finalScoresMatchTheRecordedDeltas() throws IOException {
+        File file = TestRecords.tempArchive();
+        try {
+            List<TestRecords.PlayedHand> played = new ArrayList<>();
+            TestRecords.record(file, 0, 24, played);
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                RecordedHand hand = new RecordedHand();
+                ReplayCursor cursor = new ReplayCursor();
+                for (int i = 0; i < reader.size(); i++) {
+                    reader.read(i, hand);
+                    cursor.load(hand);
+                    cursor.seek(hand.getActionCount());
+                    for (int seat = 0; seat < 4; seat++) {
+                        assertEquals(played.get(i).scoreDeltas[seat], hand.getScoreDelta(seat));
+                        assertEquals(Player.STARTING_SCORE + hand.getScoreDelta(seat),
+                                cursor.getTable().getPlayer(seat).getScore());
+                    }
+                }
+            }
+        } finally {
+            TestRecords.delete(file);
+        }
+    }
+}
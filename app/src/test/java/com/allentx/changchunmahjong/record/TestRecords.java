@@ -0,0 +1,178 @@
+package com.allentx.changchunmahjong.record;
+
+import com.allentx.changchunmahjong.engine.AiController;
+import com.allentx.changchunmahjong.engine.GameEngine;
+import com.allentx.changchunmahjong.engine.GameListener;
+import com.allentx.changchunmahjong.engine.HandResult;
+import com.allentx.changchunmahjong.engine.SeatController;
+import com.allentx.changchunmahjong.logic.GameManager;
+import com.allentx.changchunmahjong.model.Meld;
+import com.allentx.changchunmahjong.model.Player;
+import com.allentx.changchunmahjong.model.Table;
+import com.allentx.changchunmahjong.model.Tile;
+import com.allentx.changchunmahjong.util.RandomSource;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Recorded hands and archives for tests
+final class TestRecords {
+
+    // Engine hands recorded alongside the table state after every action
+    static final class PlayedHand {
+        final List<String> states = new ArrayList<>(); // Start, then after each action
+        int[] scoreDeltas;
+    }
+
+    private TestRecords() {
+    }
+
+    // The deal of sampleHand(): seat 0 gets ids 0-12, seat 1 (the banker) 13-26 and so on
+    static byte[] sampleDeal() {
+        byte[] deal = new byte[RecordFormat.DEAL_SIZE];
+        for (int i = 0; i < deal.length; i++)
+            deal[i] = (byte) (i % Tile.TYPE_COUNT);
+        return deal;
+    }
+
+    // Hand 300: a Peng, two folded draw/discard pairs and a Hu on a discard
+    static GameRecordEncoder sampleHand() {
+        GameRecordEncoder encoder = new GameRecordEncoder();
+        encoder.beginHand(300, 1, 3, 4, false, 0);
+        byte[] deal = sampleDeal();
+        int dealt = 0;
+        for (int seat = 0; seat < 4; seat++) {
+            List<Tile> hand = new ArrayList<>();
+            for (int i = 0; i < (seat == 1 ? 14 : 13); i++)
+                hand.add(Tile.byId(deal[dealt++]));
+            encoder.deal(hand);
+        }
+        encoder.discard(1, Tile.byId(0), 0);
+        encoder.draw(2, Tile.byId(5), false, 0);
+        encoder.discard(2, Tile.byId(5), 0); // Drawn and discarded: folded
+        encoder.draw(3, Tile.byId(6), false, 0);
+        encoder.discard(3, Tile.byId(7), 0); // Folded with both tiles
+        encoder.peng(0, 0);
+        encoder.discard(0, Tile.byId(9), 0);
+        encoder.hu(1, false, 0, Tile.byId(9), new int[] { -3, 6, -1, -2 }, 0);
+        return encoder;
+    }
+
+    // Plays hands [from, to) with the default AI and appends them to the archive
+    static void record(File file, int from, int to, List<PlayedHand> played) throws IOException {
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            for (int h = from; h < to; h++) {
+                GameManager gameManager = new GameManager(RandomSource.seeded(h));
+                SeatController ai = new AiController(RandomSource.seeded(h + 1000));
+                GameEngine engine = new GameEngine(gameManager, new SeatController[] { ai, ai, ai, ai });
+                GameRecorder recorder = new GameRecorder(engine, writer, h % 2 == 0, false);
+                recorder.setNextHandId(h);
+                engine.addListener(recorder);
+                PlayedHand hand = new PlayedHand();
+                engine.addListener(new StateLog(gameManager, hand.states));
+                engine.startHand(h % 4);
+                engine.run();
+                HandResult result = engine.getResult();
+                hand.scoreDeltas = new int[4];
+                for (int seat = 0; seat < 4; seat++)
+                    hand.scoreDeltas[seat] = result.isDraw() ? 0 : result.getScoreDelta(seat);
+                played.add(hand);
+                if (recorder.getError() != null)
+                    throw recorder.getError();
+            }
+        }
+    }
+
+    // Table state after every event that is one recorded action
+    private static final class StateLog implements GameListener {
+        private final GameManager gameManager;
+        private final List<String> states;
+
+        StateLog(GameManager gameManager, List<String> states) {
+            this.gameManager = gameManager;
+            this.states = states;
+        }
+
+        private void log() {
+            states.add(describe(gameManager));
+        }
+
+        @Override
+        public void onHandStarted(int bankerIndex) {
+            log();
+        }
+
+        @Override
+        public void onTileDrawn(int seat, Tile tile, boolean replacement) {
+            log();
+        }
+
+        @Override
+        public void onDiscard(int seat, Tile tile) {
+            log();
+        }
+
+        @Override
+        public void onMeld(int seat, Meld meld) {
+            log();
+        }
+
+        @Override
+        public void onDaBao(int seat, Tile bao) {
+            log();
+        }
+
+        @Override
+        public void onViewBao(int seat) {
+            log();
+        }
+
+        @Override
+        public void onBaoReplaced(int seat, Tile bao) {
+            log();
+        }
+
+        @Override
+        public void onHandEnded(HandResult result) {
+            log();
+        }
+    }
+
+    static String describe(GameManager gameManager) {
+        Table table = gameManager.getTable();
+        StringBuilder sb = new StringBuilder();
+        for (int seat = 0; seat < 4; seat++) {
+            Player p = table.getPlayer(seat);
+            sb.append(seat).append(": ").append(p.getScore()).append(p.isHandLocked() ? " locked" : "")
+                    .append(p.hasViewedBao() ? " viewed" : "").append(" hand");
+            for (Tile t : p.getHand())
+                sb.append(' ').append(t.getId());
+            for (Meld m : p.getMelds()) {
+                sb.append(' ').append(m.getType());
+                for (Tile t : m.getTiles())
+                    sb.append(' ').append(t.getId());
+            }
+            sb.append(" discards");
+            for (Tile t : p.getDiscards())
+                sb.append(' ').append(t.getId());
+            sb.append('\n');
+        }
+        sb.append("bao ").append(table.getBaoTile() == null ? -1 : table.getBaoTile().getId()).append(" owner ")
+                .append(table.getBaoOwnerIndex()).append(" wall ").append(table.getWallRemaining())
+                .append(" current ").append(gameManager.getCurrentPlayerIndex());
+        return sb.toString();
+    }
+
+    static File tempArchive() throws IOException {
+        File file = File.createTempFile("records", ".ccgr");
+        if (!file.delete())
+            throw new IOException("Cannot reuse " + file);
+        return file;
+    }
+
+    static void delete(File file) {
+        file.delete();
+        GameRecordReader.indexFile(file).delete();
+    }
+}